@@ -0,0 +1,93 @@
+package dev.bigdogs.backend_interview.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import dev.bigdogs.backend_interview.BackendInterviewApplication;
+import dev.bigdogs.backend_interview.dto.CategoryDTO;
+import dev.bigdogs.backend_interview.dto.CreateCategoryDTO;
+import dev.bigdogs.backend_interview.service.CategoryService;
+
+/**
+ * Boots the application without a web server against a private in-memory H2 database,
+ * and builds category trees of a given shape through {@link CategoryService}.
+ */
+final class BenchmarkApplication {
+
+    private BenchmarkApplication() {
+    }
+
+    /**
+     * Starts a fresh application context.
+     *
+     * @param treeCacheEnabled whether tree reads are served from the in-memory snapshot
+     * @return the running context; close it in the benchmark tear-down
+     */
+    static ConfigurableApplicationContext start(boolean treeCacheEnabled) {
+        return start(treeCacheEnabled, "jdbc:h2:mem:bench-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+    }
+
+    /**
+     * Starts a fresh application context on the given database.
+     *
+     * @param treeCacheEnabled whether tree reads are served from the in-memory snapshot
+     * @param jdbcUrl the JDBC URL of an empty database, in memory or on file
+     * @return the running context; close it in the benchmark tear-down
+     */
+    static ConfigurableApplicationContext start(boolean treeCacheEnabled, String jdbcUrl) {
+        return new SpringApplicationBuilder(BackendInterviewApplication.class)
+            .web(WebApplicationType.NONE)
+            .properties(
+                "spring.datasource.url=" + jdbcUrl,
+                // Boot only generates the schema by default for in-memory databases
+                "spring.jpa.hibernate.ddl-auto=create",
+                "categories.tree-cache.enabled=" + treeCacheEnabled,
+                "spring.jpa.open-in-view=false",
+                "logging.level.root=WARN")
+            .run();
+    }
+
+    /**
+     * Creates a root category with a complete tree below it.
+     *
+     * @param service the category service
+     * @param rootName the name of the root category
+     * @param depth the number of levels below the root
+     * @param fanOut the number of children of every non-leaf category
+     * @return the IDs of the root and of every created category, root first, in creation order
+     */
+    static List<Long> createTree(CategoryService service, String rootName, int depth, int fanOut) {
+        List<Long> ids = new ArrayList<>();
+        CreateCategoryDTO root = new CreateCategoryDTO();
+        root.setName(rootName);
+        ids.add(service.createRootCategory(root).getId());
+        appendSubtree(service, ids.get(0), depth, fanOut, ids);
+        return ids;
+    }
+
+    /**
+     * Creates a complete subtree below an existing category.
+     */
+    static void appendSubtree(CategoryService service, Long parentId, int depth, int fanOut, List<Long> ids) {
+        List<Long> level = List.of(parentId);
+        for (int d = 0; d < depth; d++) {
+            List<Long> next = new ArrayList<>(level.size() * fanOut);
+            for (Long levelParentId : level) {
+                for (int i = 0; i < fanOut; i++) {
+                    CreateCategoryDTO child = new CreateCategoryDTO();
+                    child.setName("Category " + d + "-" + i);
+                    child.setParentId(levelParentId);
+                    CategoryDTO created = service.createSubcategory(child);
+                    next.add(created.getId());
+                    ids.add(created.getId());
+                }
+            }
+            level = next;
+        }
+    }
+}
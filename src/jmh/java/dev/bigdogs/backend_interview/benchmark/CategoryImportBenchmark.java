@@ -0,0 +1,86 @@
+package dev.bigdogs.backend_interview.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import dev.bigdogs.backend_interview.dto.ImportResultDTO;
+import dev.bigdogs.backend_interview.service.CategoryImportService;
+
+/**
+ * Measures bulk NDJSON imports into a file-mode H2 database.
+ *
+ * Each invocation imports a fresh root with {@code categories} rows below it (fan-out 10 per level),
+ * listed in depth-first order as the import requires. Divide the category count by the reported time per operation to get categories per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class CategoryImportBenchmark {
+
+    @Param({"50000"})
+    public int categories;
+
+    private ConfigurableApplicationContext context;
+    private CategoryImportService importService;
+    private byte[] payload;
+    private long sequence;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Path database = Path.of("build", "jmh-h2", "import-" + UUID.randomUUID()).toAbsolutePath();
+        context = BenchmarkApplication.start(false, "jdbc:h2:file:" + database);
+        importService = context.getBean(CategoryImportService.class);
+    }
+
+    @Setup(Level.Invocation)
+    public void preparePayload() {
+        StringBuilder ndjson = new StringBuilder(categories * 48);
+        ndjson.append("{\"id\":0,\"name\":\"Import ").append(sequence++).append("\"}\n");
+        // Key k has children 10k + 1 to 10k + 10; the stack lists them in depth-first order.
+        Deque<Integer> pending = new ArrayDeque<>();
+        pending.push(0);
+        while (!pending.isEmpty()) {
+            int parent = pending.pop();
+            for (int key = Math.min(10 * parent + 10, categories - 1); key > 10 * parent; key--) {
+                pending.push(key);
+            }
+            if (parent > 0) {
+                ndjson.append("{\"id\":").append(parent)
+                    .append(",\"parentId\":").append((parent - 1) / 10)
+                    .append(",\"name\":\"Category ").append(parent).append("\"}\n");
+            }
+        }
+        payload = ndjson.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public ImportResultDTO importNdjson() throws Exception {
+        return importService.importNdjson(new ByteArrayInputStream(payload), null);
+    }
+}
@@ -0,0 +1,141 @@
+package dev.bigdogs.backend_interview.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import dev.bigdogs.backend_interview.dto.CategoryTreeDTO;
+import dev.bigdogs.backend_interview.dto.CreateCategoryDTO;
+import dev.bigdogs.backend_interview.dto.UpdateCategoryDTO;
+import dev.bigdogs.backend_interview.service.CategoryService;
+
+/**
+ * Benchmarks the hot paths of {@link CategoryService} against H2.
+ *
+ * Each trial boots the application and builds one tree of the configured depth and fan-out
+ * (depth 4 and fan-out 8 give 4,681 categories). Throughput and sampled latency percentiles
+ * are reported for every method; the gc profiler configured in build.gradle adds allocation rates.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CategoryServiceBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class TreeState {
+
+        @Param({"4"})
+        public int depth;
+
+        @Param({"8"})
+        public int fanOut;
+
+        @Param({"true", "false"})
+        public boolean treeCache;
+
+        ConfigurableApplicationContext context;
+        CategoryService service;
+        Long rootId;
+        Long leafId;
+        Long leafParentId;
+        long sequence;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            context = BenchmarkApplication.start(treeCache);
+            service = context.getBean(CategoryService.class);
+            List<Long> ids = BenchmarkApplication.createTree(service, "Benchmark", depth, fanOut);
+            rootId = ids.get(0);
+            leafId = ids.get(ids.size() - 1);
+            leafParentId = ids.get(ids.size() - 1 - fanOut);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            context.close();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class DeleteState {
+
+        @Param({"2"})
+        public int subtreeDepth;
+
+        @Param({"8"})
+        public int subtreeFanOut;
+
+        ConfigurableApplicationContext context;
+        CategoryService service;
+        Long rootId;
+        Long subtreeId;
+        long sequence;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            context = BenchmarkApplication.start(true);
+            service = context.getBean(CategoryService.class);
+            CreateCategoryDTO root = new CreateCategoryDTO();
+            root.setName("Delete benchmark");
+            rootId = service.createRootCategory(root).getId();
+        }
+
+        /**
+         * Builds the branch deleted by the next invocation. Not included in the measurement.
+         */
+        @Setup(Level.Invocation)
+        public void createBranch() {
+            CreateCategoryDTO branch = new CreateCategoryDTO();
+            branch.setName("Branch " + sequence++);
+            branch.setParentId(rootId);
+            subtreeId = service.createSubcategory(branch).getId();
+            BenchmarkApplication.appendSubtree(service, subtreeId, subtreeDepth, subtreeFanOut, new ArrayList<>());
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            context.close();
+        }
+    }
+
+    @Benchmark
+    public CategoryTreeDTO getAncestorsAndDescendantsOfRoot(TreeState state) {
+        return state.service.getAncestorsAndDescendants(state.rootId);
+    }
+
+    @Benchmark
+    public CategoryTreeDTO getAncestorsAndDescendantsOfLeaf(TreeState state) {
+        return state.service.getAncestorsAndDescendants(state.leafId);
+    }
+
+    @Benchmark
+    public Object createSubcategory(TreeState state) {
+        CreateCategoryDTO dto = new CreateCategoryDTO();
+        dto.setName("New " + state.sequence++);
+        dto.setParentId(state.leafParentId);
+        return state.service.createSubcategory(dto);
+    }
+
+    @Benchmark
+    public Object updateActiveState(TreeState state) {
+        UpdateCategoryDTO dto = new UpdateCategoryDTO();
+        dto.setActive((state.sequence++ & 1) == 0);
+        return state.service.updateActiveState(state.leafId, dto);
+    }
+
+    @Benchmark
+    public void deleteCategoryCascading(DeleteState state) {
+        state.service.deleteCategory(state.subtreeId);
+    }
+}
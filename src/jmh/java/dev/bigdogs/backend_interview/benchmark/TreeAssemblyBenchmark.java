@@ -0,0 +1,112 @@
+package dev.bigdogs.backend_interview.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import dev.bigdogs.backend_interview.model.CategoryNode;
+import dev.bigdogs.backend_interview.service.TreeAssembler;
+import dev.bigdogs.backend_interview.tree.CategoryIndex;
+import dev.bigdogs.backend_interview.tree.CategoryTraversal;
+
+/**
+ * Measures the assembly of a whole tree response from the in-memory index, sequentially and on
+ * fork-join pools of 8 to 32 threads.
+ *
+ * The tree is built without the application: one root with {@code width} children, each heading a
+ * subtree of {@code subtreeSize} categories (1,000 by 1,000 gives 1,000,001 categories). Parallelism
+ * 1 runs with the threshold disabled, which is the sequential build. Each trial first checks that the
+ * parallel tree serializes to exactly the bytes of the sequential one.
+ *
+ * Run on a machine with at least as many cores as the largest parallelism, for example with
+ * {@code ./gradlew jmh -PjmhIncludes=TreeAssemblyBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TreeAssemblyBenchmark {
+
+    @Param({"1000"})
+    public int width;
+
+    @Param({"1000"})
+    public int subtreeSize;
+
+    @Param({"1", "8", "16", "32"})
+    public int parallelism;
+
+    @Param({"50000"})
+    public int parallelThreshold;
+
+    private CategoryIndex index;
+    private int root;
+    private TreeAssembler assembler;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        index = CategoryIndex.of(wideTree(), false);
+        root = index.slotOf(1L);
+        assembler = new TreeAssembler(parallelism, parallelism > 1 ? parallelThreshold : Integer.MAX_VALUE);
+
+        TreeAssembler sequential = new TreeAssembler(1, Integer.MAX_VALUE);
+        ObjectMapper mapper = new ObjectMapper();
+        byte[] expected = mapper.writeValueAsBytes(sequential.assemble(index, root, CategoryTraversal.UNLIMITED,
+            Integer.MAX_VALUE, null, true).tree());
+        sequential.destroy();
+        if (!Arrays.equals(expected, mapper.writeValueAsBytes(assemble().tree()))) {
+            throw new IllegalStateException("The parallel tree differs from the sequential one");
+        }
+        System.out.printf("%nAssembling %,d categories with parallelism %d%n", index.size(), parallelism);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        assembler.destroy();
+    }
+
+    @Benchmark
+    public TreeAssembler.AssembledTree assemble() {
+        return assembler.assemble(index, root, CategoryTraversal.UNLIMITED, Integer.MAX_VALUE, null, true);
+    }
+
+    /**
+     * Each child of the root heads a two-level subtree: about sqrt(subtreeSize) categories, each with
+     * an equal share of the rest.
+     */
+    private List<CategoryNode> wideTree() {
+        List<CategoryNode> nodes = new ArrayList<>(1 + width * subtreeSize);
+        nodes.add(new CategoryNode(1L, null, "Root", null));
+        int fanOut = Math.max(1, (int) Math.sqrt(subtreeSize));
+        long id = 2;
+        for (int i = 0; i < width; i++) {
+            long child = id++;
+            nodes.add(new CategoryNode(child, 1L, "Category " + child, true));
+            long parent = child;
+            for (int j = 1; j < subtreeSize; j++) {
+                if (j % fanOut == 1) {
+                    parent = id;
+                    nodes.add(new CategoryNode(id, child, "Category " + id, true));
+                } else {
+                    nodes.add(new CategoryNode(id, parent, "Category " + id, j % 50 != 0));
+                }
+                id++;
+            }
+        }
+        return nodes;
+    }
+}
@@ -0,0 +1,88 @@
+package dev.bigdogs.backend_interview.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+
+import dev.bigdogs.backend_interview.dto.CategoryTreeDTO;
+
+/**
+ * Compares the wire formats of the tree endpoint: JSON, CBOR and Smile.
+ *
+ * A complete tree of the configured depth and fan-out is built in memory, without the application.
+ * The payload size of each format is printed once per trial; throughput and the gc profiler's
+ * allocation rates are reported for writing and for reading the payload.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class WireFormatBenchmark {
+
+    @Param({"4"})
+    public int depth;
+
+    @Param({"8"})
+    public int fanOut;
+
+    @Param({"json", "cbor", "smile"})
+    public String format;
+
+    private ObjectMapper mapper;
+    private CategoryTreeDTO tree;
+    private byte[] payload;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        mapper = switch (format) {
+            case "cbor" -> new CBORMapper();
+            case "smile" -> new SmileMapper();
+            default -> new ObjectMapper();
+        };
+        long[] sequence = {1};
+        tree = buildTree(null, depth, sequence);
+        payload = mapper.writeValueAsBytes(tree);
+        System.out.printf("%n%s payload for %d categories: %,d bytes%n", format, sequence[0] - 1, payload.length);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return mapper.writeValueAsBytes(tree);
+    }
+
+    @Benchmark
+    public CategoryTreeDTO deserialize() throws IOException {
+        return mapper.readValue(payload, CategoryTreeDTO.class);
+    }
+
+    private CategoryTreeDTO buildTree(Long parentId, int levels, long[] sequence) {
+        CategoryTreeDTO node = new CategoryTreeDTO();
+        node.setId(sequence[0]++);
+        node.setName("Category " + node.getId());
+        node.setActive(parentId != null ? Boolean.TRUE : null);
+        node.setEffectiveActive(true);
+        node.setParentId(parentId);
+        if (levels > 0) {
+            List<CategoryTreeDTO> subcategories = new ArrayList<>(fanOut);
+            for (int i = 0; i < fanOut; i++) {
+                subcategories.add(buildTree(node.getId(), levels - 1, sequence));
+            }
+            node.setSubcategories(subcategories);
+        }
+        return node;
+    }
+}
@@ -0,0 +1,115 @@
+package dev.bigdogs.backend_interview.loadtest;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import dev.bigdogs.backend_interview.BackendInterviewApplication;
+import dev.bigdogs.backend_interview.service.CategoryService;
+
+/**
+ * Compares the blocking tree endpoint with its R2DBC counterpart under /reactive.
+ *
+ * The application is booted once, on a random port and with the tree cache disabled, so both
+ * endpoints read the database on every request. The heap is fixed by the JVM arguments of the
+ * reactiveLoadTest task. At every concurrency level, the blocking and the reactive endpoint run one
+ * after the other with a closed-loop client. The report gives requests per second and the peak heap
+ * used during each run.
+ *
+ * Arguments: comma-separated concurrency levels, seconds per level.
+ */
+public final class ReactiveTreeLoadTest {
+
+    private static final Duration WARMUP = Duration.ofSeconds(3);
+
+    private ReactiveTreeLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[] levels = Arrays.stream((args.length > 0 ? args[0] : "50,200,800").split(","))
+            .mapToInt(level -> Integer.parseInt(level.trim()))
+            .toArray();
+        Duration duration = Duration.ofSeconds(args.length > 1 ? Integer.parseInt(args[1]) : 10);
+
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(BackendInterviewApplication.class)
+            .properties(
+                "server.port=0",
+                "spring.datasource.url=jdbc:h2:mem:reactive-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                "categories.tree-cache.enabled=false",
+                "logging.level.root=WARN");
+
+        List<ThreadingLoadTest.Stats> results = new ArrayList<>();
+        List<Long> peakHeaps = new ArrayList<>();
+        try (ConfigurableApplicationContext context = builder.run()) {
+            List<Long> ids = ThreadingLoadTest.seed(context.getBean(CategoryService.class));
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            List<HttpRequest> blocking = requests(port, "/categories/", ids);
+            List<HttpRequest> reactive = requests(port, "/reactive/categories/", ids);
+
+            ThreadingLoadTest.measure("blocking", client, blocking, levels[0], WARMUP);
+            ThreadingLoadTest.measure("reactive", client, reactive, levels[0], WARMUP);
+
+            for (int concurrency : levels) {
+                for (String mode : List.of("blocking", "reactive")) {
+                    System.gc();
+                    resetPeakHeap();
+                    results.add(ThreadingLoadTest.measure(mode, client,
+                        mode.equals("blocking") ? blocking : reactive, concurrency, duration));
+                    peakHeaps.add(peakHeap());
+                    System.out.printf("%s: %d in flight done%n", mode, concurrency);
+                }
+            }
+        }
+
+        System.out.printf("%n%-9s %11s %9s %7s %9s %8s %8s %13s%n",
+            "endpoint", "concurrency", "requests", "errors", "req/s", "p50 ms", "p99 ms", "peak heap MB");
+        for (int i = 0; i < results.size(); i++) {
+            ThreadingLoadTest.Stats stats = results.get(i);
+            System.out.printf("%-9s %11d %9d %7d %9.0f %8.1f %8.1f %13d%n", stats.mode(), stats.concurrency(),
+                stats.requests(), stats.errors(), stats.throughput(), stats.p50Millis(), stats.p99Millis(),
+                peakHeaps.get(i) / (1024 * 1024));
+        }
+    }
+
+    private static List<HttpRequest> requests(int port, String prefix, List<Long> ids) {
+        return ids.stream()
+            .map(id -> HttpRequest.newBuilder(URI.create("http://localhost:" + port + prefix + id + "/tree"))
+                .timeout(Duration.ofSeconds(30))
+                .build())
+            .toList();
+    }
+
+    private static void resetPeakHeap() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    /**
+     * Sum of the peak usage of every heap pool since the last reset; an upper bound of the peak heap.
+     */
+    private static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+}
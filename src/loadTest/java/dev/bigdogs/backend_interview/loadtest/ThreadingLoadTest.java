@@ -0,0 +1,190 @@
+package dev.bigdogs.backend_interview.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import dev.bigdogs.backend_interview.BackendInterviewApplication;
+import dev.bigdogs.backend_interview.dto.CreateCategoryDTO;
+import dev.bigdogs.backend_interview.service.CategoryService;
+
+/**
+ * Compares the tree endpoint on the default platform thread pool and on the virtual-threads profile.
+ *
+ * Each mode boots the application on a random port against its own in-memory H2 database, with the
+ * tree cache disabled so that every request goes through JDBC. A closed-loop client then keeps a fixed
+ * number of requests in flight at every concurrency level and records their latency. Both modes run
+ * in the same JVM on the same machine, one after the other.
+ *
+ * A concurrency level counts as sustained when no request failed and p99 stayed within {@link #P99_TARGET}.
+ *
+ * Arguments: comma-separated concurrency levels, seconds per level.
+ */
+public final class ThreadingLoadTest {
+
+    private static final Duration P99_TARGET = Duration.ofMillis(500);
+
+    private static final Duration WARMUP = Duration.ofSeconds(3);
+
+    private static final int TREE_DEPTH = 3;
+
+    private static final int TREE_FAN_OUT = 6;
+
+    private ThreadingLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[] levels = Arrays.stream((args.length > 0 ? args[0] : "50,200,800,1600").split(","))
+            .mapToInt(level -> Integer.parseInt(level.trim()))
+            .toArray();
+        Duration duration = Duration.ofSeconds(args.length > 1 ? Integer.parseInt(args[1]) : 10);
+
+        List<Stats> results = new ArrayList<>(run("platform", null, levels, duration));
+        if (Runtime.version().feature() >= 21) {
+            results.addAll(run("virtual", "virtual-threads", levels, duration));
+        } else {
+            System.out.println("Java " + Runtime.version().feature()
+                + " has no virtual threads; rerun with -PjavaVersion=21 to compare both modes.");
+        }
+
+        System.out.printf("%n%-9s %11s %9s %7s %9s %8s %8s%n",
+            "mode", "concurrency", "requests", "errors", "req/s", "p50 ms", "p99 ms");
+        for (Stats stats : results) {
+            System.out.printf("%-9s %11d %9d %7d %9.0f %8.1f %8.1f%n", stats.mode(), stats.concurrency(),
+                stats.requests(), stats.errors(), stats.throughput(), stats.p50Millis(), stats.p99Millis());
+        }
+        for (String mode : List.of("platform", "virtual")) {
+            results.stream()
+                .filter(stats -> stats.mode().equals(mode) && stats.sustained())
+                .mapToInt(Stats::concurrency)
+                .max()
+                .ifPresent(max -> System.out.printf("%s: max sustained concurrency %d (p99 <= %d ms, no errors)%n",
+                    mode, max, P99_TARGET.toMillis()));
+        }
+    }
+
+    private static List<Stats> run(String mode, String profile, int[] levels, Duration duration) throws Exception {
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(BackendInterviewApplication.class)
+            .properties(
+                "server.port=0",
+                "spring.datasource.url=jdbc:h2:mem:load-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                "categories.tree-cache.enabled=false",
+                "logging.level.root=WARN");
+        if (profile != null) {
+            builder.profiles(profile);
+        }
+
+        try (ConfigurableApplicationContext context = builder.run()) {
+            List<Long> ids = seed(context.getBean(CategoryService.class));
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            List<HttpRequest> requests = ids.stream()
+                .map(id -> HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/categories/" + id + "/tree"))
+                    .timeout(Duration.ofSeconds(30))
+                    .build())
+                .toList();
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+            System.out.printf("%s: warming up on %d categories%n", mode, ids.size());
+            measure(mode, client, requests, levels[0], WARMUP);
+
+            List<Stats> results = new ArrayList<>(levels.length);
+            for (int concurrency : levels) {
+                Stats stats = measure(mode, client, requests, concurrency, duration);
+                System.out.printf("%s: %d in flight, p99 %.1f ms%n", mode, concurrency, stats.p99Millis());
+                results.add(stats);
+            }
+            return results;
+        }
+    }
+
+    /**
+     * Keeps the given number of requests in flight for the whole duration.
+     */
+    static Stats measure(String mode, HttpClient client, List<HttpRequest> requests, int concurrency,
+            Duration duration) throws InterruptedException {
+        Semaphore inFlight = new Semaphore(concurrency);
+        ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        LongAdder errors = new LongAdder();
+
+        long start = System.nanoTime();
+        long deadline = start + duration.toNanos();
+        while (System.nanoTime() < deadline) {
+            inFlight.acquire();
+            HttpRequest request = requests.get(ThreadLocalRandom.current().nextInt(requests.size()));
+            long sent = System.nanoTime();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, failure) -> {
+                    if (failure != null || response.statusCode() != 200) {
+                        errors.increment();
+                    } else {
+                        latencies.add(System.nanoTime() - sent);
+                    }
+                    inFlight.release();
+                });
+        }
+        inFlight.acquire(concurrency);
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        return new Stats(mode, concurrency, sorted.length + errors.sum(), errors.sum(),
+            sorted.length / elapsedSeconds, percentileMillis(sorted, 0.50), percentileMillis(sorted, 0.99));
+    }
+
+    private static double percentileMillis(long[] sortedNanos, double percentile) {
+        if (sortedNanos.length == 0) {
+            return Double.NaN;
+        }
+        int index = (int) Math.ceil(percentile * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(0, index)] / 1e6;
+    }
+
+    /**
+     * Creates a complete tree of {@link #TREE_DEPTH} levels below a single root.
+     *
+     * @return the IDs of every created category
+     */
+    static List<Long> seed(CategoryService service) {
+        CreateCategoryDTO root = new CreateCategoryDTO();
+        root.setName("Load Test");
+        List<Long> ids = new ArrayList<>();
+        ids.add(service.createRootCategory(root).getId());
+
+        List<Long> level = List.copyOf(ids);
+        for (int depth = 0; depth < TREE_DEPTH; depth++) {
+            List<Long> next = new ArrayList<>(level.size() * TREE_FAN_OUT);
+            for (Long parentId : level) {
+                for (int i = 0; i < TREE_FAN_OUT; i++) {
+                    CreateCategoryDTO child = new CreateCategoryDTO();
+                    child.setName("Category " + depth + "-" + i);
+                    child.setParentId(parentId);
+                    next.add(service.createSubcategory(child).getId());
+                }
+            }
+            ids.addAll(next);
+            level = next;
+        }
+        return ids;
+    }
+
+    record Stats(String mode, int concurrency, long requests, long errors, double throughput,
+            double p50Millis, double p99Millis) {
+
+        boolean sustained() {
+            return errors == 0 && p99Millis <= P99_TARGET.toMillis();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package dev.bigdogs.backend_interview.loadtest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import dev.bigdogs.backend_interview.BackendInterviewApplication;
+import dev.bigdogs.backend_interview.dto.CreateCategoryDTO;
+import dev.bigdogs.backend_interview.exception.InvalidCategoryOperationException;
+import dev.bigdogs.backend_interview.service.CategoryService;
+
+/**
+ * Measures subcategory creation throughput as the number of concurrent writers grows.
+ *
+ * Each writer count runs twice against a fresh in-memory H2 database: once with every writer
+ * creating under its own parent, where the per-parent locks never contend, and once with all writers
+ * sharing a single parent. Names are drawn from a small pool, so concurrent writers keep colliding and
+ * the duplicates have to be rejected. After each run the database is checked for duplicate siblings.
+ *
+ * Arguments: comma-separated writer counts, seconds per run.
+ */
+public final class WriteContentionLoadTest {
+
+    private static final int NAMES_PER_PARENT = 5_000;
+
+    private static final String DUPLICATE_SIBLINGS =
+        "SELECT COUNT(*) FROM (SELECT parent_id, name FROM categories WHERE parent_id IS NOT NULL "
+            + "GROUP BY parent_id, name HAVING COUNT(*) > 1) duplicates";
+
+    private WriteContentionLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[] writerCounts = Arrays.stream((args.length > 0 ? args[0] : "1,2,4,8,16,32").split(","))
+            .mapToInt(count -> Integer.parseInt(count.trim()))
+            .toArray();
+        Duration duration = Duration.ofSeconds(args.length > 1 ? Integer.parseInt(args[1]) : 5);
+
+        List<Stats> results = new ArrayList<>();
+        for (int writers : writerCounts) {
+            results.add(run("own parent", writers, false, duration));
+            results.add(run("shared", writers, true, duration));
+        }
+
+        System.out.printf("%n%-10s %7s %9s %9s %9s %8s %10s%n",
+            "parents", "writers", "created", "rejected", "errors", "ops/s", "duplicates");
+        for (Stats stats : results) {
+            System.out.printf("%-10s %7d %9d %9d %9d %8.0f %10d%n", stats.mode(), stats.writers(),
+                stats.created(), stats.rejected(), stats.errors(), stats.throughput(), stats.duplicates());
+        }
+        if (results.stream().anyMatch(stats -> stats.duplicates() > 0)) {
+            throw new IllegalStateException("Duplicate sibling names were created.");
+        }
+    }
+
+    private static Stats run(String mode, int writers, boolean shared, Duration duration) throws Exception {
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(BackendInterviewApplication.class)
+            .web(WebApplicationType.NONE)
+            .properties(
+                "spring.datasource.url=jdbc:h2:mem:write-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                "spring.datasource.hikari.maximum-pool-size=" + Math.max(10, writers + 2),
+                "logging.level.root=WARN");
+
+        try (ConfigurableApplicationContext context = builder.run()) {
+            CategoryService service = context.getBean(CategoryService.class);
+            List<Long> parents = new ArrayList<>();
+            for (int i = 0; i < (shared ? 1 : writers); i++) {
+                CreateCategoryDTO root = new CreateCategoryDTO();
+                root.setName("Writers " + i);
+                parents.add(service.createRootCategory(root).getId());
+            }
+
+            LongAdder created = new LongAdder();
+            LongAdder rejected = new LongAdder();
+            LongAdder errors = new LongAdder();
+            ExecutorService executor = Executors.newFixedThreadPool(writers);
+            CountDownLatch start = new CountDownLatch(1);
+            long deadline = System.nanoTime() + duration.toNanos();
+            List<Future<?>> futures = new ArrayList<>(writers);
+            for (int writer = 0; writer < writers; writer++) {
+                Long parentId = parents.get(shared ? 0 : writer);
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    while (System.nanoTime() < deadline) {
+                        CreateCategoryDTO dto = new CreateCategoryDTO();
+                        dto.setName("Item " + ThreadLocalRandom.current().nextInt(NAMES_PER_PARENT));
+                        dto.setParentId(parentId);
+                        try {
+                            service.createSubcategory(dto);
+                            created.increment();
+                        } catch (InvalidCategoryOperationException e) {
+                            rejected.increment();
+                        } catch (RuntimeException e) {
+                            errors.increment();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            long started = System.nanoTime();
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            double elapsedSeconds = (System.nanoTime() - started) / 1e9;
+            executor.shutdown();
+
+            Long duplicates = context.getBean(JdbcTemplate.class).queryForObject(DUPLICATE_SIBLINGS, Long.class);
+            Stats stats = new Stats(mode, writers, created.sum(), rejected.sum(), errors.sum(),
+                (created.sum() + rejected.sum()) / elapsedSeconds, duplicates != null ? duplicates : 0);
+            System.out.printf("%s: %d writers, %.0f ops/s%n", mode, writers, stats.throughput());
+            return stats;
+        }
+    }
+
+    private record Stats(String mode, int writers, long created, long rejected, long errors, double throughput,
+            long duplicates) {
+    }
+}
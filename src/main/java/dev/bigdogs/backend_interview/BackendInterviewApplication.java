@@ -2,8 +2,10 @@ package dev.bigdogs.backend_interview;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.retry.annotation.EnableRetry;
 
 @SpringBootApplication
+@EnableRetry
 public class BackendInterviewApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,412 @@
+package dev.bigdogs.backend_interview.cache;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.UnaryOperator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import dev.bigdogs.backend_interview.model.Category;
+import dev.bigdogs.backend_interview.model.CategoryNode;
+import dev.bigdogs.backend_interview.model.CategoryVersion;
+import dev.bigdogs.backend_interview.repository.CategoryRepository;
+import dev.bigdogs.backend_interview.tree.CategoryHierarchy;
+import dev.bigdogs.backend_interview.tree.CategoryIndex;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Read-through cache holding an immutable snapshot of the whole category hierarchy.
+ *
+ * The snapshot is stored as a compact {@link CategoryIndex}, optionally off-heap
+ * ({@code categories.tree-cache.off-heap}), so that catalogs with millions of categories stay cheap to hold.
+ *
+ * The snapshot is loaded with a single query on the first read and then kept up to date by the
+ * write methods of the service: every change is applied to a fresh copy of the snapshot once the
+ * surrounding transaction commits, so readers never see uncommitted data and never block.
+ *
+ * Commit callbacks of concurrent transactions can run in another order than the commits. Every
+ * change therefore carries the row versions it committed, and is skipped for the categories of
+ * which the snapshot already holds that version or a later one. A change that cannot be placed,
+ * because its category or its parent is missing, was overtaken by a deletion: the snapshot is
+ * then dropped and reloaded on the next read.
+ *
+ * Whole-subtree tree responses are also kept pre-serialized, one {@link TreeFragment} per category
+ * (see {@link #getSerializedTree(Long)}). A change only evicts the fragments it affects: those of
+ * the changed category and its ancestors, and those of its descendants when their effective state
+ * may have changed.
+ *
+ * Changes made outside of CategoryService are not observed; call {@link #invalidate()} after them.
+ */
+@Component
+public class CategoryTreeCache implements MeterBinder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CategoryTreeCache.class);
+
+    private final CategoryRepository categoryRepository;
+
+    private final boolean enabled;
+
+    private final boolean offHeap;
+
+    /**
+     * Guards publication of the snapshot, so a rebuild that raced with a write is never published,
+     * and of fragments, so that none built from a replaced snapshot is ever stored.
+     */
+    private final Object publishLock = new Object();
+
+    /**
+     * Ensures a single rebuild runs at a time. A rebuild queries the database, so this is a
+     * {@link ReentrantLock} rather than a monitor, which would pin the carrier of a virtual thread.
+     */
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    private volatile CategoryHierarchy snapshot;
+
+    /**
+     * Fragments of the current snapshot. Evicted before a new snapshot is published.
+     */
+    private final TreeFragments fragments = new TreeFragments();
+
+    /**
+     * Number of changes applied so far; also the version of the hierarchy. Only written under
+     * {@link #publishLock}, and only after the snapshot reflecting the change is published, so that
+     * a reader that sees a generation through {@link #getVersionTag()} then sees at least that
+     * snapshot.
+     */
+    private volatile long generation;
+
+    /**
+     * Distinguishes the counters of two application runs, or of two instances, which all start from zero.
+     */
+    private final String instanceTag = UUID.randomUUID().toString();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder rebuilds = new LongAdder();
+
+    public CategoryTreeCache(final CategoryRepository categoryRepository,
+            @Value("${categories.tree-cache.enabled:true}") final boolean enabled,
+            @Value("${categories.tree-cache.off-heap:false}") final boolean offHeap) {
+        this.categoryRepository = categoryRepository;
+        this.enabled = enabled;
+        this.offHeap = offHeap;
+    }
+
+    /**
+     * @return true if tree reads should be served from the snapshot
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns an opaque tag of the current version of the hierarchy. It changes once every write
+     * committed through CategoryService, or reported through {@link #invalidate()}, whether or not
+     * the snapshot is enabled, and never changes otherwise.
+     *
+     * Read it before loading the data it describes: a change committed in between then makes the
+     * tag look stale, never the data.
+     *
+     * The tag only describes the hierarchy as seen by this instance, which observes only the writes
+     * made through it. Each instance tags its versions with a random prefix, so a tag handed out by
+     * one instance never matches on another: behind several instances clients get full responses
+     * instead of 304s, never a false 304.
+     *
+     * @return the version tag, unquoted
+     */
+    public String getVersionTag() {
+        return instanceTag + "-" + generation;
+    }
+
+    /**
+     * Returns the current snapshot, loading it from the database if there is none.
+     *
+     * @return the snapshot of the whole hierarchy
+     */
+    public CategoryHierarchy getSnapshot() {
+        CategoryHierarchy current = snapshot;
+        if (current != null) {
+            hits.increment();
+            return current;
+        }
+        misses.increment();
+        return rebuild();
+    }
+
+    /**
+     * Returns the current snapshot without loading it.
+     *
+     * @return the snapshot of the whole hierarchy, or null if the cache is disabled or not loaded
+     */
+    public CategoryHierarchy getLoadedSnapshot() {
+        return enabled ? snapshot : null;
+    }
+
+    /**
+     * Returns the whole subtree of a category together with its ancestors, serialized as the tree
+     * endpoint's JSON. Only the fragments missing from the cache are built; they are kept unless a
+     * change was published meanwhile.
+     *
+     * @param id the ID of the category
+     * @return the serialized tree, or null if the category does not exist
+     */
+    public SerializedCategoryTree getSerializedTree(final Long id) {
+        CategoryHierarchy current = getSnapshot();
+        CategoryNode node = current.get(id);
+        if (node == null) {
+            return null;
+        }
+
+        List<CategoryNode> ancestors = current.ancestors(id);
+        boolean parentActive = ancestors.stream().noneMatch(ancestor -> Boolean.FALSE.equals(ancestor.active()));
+        Map<Long, TreeFragment> built = new HashMap<>();
+        TreeFragment fragment = fragments.getOrBuild(current, id, parentActive, built);
+        if (!built.isEmpty()) {
+            synchronized (publishLock) {
+                if (snapshot == current) {
+                    fragments.putAll(built);
+                }
+            }
+        }
+        return new SerializedCategoryTree(fragment, TreeFragments.ancestorsField(ancestors));
+    }
+
+    /**
+     * Records a created or updated category once the current transaction commits.
+     *
+     * @param node the new state of the category, with the version it was committed with
+     */
+    public void nodeSaved(final CategoryNode node) {
+        afterCommit(current -> withCommitted(current, node), (current, next) -> {
+            CategoryNode previous = current.get(node.id());
+            if (previous != null) {
+                fragments.evictPath(current, node.id());
+                if (!Objects.equals(previous.parentId(), node.parentId()) || !Objects.equals(previous.active(), node.active())) {
+                    fragments.evictDescendants(next, node.id());
+                }
+            }
+            fragments.evictPath(next, node.id());
+        });
+    }
+
+    /**
+     * Records a state change applied to a whole subtree once the current transaction commits.
+     *
+     * @param id the ID of the subtree root
+     * @param active the new state of the category and its descendants
+     * @param versions the versions the category and its descendants were committed with
+     */
+    public void subtreeActiveChanged(final Long id, final Boolean active, final List<CategoryVersion> versions) {
+        afterCommit(current -> withCommittedActive(current, versions, active), (current, next) -> {
+            fragments.evictDescendants(current, id);
+            fragments.evictPath(current, id);
+        });
+    }
+
+    /**
+     * Records the removal of a category and its subtree once the current transaction commits.
+     *
+     * @param id the ID of the deleted category
+     */
+    public void nodeDeleted(final Long id) {
+        afterCommit(current -> current.contains(id) ? current.without(id) : null, (current, next) -> {
+            fragments.evictDescendants(current, id);
+            fragments.evictPath(current, id);
+        });
+    }
+
+    /**
+     * Drops the snapshot once the current transaction commits. The next read reloads it.
+     */
+    public void invalidate() {
+        afterCommit(current -> null, (current, next) -> { });
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        FunctionCounter.builder("category.tree.cache.requests", hits, LongAdder::sum)
+            .tag("result", "hit")
+            .description("Tree reads served from the snapshot")
+            .register(registry);
+        FunctionCounter.builder("category.tree.cache.requests", misses, LongAdder::sum)
+            .tag("result", "miss")
+            .description("Tree reads that found no snapshot")
+            .register(registry);
+        FunctionCounter.builder("category.tree.cache.rebuilds", rebuilds, LongAdder::sum)
+            .description("Snapshots loaded from the database")
+            .register(registry);
+        Gauge.builder("category.tree.cache.size", this, cache -> {
+                CategoryHierarchy current = cache.snapshot;
+                return current != null ? current.size() : 0;
+            })
+            .description("Categories held by the current snapshot")
+            .register(registry);
+        Gauge.builder("category.tree.cache.fragments", this, CategoryTreeCache::getFragmentCount)
+            .description("Categories whose serialized subtree is cached")
+            .register(registry);
+        Gauge.builder("category.tree.cache.memory", this, cache -> footprintOf(cache, true))
+            .tag("layout", "index")
+            .baseUnit("bytes")
+            .description("Memory used by the compact index of the current snapshot")
+            .register(registry);
+        Gauge.builder("category.tree.cache.memory", this, cache -> footprintOf(cache, false))
+            .tag("layout", "entity-graph")
+            .baseUnit("bytes")
+            .description("Estimated memory the same categories would retain as managed entities")
+            .register(registry);
+    }
+
+    private static double footprintOf(final CategoryTreeCache cache, final boolean index) {
+        CategoryHierarchy current = cache.snapshot;
+        if (current == null) {
+            return 0;
+        }
+        CategoryIndex.Footprint footprint = current.index().footprint();
+        return index ? footprint.indexBytes() : footprint.entityGraphBytes();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getRebuildCount() {
+        return rebuilds.sum();
+    }
+
+    public int getFragmentCount() {
+        return fragments.size();
+    }
+
+    private CategoryHierarchy rebuild() {
+        rebuildLock.lock();
+        try {
+            CategoryHierarchy current = snapshot;
+            if (current != null) {
+                return current;
+            }
+
+            long expectedGeneration;
+            synchronized (publishLock) {
+                expectedGeneration = generation;
+            }
+            CategoryHierarchy loaded = CategoryHierarchy.of(categoryRepository.findAllNodes(), offHeap);
+            rebuilds.increment();
+            LOGGER.info("Category tree snapshot rebuilt: {}", loaded.index().footprint());
+
+            synchronized (publishLock) {
+                if (generation == expectedGeneration && snapshot == null) {
+                    snapshot = loaded;
+                }
+            }
+            return loaded;
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * Applies the committed state of a category, unless the snapshot already holds a later one.
+     *
+     * @return the new snapshot, the current one if it is up to date, or null if the category cannot be placed
+     */
+    private static CategoryHierarchy withCommitted(final CategoryHierarchy current, final CategoryNode node) {
+        if (current.contains(node.id())) {
+            if (isNotNewer(node.version(), current.versionOf(node.id()))) {
+                return current;
+            }
+        } else if (node.version() != null && node.version() > Category.INITIAL_VERSION) {
+            // Not a creation: the category was deleted by a change applied before this one.
+            return null;
+        }
+        if (node.parentId() != null && !current.contains(node.parentId())) {
+            return null;
+        }
+        return current.with(node);
+    }
+
+    /**
+     * Applies a committed state change to the categories of which the snapshot holds an older version.
+     *
+     * @return the new snapshot, the current one if it is up to date, or null if a category is missing
+     */
+    private static CategoryHierarchy withCommittedActive(final CategoryHierarchy current,
+            final List<CategoryVersion> versions, final Boolean active) {
+        long[] ids = new long[versions.size()];
+        long[] newer = new long[versions.size()];
+        int count = 0;
+        for (CategoryVersion version : versions) {
+            if (!current.contains(version.id())) {
+                return null;
+            }
+            if (!isNotNewer(version.version(), current.versionOf(version.id()))) {
+                ids[count] = version.id();
+                newer[count++] = version.version();
+            }
+        }
+        return count > 0 ? current.withActive(Arrays.copyOf(ids, count), Arrays.copyOf(newer, count), active) : current;
+    }
+
+    /**
+     * @return true if both versions are known and the first is not after the second
+     */
+    private static boolean isNotNewer(final Long version, final Long known) {
+        return version != null && known != null && version <= known;
+    }
+
+    /**
+     * @param change computes the new snapshot from the current one; the current one if nothing changed,
+     *        or null to drop it
+     * @param eviction evicts the fragments affected by the change, given the current and the new snapshot
+     */
+    private void afterCommit(final UnaryOperator<CategoryHierarchy> change,
+            final BiConsumer<CategoryHierarchy, CategoryHierarchy> eviction) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(change, eviction);
+                }
+            });
+        } else {
+            apply(change, eviction);
+        }
+    }
+
+    private void apply(final UnaryOperator<CategoryHierarchy> change,
+            final BiConsumer<CategoryHierarchy, CategoryHierarchy> eviction) {
+        synchronized (publishLock) {
+            CategoryHierarchy current = snapshot;
+            if (current != null) {
+                CategoryHierarchy next = change.apply(current);
+                if (next == null) {
+                    LOGGER.debug("Category tree snapshot dropped: a change arrived after a later one");
+                    fragments.clear();
+                } else if (next != current) {
+                    eviction.accept(current, next);
+                }
+                snapshot = next;
+            }
+            // Bumped last: a reader holding the new tag must not be able to read the old snapshot.
+            generation++;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package dev.bigdogs.backend_interview.cache;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.HibernateMetrics;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Publishes Hibernate statistics, including hit, miss and put counts for every second-level cache
+ * region and for the query cache, tagged with the region name.
+ *
+ * Spring Boot no longer binds these itself; statistics must be enabled with
+ * {@code hibernate.generate_statistics}.
+ */
+@Component
+public class SecondLevelCacheMetrics implements MeterBinder {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    public SecondLevelCacheMetrics(final EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        new HibernateMetrics(entityManagerFactory.unwrap(SessionFactory.class), "entityManagerFactory", Tags.empty())
+            .bindTo(registry);
+    }
+}
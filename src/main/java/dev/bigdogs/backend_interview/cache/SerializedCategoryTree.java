@@ -0,0 +1,37 @@
+package dev.bigdogs.backend_interview.cache;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A whole tree response, already serialized: the JSON of a {@code CategoryTreeDTO} holding the
+ * category's complete subtree and its ancestors, assembled from cached {@link TreeFragment}s.
+ */
+public final class SerializedCategoryTree {
+
+    private final TreeFragment root;
+
+    private final byte[] ancestorsField;
+
+    SerializedCategoryTree(final TreeFragment root, final byte[] ancestorsField) {
+        this.root = root;
+        this.ancestorsField = ancestorsField;
+    }
+
+    /**
+     * @return the number of categories in the tree, ancestors excluded
+     */
+    public int size() {
+        return root.size();
+    }
+
+    /**
+     * Writes the JSON straight from the cached bytes; nothing is serialized. The stream is not closed.
+     *
+     * @param out the stream to write to
+     * @throws IOException if writing fails
+     */
+    public void writeTo(final OutputStream out) throws IOException {
+        root.writeTo(out, ancestorsField);
+    }
+}
@@ -0,0 +1,101 @@
+package dev.bigdogs.backend_interview.cache;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+
+/**
+ * The JSON of one category's subtree, as served by the tree endpoint, held as UTF-8 bytes.
+ *
+ * A fragment only stores the fields of its own category and references the fragments of its
+ * children, so a subtree is never copied: rebuilding a category reuses the fragments of all of its
+ * unchanged children.
+ */
+final class TreeFragment {
+
+    private static final byte[] NO_SUBCATEGORIES = "null}".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CLOSE = "]}".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * The object's opening brace and fields, up to and including the {@code "subcategories":} name.
+     */
+    private final byte[] head;
+
+    private final TreeFragment[] children;
+
+    private final int size;
+
+    TreeFragment(final byte[] head, final TreeFragment[] children) {
+        this.head = head;
+        this.children = children;
+        int total = 1;
+        for (TreeFragment child : children) {
+            total += child.size;
+        }
+        this.size = total;
+    }
+
+    /**
+     * @return the number of categories in the subtree
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Writes the subtree, walking it with an explicit stack so that deep trees cannot overflow the
+     * thread's stack.
+     *
+     * @param out the stream to write to
+     * @param rootFields extra fields written at the end of the top-level object, starting with a comma; may be empty
+     */
+    void writeTo(final OutputStream out, final byte[] rootFields) throws IOException {
+        out.write(head);
+        if (children.length == 0) {
+            out.write(NO_SUBCATEGORIES, 0, NO_SUBCATEGORIES.length - 1);
+            out.write(rootFields);
+            out.write('}');
+            return;
+        }
+
+        ArrayDeque<Cursor> open = new ArrayDeque<>();
+        open.push(new Cursor(this));
+        out.write('[');
+        while (!open.isEmpty()) {
+            Cursor top = open.peek();
+            if (top.next < top.fragment.children.length) {
+                if (top.next > 0) {
+                    out.write(',');
+                }
+                TreeFragment child = top.fragment.children[top.next++];
+                out.write(child.head);
+                if (child.children.length == 0) {
+                    out.write(NO_SUBCATEGORIES);
+                } else {
+                    out.write('[');
+                    open.push(new Cursor(child));
+                }
+            } else {
+                open.pop();
+                if (open.isEmpty()) {
+                    out.write(']');
+                    out.write(rootFields);
+                    out.write('}');
+                } else {
+                    out.write(CLOSE);
+                }
+            }
+        }
+    }
+
+    private static final class Cursor {
+
+        private final TreeFragment fragment;
+        private int next;
+
+        private Cursor(final TreeFragment fragment) {
+            this.fragment = fragment;
+        }
+    }
+}
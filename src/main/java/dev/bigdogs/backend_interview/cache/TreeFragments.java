@@ -0,0 +1,196 @@
+package dev.bigdogs.backend_interview.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+
+import dev.bigdogs.backend_interview.model.CategoryNode;
+import dev.bigdogs.backend_interview.tree.CategoryHierarchy;
+import dev.bigdogs.backend_interview.tree.CategoryIndex;
+import dev.bigdogs.backend_interview.tree.CategoryTraversal;
+
+/**
+ * Serialized subtrees of the categories of one snapshot, keyed by category ID.
+ *
+ * The bytes are exactly what Jackson writes for a {@code CategoryTreeDTO} that lists every child,
+ * and a {@code CategoryDTO} for the ancestors: the fields are written in declaration order, and a
+ * category without children has null subcategories.
+ *
+ * A fragment embeds the effective state of its category, so it depends on the category, its
+ * descendants and the 'active' flags of its ancestors. The owner evicts the fragments affected by
+ * each change; everything else is reused as is.
+ */
+final class TreeFragments {
+
+    private static final JsonStringEncoder ENCODER = JsonStringEncoder.getInstance();
+
+    private final Map<Long, TreeFragment> fragments = new ConcurrentHashMap<>();
+
+    int size() {
+        return fragments.size();
+    }
+
+    /**
+     * Returns the fragment of a category, building the missing fragments of its subtree bottom-up.
+     * Newly built fragments are not stored; they are added to {@code built} so that the caller can
+     * store them if the hierarchy is still current.
+     *
+     * @param hierarchy the hierarchy holding the category
+     * @param id the ID of the category, which must be part of the hierarchy
+     * @param parentActive whether the category's parent and all of its ancestors are active
+     * @param built receives the newly built fragments by category ID
+     * @return the fragment of the category's subtree
+     */
+    TreeFragment getOrBuild(final CategoryHierarchy hierarchy, final Long id, final boolean parentActive,
+            final Map<Long, TreeFragment> built) {
+        CategoryIndex index = hierarchy.index();
+        Builder builder = new Builder(index, parentActive, built);
+        CategoryTraversal.depthFirst(index, index.slotOf(id), CategoryTraversal.UNLIMITED, builder);
+        return builder.root;
+    }
+
+    void putAll(final Map<Long, TreeFragment> built) {
+        fragments.putAll(built);
+    }
+
+    /**
+     * Evicts the fragments of a category and of all of its ancestors, which embed it.
+     */
+    void evictPath(final CategoryHierarchy hierarchy, final Long id) {
+        fragments.remove(id);
+        for (CategoryNode ancestor : hierarchy.ancestors(id)) {
+            fragments.remove(ancestor.id());
+        }
+    }
+
+    /**
+     * Evicts the fragments of a category's descendants.
+     */
+    void evictDescendants(final CategoryHierarchy hierarchy, final Long id) {
+        CategoryIndex index = hierarchy.index();
+        int slot = index.slotOf(id);
+        if (slot == CategoryIndex.NONE) {
+            return;
+        }
+        CategoryTraversal.depthFirst(index, slot, CategoryTraversal.UNLIMITED, (descendant, depth) -> {
+            if (depth > 0) {
+                fragments.remove(index.idAt(descendant));
+            }
+            return true;
+        });
+    }
+
+    void clear() {
+        fragments.clear();
+    }
+
+    /**
+     * @param ancestors the ancestor chain of a tree's top-level category
+     * @return the ancestors field of the top-level object, starting with a comma
+     */
+    static byte[] ancestorsField(final List<CategoryNode> ancestors) {
+        StringBuilder json = new StringBuilder(",\"ancestors\":[");
+        for (int i = 0; i < ancestors.size(); i++) {
+            CategoryNode ancestor = ancestors.get(i);
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":").append(ancestor.id());
+            json.append(",\"name\":");
+            appendString(json, ancestor.name());
+            json.append(",\"active\":").append(ancestor.active());
+            json.append(",\"parentId\":").append(ancestor.parentId());
+            json.append('}');
+        }
+        return json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] head(final CategoryNode node, final boolean effectiveActive) {
+        StringBuilder json = new StringBuilder(96);
+        json.append("{\"id\":").append(node.id());
+        json.append(",\"name\":");
+        appendString(json, node.name());
+        json.append(",\"active\":").append(node.active());
+        json.append(",\"effectiveActive\":").append(effectiveActive);
+        json.append(",\"parentId\":").append(node.parentId());
+        json.append(",\"subcategories\":");
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void appendString(final StringBuilder json, final String value) {
+        if (value == null) {
+            json.append("null");
+        } else {
+            json.append('"').append(ENCODER.quoteAsString(value)).append('"');
+        }
+    }
+
+    /**
+     * Builds fragments in postorder, reusing the stored fragment of any category that has one
+     * instead of walking its subtree.
+     */
+    private final class Builder implements CategoryTraversal.Visitor {
+
+        private final CategoryIndex index;
+        private final boolean parentActive;
+        private final Map<Long, TreeFragment> built;
+        private final List<Level> levels = new ArrayList<>();
+
+        private TreeFragment root;
+
+        private Builder(final CategoryIndex index, final boolean parentActive, final Map<Long, TreeFragment> built) {
+            this.index = index;
+            this.parentActive = parentActive;
+            this.built = built;
+        }
+
+        @Override
+        public boolean enter(final int slot, final int depth) {
+            TreeFragment cached = fragments.get(index.idAt(slot));
+            if (cached != null) {
+                attach(depth, cached);
+                return false;
+            }
+            CategoryNode node = index.nodeAt(slot);
+            boolean active = depth > 0 ? levels.get(depth - 1).effectiveActive : parentActive;
+            if (levels.size() == depth) {
+                levels.add(new Level());
+            }
+            Level level = levels.get(depth);
+            level.node = node;
+            level.effectiveActive = active && !Boolean.FALSE.equals(node.active());
+            level.children = new TreeFragment[index.childCount(slot)];
+            level.next = 0;
+            return true;
+        }
+
+        @Override
+        public void leave(final int slot, final int depth) {
+            Level level = levels.get(depth);
+            TreeFragment fragment = new TreeFragment(head(level.node, level.effectiveActive), level.children);
+            built.put(level.node.id(), fragment);
+            attach(depth, fragment);
+        }
+
+        private void attach(final int depth, final TreeFragment fragment) {
+            if (depth == 0) {
+                root = fragment;
+            } else {
+                Level parent = levels.get(depth - 1);
+                parent.children[parent.next++] = fragment;
+            }
+        }
+    }
+
+    private static final class Level {
+
+        private CategoryNode node;
+        private boolean effectiveActive;
+        private TreeFragment[] children;
+        private int next;
+    }
+}
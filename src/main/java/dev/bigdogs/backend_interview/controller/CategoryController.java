@@ -1,6 +1,17 @@
 package dev.bigdogs.backend_interview.controller;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.MimeTypeUtils;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -8,21 +19,42 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import dev.bigdogs.backend_interview.cache.SerializedCategoryTree;
 import dev.bigdogs.backend_interview.dto.CategoryDTO;
-import dev.bigdogs.backend_interview.dto.CategoryTreeDTO;
 import dev.bigdogs.backend_interview.dto.CreateCategoryDTO;
+import dev.bigdogs.backend_interview.dto.DeleteResultDTO;
+import dev.bigdogs.backend_interview.dto.ImportResultDTO;
+import dev.bigdogs.backend_interview.dto.MoveCategoryDTO;
 import dev.bigdogs.backend_interview.dto.UpdateCategoryDTO;
+import dev.bigdogs.backend_interview.exception.InvalidCategoryOperationException;
+import dev.bigdogs.backend_interview.service.CategoryExportService;
+import dev.bigdogs.backend_interview.service.CategoryImportService;
 import dev.bigdogs.backend_interview.service.CategoryService;
 
 @RestController
 @RequestMapping("/categories")
 public class CategoryController {
 
+    private static final String FLAT_FORMAT = "flat";
+
+    private static final List<MediaType> BINARY_TYPES =
+        List.of(MediaType.APPLICATION_CBOR, WireFormatConfiguration.APPLICATION_SMILE);
+
     @Autowired
     private CategoryService categoryService;
 
+    @Autowired
+    private CategoryImportService categoryImportService;
+
+    @Autowired
+    private CategoryExportService categoryExportService;
+
     @PostMapping("/root")
     public CategoryDTO createRootCategory(@RequestBody CreateCategoryDTO createCategoryDTO) {
         return categoryService.createRootCategory(createCategoryDTO);
@@ -33,18 +65,121 @@ public class CategoryController {
         return categoryService.createSubcategory(createCategoryDTO);
     }
 
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ImportResultDTO importJson(InputStream body, @RequestParam(required = false) Long parentId) throws IOException {
+        return categoryImportService.importJson(body, parentId);
+    }
+
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ImportResultDTO importNdjson(InputStream body, @RequestParam(required = false) Long parentId) throws IOException {
+        return categoryImportService.importNdjson(body, parentId);
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportNdjson() {
+        StreamingResponseBody body = categoryExportService::exportNdjson;
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    @GetMapping("/visible-ids")
+    public long[] getEffectivelyActiveIds() {
+        return categoryService.getEffectivelyActiveIds();
+    }
+
+    /**
+     * The entity tag is taken before the tree is loaded, so a matching If-None-Match is answered with
+     * 304 without touching the hierarchy or serializing anything. Each wire format and each of the
+     * nested and flat ({@code format=flat}) layouts gets its own tag. A whole nested subtree requested
+     * as JSON is written from its pre-serialized fragments when the service has them.
+     */
     @GetMapping("/{id}/tree")
-    public CategoryTreeDTO getAncestorsAndDescendants(@PathVariable Long id) {
-        return categoryService.getAncestorsAndDescendants(id);
+    public ResponseEntity<?> getAncestorsAndDescendants(@PathVariable Long id,
+            @RequestParam(required = false) Integer maxDepth,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            WebRequest webRequest) {
+        boolean flat = format != null;
+        if (flat && !FLAT_FORMAT.equals(format)) {
+            throw new InvalidCategoryOperationException("Unknown tree format: " + format);
+        }
+        if (flat && (limit != null || cursor != null)) {
+            throw new InvalidCategoryOperationException("limit and cursor are not supported by the flat format.");
+        }
+        MediaType binaryType = requestedBinaryType(accept);
+        String eTag = categoryService.getTreeETag();
+        String variant = (flat ? "+" + FLAT_FORMAT : "") + (binaryType != null ? "+" + binaryType.getSubtype() : "");
+        if (!variant.isEmpty()) {
+            eTag = eTag.substring(0, eTag.length() - 1) + variant + "\"";
+        }
+        if (webRequest.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).varyBy(HttpHeaders.ACCEPT).build();
+        }
+        if (flat) {
+            return ResponseEntity.ok()
+                .eTag(eTag)
+                .varyBy(HttpHeaders.ACCEPT)
+                .cacheControl(CacheControl.noCache())
+                .body(categoryService.getFlatSubtree(id, maxDepth));
+        }
+        if (binaryType == null && maxDepth == null && limit == null && cursor == null) {
+            SerializedCategoryTree tree = categoryService.getSerializedTree(id);
+            if (tree != null) {
+                return ResponseEntity.ok()
+                    .eTag(eTag)
+                    .varyBy(HttpHeaders.ACCEPT)
+                    .cacheControl(CacheControl.noCache())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(tree);
+            }
+        }
+        return ResponseEntity.ok()
+            .eTag(eTag)
+            .varyBy(HttpHeaders.ACCEPT)
+            .cacheControl(CacheControl.noCache())
+            .body(categoryService.getAncestorsAndDescendants(id, maxDepth, limit, cursor));
     }
 
     @PutMapping("/{id}/active")
-    public CategoryDTO updateActiveState(@PathVariable Long id, @RequestBody UpdateCategoryDTO updateCategoryDTO) {
-        return categoryService.updateActiveState(id, updateCategoryDTO);
+    public CategoryDTO updateActiveState(@PathVariable Long id, @RequestBody UpdateCategoryDTO updateCategoryDTO,
+            @RequestParam(defaultValue = "false") boolean cascade) {
+        return cascade
+            ? categoryService.updateSubtreeActiveState(id, updateCategoryDTO)
+            : categoryService.updateActiveState(id, updateCategoryDTO);
+    }
+
+    @PutMapping("/{id}/parent")
+    public CategoryDTO moveCategory(@PathVariable Long id, @RequestBody MoveCategoryDTO moveCategoryDTO) {
+        return categoryService.moveCategory(id, moveCategoryDTO);
     }
 
     @DeleteMapping("/{id}")
-    public void deleteCategory(@PathVariable Long id) {
-        categoryService.deleteCategory(id);
+    public DeleteResultDTO deleteCategory(@PathVariable Long id) {
+        return new DeleteResultDTO(categoryService.deleteCategory(id));
+    }
+
+    /**
+     * @return the binary format the client prefers over JSON, or null if it prefers JSON or names neither
+     */
+    private static MediaType requestedBinaryType(String accept) {
+        List<MediaType> accepted;
+        try {
+            accepted = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return null;
+        }
+        MimeTypeUtils.sortBySpecificity(accepted);
+        for (MediaType type : accepted) {
+            if (type.equalsTypeAndSubtype(MediaType.APPLICATION_JSON)) {
+                return null;
+            }
+            for (MediaType binaryType : BINARY_TYPES) {
+                if (type.equalsTypeAndSubtype(binaryType)) {
+                    return binaryType;
+                }
+            }
+        }
+        return null;
     }
 }
\ No newline at end of file
@@ -0,0 +1,27 @@
+package dev.bigdogs.backend_interview.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import dev.bigdogs.backend_interview.dto.CategoryTreeDTO;
+import dev.bigdogs.backend_interview.service.ReactiveCategoryService;
+import reactor.core.publisher.Mono;
+
+/**
+ * Read-only counterpart of {@link CategoryController} backed by R2DBC. Writes go through /categories.
+ */
+@RestController
+@RequestMapping("/reactive/categories")
+public class ReactiveCategoryController {
+
+    @Autowired
+    private ReactiveCategoryService reactiveCategoryService;
+
+    @GetMapping("/{id}/tree")
+    public Mono<CategoryTreeDTO> getAncestorsAndDescendants(@PathVariable Long id) {
+        return reactiveCategoryService.getAncestorsAndDescendants(id);
+    }
+}
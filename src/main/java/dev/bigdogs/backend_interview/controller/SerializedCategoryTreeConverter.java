@@ -0,0 +1,45 @@
+package dev.bigdogs.backend_interview.controller;
+
+import java.io.IOException;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+
+import dev.bigdogs.backend_interview.cache.SerializedCategoryTree;
+
+/**
+ * Writes a {@link SerializedCategoryTree} by copying its cached bytes to the response body.
+ * Registered ahead of the default converters by Spring Boot.
+ */
+@Component
+public class SerializedCategoryTreeConverter extends AbstractHttpMessageConverter<SerializedCategoryTree> {
+
+    public SerializedCategoryTreeConverter() {
+        super(MediaType.APPLICATION_JSON);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return SerializedCategoryTree.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected SerializedCategoryTree readInternal(Class<? extends SerializedCategoryTree> clazz,
+            HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Serialized trees are write-only", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(SerializedCategoryTree tree, HttpOutputMessage outputMessage) throws IOException {
+        tree.writeTo(outputMessage.getBody());
+    }
+}
@@ -0,0 +1,47 @@
+package dev.bigdogs.backend_interview.controller;
+
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import com.fasterxml.jackson.core.StreamWriteConstraints;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * Binary alternatives to JSON for every endpoint, selected through the Accept and Content-Type
+ * headers: CBOR ({@code application/cbor}) and Smile ({@code application/x-jackson-smile}).
+ *
+ * Both keep the JSON document model, so clients get the same DTOs with much smaller payloads.
+ * The mappers are built from Spring Boot's builder so that they share the JSON mapper's settings.
+ *
+ * Every mapper built that way writes without a nesting limit. A tree response nests two levels per
+ * category and the hierarchy has no depth limit, so Jackson's default of 1000 would fail any chain
+ * about 500 categories deep. Trees are written by {@code CategoryTreeSerializer} without recursing,
+ * so the depth costs heap, not stack. The read limit stays at its default: no request body nests.
+ */
+@Configuration
+public class WireFormatConfiguration {
+
+    public static final MediaType APPLICATION_SMILE = new MediaType("application", "x-jackson-smile");
+
+    @Bean
+    public Jackson2ObjectMapperBuilderCustomizer unlimitedWriteNesting() {
+        StreamWriteConstraints constraints = StreamWriteConstraints.builder().maxNestingDepth(Integer.MAX_VALUE).build();
+        return builder -> builder.postConfigurer(mapper -> mapper.getFactory().setStreamWriteConstraints(constraints));
+    }
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+}
@@ -2,13 +2,46 @@ package dev.bigdogs.backend_interview.dto;
 
 import java.util.List;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+/**
+ * Written by {@link CategoryTreeSerializer}, which does not recurse into the subcategories.
+ */
+@JsonSerialize(using = CategoryTreeSerializer.class)
 public class CategoryTreeDTO {
     private Long id;
     private String name;
     private Boolean active;
+
+    /**
+     * False when the category or any of its ancestors is inactive.
+     */
+    private Boolean effectiveActive;
+
     private Long parentId;
     private List<CategoryTreeDTO> subcategories;
 
+    /**
+     * Root-to-parent path of the requested category. Only set on the top-level node of a tree response.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<CategoryDTO> ancestors;
+
+    /**
+     * Total number of children. Only set when {@code subcategories} does not list all of them,
+     * because the depth limit was reached or the children were paginated.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer childCount;
+
+    /**
+     * Continuation token for the children that were not listed, to be passed back as {@code cursor}
+     * to the tree of this category. Null once the last child has been listed.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String nextCursor;
+
     public Long getId() {
         return id;
     }
@@ -33,6 +66,14 @@ public class CategoryTreeDTO {
         this.active = active;
     }
 
+	public Boolean getEffectiveActive() {
+        return effectiveActive;
+    }
+
+    public void setEffectiveActive(Boolean effectiveActive) {
+        this.effectiveActive = effectiveActive;
+    }
+
 	public Long getParentId() {
         return parentId;
     }
@@ -48,4 +89,28 @@ public class CategoryTreeDTO {
     public void setSubcategories(List<CategoryTreeDTO> subcategories) {
         this.subcategories = subcategories;
     }
-}
\ No newline at end of file
+
+	public List<CategoryDTO> getAncestors() {
+        return ancestors;
+    }
+
+    public void setAncestors(List<CategoryDTO> ancestors) {
+        this.ancestors = ancestors;
+    }
+
+	public Integer getChildCount() {
+        return childCount;
+    }
+
+    public void setChildCount(Integer childCount) {
+        this.childCount = childCount;
+    }
+
+	public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
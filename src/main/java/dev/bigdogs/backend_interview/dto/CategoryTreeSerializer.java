@@ -0,0 +1,116 @@
+package dev.bigdogs.backend_interview.dto;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+/**
+ * Writes a {@link CategoryTreeDTO} and its subcategories with an explicit stack instead of recursing
+ * once per level, so that a chain of any depth is written without exhausting the thread stack.
+ *
+ * The output is exactly what the default bean serializer writes: the fields in declaration order,
+ * null subcategories for a category without children, and the optional fields left out when null.
+ * It works with every Jackson format, which is what the JSON, CBOR and Smile converters share.
+ */
+public class CategoryTreeSerializer extends StdSerializer<CategoryTreeDTO> {
+
+    public CategoryTreeSerializer() {
+        super(CategoryTreeDTO.class);
+    }
+
+    @Override
+    public void serialize(CategoryTreeDTO tree, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        Deque<Frame> open = new ArrayDeque<>();
+        if (writeHead(tree, gen)) {
+            open.push(new Frame(tree));
+        } else {
+            writeTail(tree, gen, provider);
+        }
+        while (!open.isEmpty()) {
+            Frame frame = open.peek();
+            if (frame.children.hasNext()) {
+                CategoryTreeDTO child = frame.children.next();
+                if (child == null) {
+                    gen.writeNull();
+                } else if (writeHead(child, gen)) {
+                    open.push(new Frame(child));
+                } else {
+                    writeTail(child, gen, provider);
+                }
+            } else {
+                open.pop();
+                gen.writeEndArray();
+                writeTail(frame.tree, gen, provider);
+            }
+        }
+    }
+
+    /**
+     * Opens the object of a category and writes its fields up to its subcategories.
+     *
+     * @return true if the subcategory array was opened and the children must be written next
+     */
+    private static boolean writeHead(CategoryTreeDTO tree, JsonGenerator gen) throws IOException {
+        gen.writeStartObject(tree);
+        writeNumberField(gen, "id", tree.getId());
+        gen.writeStringField("name", tree.getName());
+        writeBooleanField(gen, "active", tree.getActive());
+        writeBooleanField(gen, "effectiveActive", tree.getEffectiveActive());
+        writeNumberField(gen, "parentId", tree.getParentId());
+        if (tree.getSubcategories() == null) {
+            gen.writeNullField("subcategories");
+            return false;
+        }
+        gen.writeArrayFieldStart("subcategories");
+        return true;
+    }
+
+    /**
+     * Writes the fields that follow the subcategories and closes the object of a category.
+     */
+    private static void writeTail(CategoryTreeDTO tree, JsonGenerator gen, SerializerProvider provider)
+            throws IOException {
+        if (tree.getAncestors() != null) {
+            provider.defaultSerializeField("ancestors", tree.getAncestors(), gen);
+        }
+        if (tree.getChildCount() != null) {
+            gen.writeNumberField("childCount", tree.getChildCount());
+        }
+        if (tree.getNextCursor() != null) {
+            gen.writeStringField("nextCursor", tree.getNextCursor());
+        }
+        gen.writeEndObject();
+    }
+
+    private static void writeNumberField(JsonGenerator gen, String name, Long value) throws IOException {
+        if (value != null) {
+            gen.writeNumberField(name, value);
+        } else {
+            gen.writeNullField(name);
+        }
+    }
+
+    private static void writeBooleanField(JsonGenerator gen, String name, Boolean value) throws IOException {
+        if (value != null) {
+            gen.writeBooleanField(name, value);
+        } else {
+            gen.writeNullField(name);
+        }
+    }
+
+    private static final class Frame {
+
+        private final CategoryTreeDTO tree;
+        private final Iterator<CategoryTreeDTO> children;
+
+        private Frame(CategoryTreeDTO tree) {
+            this.tree = tree;
+            this.children = tree.getSubcategories().iterator();
+        }
+    }
+}
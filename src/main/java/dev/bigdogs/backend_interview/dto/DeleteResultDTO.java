@@ -0,0 +1,20 @@
+package dev.bigdogs.backend_interview.dto;
+
+public class DeleteResultDTO {
+    private int deleted;
+
+    public DeleteResultDTO() {
+    }
+
+    public DeleteResultDTO(int deleted) {
+        this.deleted = deleted;
+    }
+
+    public int getDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(int deleted) {
+        this.deleted = deleted;
+    }
+}
@@ -0,0 +1,53 @@
+package dev.bigdogs.backend_interview.dto;
+
+/**
+ * A category as one flat row of a hierarchy listed in depth-first order.
+ * Depth is relative to the first row of the listing.
+ */
+public class FlatCategoryDTO {
+    private Long id;
+    private Long parentId;
+    private String name;
+    private Boolean active;
+    private Integer depth;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getParentId() {
+        return parentId;
+    }
+
+    public void setParentId(Long parentId) {
+        this.parentId = parentId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Boolean getActive() {
+        return active;
+    }
+
+    public void setActive(Boolean active) {
+        this.active = active;
+    }
+
+    public Integer getDepth() {
+        return depth;
+    }
+
+    public void setDepth(Integer depth) {
+        this.depth = depth;
+    }
+}
@@ -0,0 +1,58 @@
+package dev.bigdogs.backend_interview.dto;
+
+import java.util.List;
+
+/**
+ * One category of a bulk import.
+ *
+ * JSON imports nest categories through {@code subcategories}. NDJSON imports send one flat row per line
+ * and link rows through {@code id} and {@code parentId}. These are keys local to the import, and a
+ * parent row must come before its children.
+ */
+public class ImportCategoryDTO {
+    private Long id;
+    private Long parentId;
+    private String name;
+    private Boolean active;
+    private List<ImportCategoryDTO> subcategories;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getParentId() {
+        return parentId;
+    }
+
+    public void setParentId(Long parentId) {
+        this.parentId = parentId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Boolean getActive() {
+        return active;
+    }
+
+    public void setActive(Boolean active) {
+        this.active = active;
+    }
+
+    public List<ImportCategoryDTO> getSubcategories() {
+        return subcategories;
+    }
+
+    public void setSubcategories(List<ImportCategoryDTO> subcategories) {
+        this.subcategories = subcategories;
+    }
+}
@@ -0,0 +1,20 @@
+package dev.bigdogs.backend_interview.dto;
+
+public class ImportResultDTO {
+    private int imported;
+
+    public ImportResultDTO() {
+    }
+
+    public ImportResultDTO(int imported) {
+        this.imported = imported;
+    }
+
+    public int getImported() {
+        return imported;
+    }
+
+    public void setImported(int imported) {
+        this.imported = imported;
+    }
+}
@@ -0,0 +1,13 @@
+package dev.bigdogs.backend_interview.dto;
+
+public class MoveCategoryDTO {
+    private Long parentId;
+
+    public Long getParentId() {
+        return parentId;
+    }
+
+    public void setParentId(Long parentId) {
+        this.parentId = parentId;
+    }
+}
@@ -0,0 +1,40 @@
+package dev.bigdogs.backend_interview.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread between {@link #start()}
+ * and {@link #stop()}. Statements issued outside of Hibernate, such as through JdbcTemplate, are not seen,
+ * and neither are statements prepared on any other thread, even on behalf of the same request.
+ */
+public class JdbcStatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<int[]> CURRENT = new ThreadLocal<>();
+
+    /**
+     * Starts counting on the current thread.
+     */
+    public void start() {
+        CURRENT.set(new int[1]);
+    }
+
+    /**
+     * Stops counting on the current thread.
+     *
+     * @return the number of statements prepared since {@link #start()}
+     */
+    public int stop() {
+        int[] count = CURRENT.get();
+        CURRENT.remove();
+        return count != null ? count[0] : 0;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        int[] count = CURRENT.get();
+        if (count != null) {
+            count[0]++;
+        }
+        return sql;
+    }
+}
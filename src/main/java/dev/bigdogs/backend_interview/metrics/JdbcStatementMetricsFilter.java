@@ -0,0 +1,55 @@
+package dev.bigdogs.backend_interview.metrics;
+
+import java.io.IOException;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Records how many SQL statements each request executed, as the {@code category.request.jdbc.statements}
+ * histogram tagged with the HTTP method and the matched URI pattern. A jump in this count for a route
+ * is the signature of an N+1 regression.
+ *
+ * Only requests handled entirely on the servlet thread are recorded. A request that goes async, such
+ * as the streamed export or a reactive read, runs its statements on other threads that the counter
+ * does not follow, so its count would be partial; it is left out rather than under-reported. The
+ * tree assembly fork-join pool only works on in-memory snapshots and issues no statements.
+ */
+public class JdbcStatementMetricsFilter extends OncePerRequestFilter {
+
+    private final JdbcStatementCounter counter;
+    private final MeterRegistry meterRegistry;
+
+    public JdbcStatementMetricsFilter(final JdbcStatementCounter counter, final MeterRegistry meterRegistry) {
+        this.counter = counter;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        counter.start();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            int statements = counter.stop();
+            if (!request.isAsyncStarted()) {
+                Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+                DistributionSummary.builder("category.request.jdbc.statements")
+                    .description("SQL statements executed per request")
+                    .tag("method", request.getMethod())
+                    .tag("uri", pattern != null ? pattern.toString() : "UNKNOWN")
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(statements);
+            }
+        }
+    }
+}
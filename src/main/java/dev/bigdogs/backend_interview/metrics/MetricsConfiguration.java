@@ -0,0 +1,36 @@
+package dev.bigdogs.backend_interview.metrics;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Wires the per-request SQL statement count: Hibernate reports every statement it prepares to the
+ * counter, and a servlet filter records the total of each request.
+ *
+ * Service timings come from {@code @Timed} on the services, enabled by
+ * {@code management.observations.annotations.enabled}.
+ */
+@Configuration
+public class MetricsConfiguration {
+
+    @Bean
+    public JdbcStatementCounter jdbcStatementCounter() {
+        return new JdbcStatementCounter();
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer jdbcStatementCounterCustomizer(final JdbcStatementCounter counter) {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, counter);
+    }
+
+    @Bean
+    public FilterRegistrationBean<JdbcStatementMetricsFilter> jdbcStatementMetricsFilter(final JdbcStatementCounter counter,
+            final MeterRegistry meterRegistry) {
+        return new FilterRegistrationBean<>(new JdbcStatementMetricsFilter(counter, meterRegistry));
+    }
+}
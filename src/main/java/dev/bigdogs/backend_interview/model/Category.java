@@ -3,9 +3,13 @@ package dev.bigdogs.backend_interview.model;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import com.fasterxml.jackson.annotation.JsonBackReference;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
@@ -13,23 +17,52 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import jakarta.persistence.Version;
 
 /**
  * Represents a category in a hierarchical catalog.
  * 
  * Root categories have no parent.
  * Subcategories have a parent and can themselves have sub-subcategories.
+ *
+ * Categories and their subcategory collections are kept in the second-level cache
+ * (regions {@code category} and {@code category-subcategories}, see application.conf).
  */
 @Entity
-@Table(name = "categories")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "category")
+@Table(name = "categories", indexes = {
+    @Index(name = "idx_categories_path", columnList = "path")
+}, uniqueConstraints = {
+    @UniqueConstraint(name = Category.SIBLING_NAME_CONSTRAINT, columnNames = {"parent_id", "name"})
+})
 public class Category {
 
+    /**
+     * Unique constraint on (parent_id, name). It rejects duplicate subcategory names; root categories
+     * have a null parent_id, which the constraint does not compare, so their names are checked by the service.
+     */
+    public static final String SIBLING_NAME_CONSTRAINT = "uk_categories_parent_name";
+
+    /**
+     * Version of a category that was just inserted.
+     */
+    public static final long INITIAL_VERSION = 0L;
+
+    /**
+     * Drawn from a pooled sequence rather than an identity column, so Hibernate knows the ID
+     * before inserting and can batch inserts. One sequence call covers 50 new categories.
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "category_seq")
+    @SequenceGenerator(name = "category_seq", sequenceName = "category_seq", allocationSize = 50)
     private Long id;
 
     /**
@@ -45,6 +78,24 @@ public class Category {
     @Column
     private Boolean active;
 
+    /**
+     * Materialized path from the root down to this category, for example {@code /1/17/342/}.
+     * See {@link CategoryPath}. Set right after the ID is assigned, so a new category costs one
+     * extra UPDATE, batched at flush.
+     *
+     * Mapped without a length, so that the depth of the hierarchy is not capped by the column: H2
+     * then accepts up to 1,000,000,000 characters and still indexes the column.
+     */
+    @Column(columnDefinition = "character varying")
+    private String path;
+
+    /**
+     * Optimistic lock version. Concurrent updates of the same category fail instead of silently
+     * overwriting each other; bulk statements on categories increment it as well.
+     */
+    @Version
+    private Long version;
+
     /**
      * Parent category. Null if this is a root category.
      */
@@ -58,6 +109,7 @@ public class Category {
      * The mappedBy attribute points to the 'parent' field in this same entity.
      */
     @OneToMany(mappedBy = "parent", cascade = {CascadeType.ALL}, orphanRemoval = true, fetch = FetchType.LAZY)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "category-subcategories")
     @JsonManagedReference
     private List<Category> subcategories = new ArrayList<>();
 
@@ -75,6 +127,14 @@ public class Category {
         return active;
     }
 
+    public String getPath() {
+        return path;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
     public Category getParent() {
         return parent;
     }
@@ -95,6 +155,10 @@ public class Category {
         this.active = active;
     }
 
+    public void setPath(String path) {
+        this.path = path;
+    }
+
     public void setParent(Category parent) {
         this.parent = parent;
     }
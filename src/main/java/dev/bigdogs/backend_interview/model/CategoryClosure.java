@@ -0,0 +1,60 @@
+package dev.bigdogs.backend_interview.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+/**
+ * One row of the category closure table.
+ *
+ * Every category has a row pointing to itself (depth 0) plus one row per ancestor,
+ * where depth is the number of edges between the ancestor and the descendant.
+ * This lets a whole subtree or a whole ancestor chain be loaded with a single indexed query.
+ */
+@Entity
+@Table(name = "category_closure", indexes = {
+    @Index(name = "idx_category_closure_descendant", columnList = "descendant_id, depth")
+})
+@IdClass(CategoryClosureId.class)
+public class CategoryClosure {
+
+    @Id
+    @Column(name = "ancestor_id")
+    private Long ancestorId;
+
+    @Id
+    @Column(name = "descendant_id")
+    private Long descendantId;
+
+    @Column(nullable = false)
+    private Integer depth;
+
+    // Getters and setters
+
+    public Long getAncestorId() {
+        return ancestorId;
+    }
+
+    public Long getDescendantId() {
+        return descendantId;
+    }
+
+    public Integer getDepth() {
+        return depth;
+    }
+
+    public void setAncestorId(Long ancestorId) {
+        this.ancestorId = ancestorId;
+    }
+
+    public void setDescendantId(Long descendantId) {
+        this.descendantId = descendantId;
+    }
+
+    public void setDepth(Integer depth) {
+        this.depth = depth;
+    }
+}
@@ -0,0 +1,46 @@
+package dev.bigdogs.backend_interview.model;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Composite primary key of {@link CategoryClosure}.
+ */
+public class CategoryClosureId implements Serializable {
+
+    private Long ancestorId;
+    private Long descendantId;
+
+    public CategoryClosureId() {
+    }
+
+    public CategoryClosureId(Long ancestorId, Long descendantId) {
+        this.ancestorId = ancestorId;
+        this.descendantId = descendantId;
+    }
+
+    public Long getAncestorId() {
+        return ancestorId;
+    }
+
+    public Long getDescendantId() {
+        return descendantId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CategoryClosureId)) {
+            return false;
+        }
+        CategoryClosureId other = (CategoryClosureId) o;
+        return Objects.equals(ancestorId, other.ancestorId) && Objects.equals(descendantId, other.descendantId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(ancestorId, descendantId);
+    }
+}
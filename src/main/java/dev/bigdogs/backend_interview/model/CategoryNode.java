@@ -0,0 +1,38 @@
+package dev.bigdogs.backend_interview.model;
+
+/**
+ * Immutable, detached view of a single category row.
+ *
+ * Unlike {@link Category}, a node is not managed by the persistence context and references
+ * its parent by ID only, so it can be shared freely between threads and kept in memory.
+ *
+ * @param id the category ID
+ * @param parentId the parent category ID, null for root categories
+ * @param name the category name
+ * @param active the active flag, null for root categories
+ * @param version the optimistic lock version of the row this node was read from, or null if unknown
+ */
+public record CategoryNode(Long id, Long parentId, String name, Boolean active, Long version) {
+
+    /**
+     * Creates a node without a known version.
+     */
+    public CategoryNode(Long id, Long parentId, String name, Boolean active) {
+        this(id, parentId, name, active, null);
+    }
+
+    /**
+     * Creates a node from a Category entity without initializing its parent proxy.
+     *
+     * @param category the Category entity
+     * @return the node
+     */
+    public static CategoryNode of(Category category) {
+        return new CategoryNode(
+            category.getId(),
+            category.getParent() != null ? category.getParent().getId() : null,
+            category.getName(),
+            category.getActive(),
+            category.getVersion());
+    }
+}
@@ -0,0 +1,56 @@
+package dev.bigdogs.backend_interview.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds and parses materialized category paths.
+ *
+ * A path lists the IDs from the root down to the category itself, each one followed by a slash,
+ * for example {@code /1/17/342/}. The path of a category is therefore a prefix of the paths of all
+ * its descendants, and only of theirs, so a whole subtree is a single range of an index on the path.
+ */
+public final class CategoryPath {
+
+    public static final char SEPARATOR = '/';
+
+    private CategoryPath() {
+    }
+
+    /**
+     * @param id the ID of a root category
+     * @return its path
+     */
+    public static String root(long id) {
+        return SEPARATOR + Long.toString(id) + SEPARATOR;
+    }
+
+    /**
+     * @param parentPath the path of the parent, or null if it is unknown
+     * @param id the ID of the child
+     * @return the path of the child, or null if the parent path is unknown
+     */
+    public static String child(String parentPath, long id) {
+        return parentPath != null ? parentPath + id + SEPARATOR : null;
+    }
+
+    /**
+     * Splits a path into the IDs of the ancestors it lists.
+     *
+     * @param path a category path
+     * @return the ancestor IDs ordered from the root down to the parent, excluding the category itself
+     */
+    public static List<Long> ancestorIds(String path) {
+        List<Long> ids = new ArrayList<>();
+        int start = 1;
+        int end;
+        while ((end = path.indexOf(SEPARATOR, start)) > 0) {
+            ids.add(Long.valueOf(path.substring(start, end)));
+            start = end + 1;
+        }
+        if (!ids.isEmpty()) {
+            ids.remove(ids.size() - 1);
+        }
+        return ids;
+    }
+}
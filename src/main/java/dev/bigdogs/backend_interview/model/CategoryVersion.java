@@ -0,0 +1,10 @@
+package dev.bigdogs.backend_interview.model;
+
+/**
+ * Optimistic lock version of a single category row.
+ *
+ * @param id the category ID
+ * @param version the version of the row
+ */
+public record CategoryVersion(Long id, Long version) {
+}
@@ -0,0 +1,17 @@
+package dev.bigdogs.backend_interview.repository;
+
+/**
+ * Read-only projection of one row of the depth-first category export.
+ */
+public interface CategoryExportRow {
+
+    Long getId();
+
+    Long getParentId();
+
+    String getName();
+
+    Boolean getActive();
+
+    Integer getDepth();
+}
@@ -1,12 +1,26 @@
 package dev.bigdogs.backend_interview.repository;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import dev.bigdogs.backend_interview.model.Category;
+import dev.bigdogs.backend_interview.model.CategoryNode;
+import dev.bigdogs.backend_interview.model.CategoryPath;
+import dev.bigdogs.backend_interview.model.CategoryVersion;
+import jakarta.persistence.QueryHint;
 
 /**
  * Repository interface for managing Category entities.
@@ -15,6 +29,13 @@ import dev.bigdogs.backend_interview.model.Category;
  * - Find categories by name and parent.
  * - Check the existence of categories under specific conditions.
  * - Retrieve lists of categories by their parent.
+ * - Maintain the closure table and load whole subtrees or ancestor chains from it.
+ * - Load whole subtrees or ancestor chains through the materialized path.
+ * - Load the whole hierarchy, a subtree or an ancestor chain as detached nodes.
+ * - Stream the whole hierarchy in depth-first order.
+ *
+ * The existence checks are served from the query cache. Native statements declare the tables they
+ * modify, so Hibernate only invalidates the cache regions backed by those tables.
  */
 @Repository
 public interface CategoryRepository extends JpaRepository<Category, Long> {
@@ -34,6 +55,10 @@ public interface CategoryRepository extends JpaRepository<Category, Long> {
      * @param name the category name
      * @return true if a root category with the given name exists, false otherwise
      */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "category-exists")
+    })
     boolean existsByNameAndParentIsNull(String name);
 
     /**
@@ -43,6 +68,10 @@ public interface CategoryRepository extends JpaRepository<Category, Long> {
      * @param parent the parent category
      * @return true if a category with the given name and parent exists, false otherwise
      */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "category-exists")
+    })
     boolean existsByNameAndParent(String name, Category parent);
 
     /**
@@ -59,4 +88,306 @@ public interface CategoryRepository extends JpaRepository<Category, Long> {
      * @return a list of root categories
      */
     List<Category> findByParentIsNull();
+
+    /**
+     * Inserts the self-referencing closure row of a root category.
+     *
+     * @param id the ID of the root category
+     * @return the number of rows inserted
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "category_closure"))
+    @Modifying
+    @Query(value = "INSERT INTO category_closure (ancestor_id, descendant_id, depth) VALUES (:id, :id, 0)",
+        nativeQuery = true)
+    int insertRootClosure(@Param("id") Long id);
+
+    /**
+     * Inserts the closure rows of a new subcategory: one row per ancestor of its parent
+     * (including the parent itself) plus its self-referencing row. The bound IDs are cast because H2
+     * cannot infer the type of a bare parameter in a SELECT list.
+     *
+     * @param id the ID of the new subcategory
+     * @param parentId the ID of its parent
+     * @return the number of rows inserted
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "category_closure"))
+    @Modifying
+    @Query(value = "INSERT INTO category_closure (ancestor_id, descendant_id, depth) "
+        + "SELECT ancestor_id, CAST(:id AS BIGINT), depth + 1 FROM category_closure WHERE descendant_id = :parentId "
+        + "UNION ALL SELECT CAST(:id AS BIGINT), CAST(:id AS BIGINT), 0",
+        nativeQuery = true)
+    int insertClosure(@Param("id") Long id, @Param("parentId") Long parentId);
+
+    /**
+     * Detaches a subtree from its current ancestors: removes every closure row linking a category
+     * of the subtree to an ancestor outside of it. Rows inside the subtree are kept.
+     *
+     * @param id the ID of the subtree root
+     * @return the number of rows deleted
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "category_closure"))
+    @Modifying
+    @Query(value = "DELETE FROM category_closure WHERE descendant_id IN "
+        + "(SELECT descendant_id FROM category_closure WHERE ancestor_id = :id) "
+        + "AND ancestor_id NOT IN (SELECT descendant_id FROM category_closure WHERE ancestor_id = :id)",
+        nativeQuery = true)
+    int detachSubtreeClosure(@Param("id") Long id);
+
+    /**
+     * Attaches a detached subtree below a new parent: links every ancestor of the parent (including
+     * the parent itself) to every category of the subtree.
+     *
+     * @param id the ID of the subtree root
+     * @param parentId the ID of the new parent
+     * @return the number of rows inserted
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "category_closure"))
+    @Modifying
+    @Query(value = "INSERT INTO category_closure (ancestor_id, descendant_id, depth) "
+        + "SELECT p.ancestor_id, s.descendant_id, p.depth + s.depth + 1 "
+        + "FROM category_closure p CROSS JOIN category_closure s "
+        + "WHERE p.descendant_id = :parentId AND s.ancestor_id = :id",
+        nativeQuery = true)
+    int attachSubtreeClosure(@Param("id") Long id, @Param("parentId") Long parentId);
+
+    /**
+     * Replaces the path prefix of every category below a moved category with a single statement.
+     *
+     * @param oldPath the former path of the moved category
+     * @param newPath its new path
+     * @return the number of rows updated
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "categories"))
+    @Modifying(clearAutomatically = true)
+    @Query(value = "UPDATE categories SET path = CONCAT(:newPath, SUBSTRING(path, CHAR_LENGTH(:oldPath) + 1)), "
+        + "version = version + 1 "
+        + "WHERE path LIKE CONCAT(:oldPath, '%') AND path <> :oldPath",
+        nativeQuery = true)
+    int rebasePaths(@Param("oldPath") String oldPath, @Param("newPath") String newPath);
+
+    /**
+     * Sets the state of a category and of its whole subtree with a single statement.
+     *
+     * @param id the ID of the subtree root
+     * @param active the new state
+     * @return the number of rows updated
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "categories"))
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE categories SET active = :active, version = version + 1 "
+        + "WHERE id IN (SELECT descendant_id FROM category_closure WHERE ancestor_id = :id)",
+        nativeQuery = true)
+    int updateSubtreeActive(@Param("id") Long id, @Param("active") Boolean active);
+
+    /**
+     * Collects the categories that are effectively active with a single recursive query: the walk
+     * starts at the root categories and never descends below an inactive category.
+     *
+     * @return the IDs of every category that is active along with all of its ancestors
+     */
+    @Query(value = "WITH RECURSIVE visible (id) AS ("
+        + "SELECT id FROM categories WHERE parent_id IS NULL AND (active IS NULL OR active = TRUE) "
+        + "UNION ALL "
+        + "SELECT c.id FROM categories c JOIN visible v ON c.parent_id = v.id WHERE c.active IS NULL OR c.active = TRUE"
+        + ") "
+        + "SELECT id FROM visible ORDER BY id",
+        nativeQuery = true)
+    List<Long> findEffectivelyActiveIds();
+
+    /**
+     * Collects the IDs of a category and of its whole subtree with a single recursive query
+     * over parent_id.
+     *
+     * @param id the ID of the subtree root
+     * @return the subtree IDs including the root itself, or an empty list if the category does not exist
+     */
+    @Query(value = "WITH RECURSIVE subtree (id) AS ("
+        + "SELECT id FROM categories WHERE id = :id "
+        + "UNION ALL "
+        + "SELECT c.id FROM categories c JOIN subtree s ON c.parent_id = s.id"
+        + ") "
+        + "SELECT id FROM subtree",
+        nativeQuery = true)
+    List<Long> findSubtreeIds(@Param("id") Long id);
+
+    /**
+     * Clears the parent link of the given categories, so that they can be deleted in any order.
+     *
+     * @param ids the category IDs
+     * @return the number of rows updated
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "categories"))
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE categories SET parent_id = NULL WHERE id IN (:ids)", nativeQuery = true)
+    int detachParents(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Removes the closure rows pointing to the given categories.
+     *
+     * @param ids the descendant IDs
+     * @return the number of rows deleted
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "category_closure"))
+    @Modifying
+    @Query(value = "DELETE FROM category_closure WHERE descendant_id IN (:ids)", nativeQuery = true)
+    int deleteClosureOf(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Deletes the given categories with a single statement, bypassing cascades and orphan removal.
+     *
+     * @param ids the category IDs
+     * @return the number of rows deleted
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "categories"))
+    @Modifying(clearAutomatically = true)
+    @Query(value = "DELETE FROM categories WHERE id IN (:ids)", nativeQuery = true)
+    int deleteByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Loads a category and its subtree as detached nodes, without hydrating entities,
+     * ordered by depth so that each node comes after its parent.
+     *
+     * @param id the ID of the subtree root
+     * @return the category itself first, then its descendants; empty if the category does not exist
+     */
+    @Query("select new dev.bigdogs.backend_interview.model.CategoryNode(c.id, p.id, c.name, c.active) "
+        + "from Category c left join c.parent p join CategoryClosure cc on cc.descendantId = c.id "
+        + "where cc.ancestorId = :id order by cc.depth, c.id")
+    List<CategoryNode> findSubtreeNodes(@Param("id") Long id);
+
+    /**
+     * Loads a category and its descendants down to a maximum relative depth as detached nodes,
+     * ordered by depth.
+     *
+     * @param id the ID of the subtree root
+     * @param maxDepth the deepest level to load; the category's children are at depth 1
+     * @return the category itself first, then its descendants; empty if the category does not exist
+     */
+    @Query("select new dev.bigdogs.backend_interview.model.CategoryNode(c.id, p.id, c.name, c.active) "
+        + "from Category c left join c.parent p join CategoryClosure cc on cc.descendantId = c.id "
+        + "where cc.ancestorId = :id and cc.depth <= :maxDepth order by cc.depth, c.id")
+    List<CategoryNode> findSubtreeNodesWithinDepth(@Param("id") Long id, @Param("maxDepth") int maxDepth);
+
+    /**
+     * Loads the ancestors of a category from the closure table as detached nodes.
+     *
+     * @param id the ID of the category
+     * @return the ancestors, excluding the category itself, ordered from the root down to the parent
+     */
+    @Query("select new dev.bigdogs.backend_interview.model.CategoryNode(c.id, p.id, c.name, c.active) "
+        + "from Category c left join c.parent p join CategoryClosure cc on cc.ancestorId = c.id "
+        + "where cc.descendantId = :id and cc.depth > 0 order by cc.depth desc")
+    List<CategoryNode> findAncestorNodes(@Param("id") Long id);
+
+    /**
+     * Checks through the closure table whether a category lies in the subtree of another one.
+     *
+     * @param ancestorId the ID of the possible ancestor
+     * @param descendantId the ID of the possible descendant
+     * @return true if descendantId is ancestorId itself or one of its descendants
+     */
+    @Query("select count(cc) > 0 from CategoryClosure cc where cc.ancestorId = :ancestorId and cc.descendantId = :descendantId")
+    boolean isInSubtree(@Param("ancestorId") Long ancestorId, @Param("descendantId") Long descendantId);
+
+    /**
+     * Loads every category as a detached node, without hydrating entities.
+     *
+     * @return all categories, ordered by ID
+     */
+    @Query("select new dev.bigdogs.backend_interview.model.CategoryNode(c.id, p.id, c.name, c.active, c.version) "
+        + "from Category c left join c.parent p order by c.id")
+    List<CategoryNode> findAllNodes();
+
+    /**
+     * Reads the current version of a category and of every category in its subtree.
+     *
+     * @param id the ID of the subtree root
+     * @return the versions, ordered by ID
+     */
+    @Query("select new dev.bigdogs.backend_interview.model.CategoryVersion(c.id, c.version) "
+        + "from Category c join CategoryClosure cc on cc.descendantId = c.id "
+        + "where cc.ancestorId = :id order by c.id")
+    List<CategoryVersion> findSubtreeVersions(@Param("id") Long id);
+
+    /**
+     * Lists the names of the direct children of a category.
+     *
+     * @param parentId the parent category ID
+     * @return the child names
+     */
+    @Query("select c.name from Category c where c.parent.id = :parentId")
+    List<String> findChildNames(@Param("parentId") Long parentId);
+
+    /**
+     * Lists the names of all root categories.
+     *
+     * @return the root category names
+     */
+    @Query("select c.name from Category c where c.parent is null")
+    List<String> findRootNames();
+
+    /**
+     * Streams every category in depth-first order through a forward-only cursor.
+     *
+     * The rows are read in the order of the path index: '/' sorts before every digit, so each category
+     * comes right before its whole subtree, and the first row is read without sorting anything. The
+     * depth is the number of IDs in the path, less one. Siblings are ordered by the text of their IDs.
+     * Categories without a path, which only writes that bypass the service leave, are not exported.
+     *
+     * Rows are read-only projections that never enter the persistence context, so memory stays flat
+     * however big the catalog is. The returned stream must be consumed inside a transaction and
+     * closed afterwards.
+     *
+     * @return the categories, each one followed by its whole subtree
+     */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(value = "SELECT id AS \"id\", parent_id AS \"parentId\", name AS \"name\", active AS \"active\", "
+        + "CHAR_LENGTH(path) - CHAR_LENGTH(REPLACE(path, '/', '')) - 2 AS \"depth\" "
+        + "FROM categories WHERE path IS NOT NULL ORDER BY path",
+        nativeQuery = true)
+    Stream<CategoryExportRow> streamAllDepthFirst();
+
+    /**
+     * @param id the ID of the category
+     * @return its materialized path, or empty if the category does not exist or has no path
+     */
+    @Query("select c.path from Category c where c.id = :id")
+    Optional<String> findPathById(@Param("id") Long id);
+
+    /**
+     * Loads every descendant of a category with a single range scan on the path index.
+     *
+     * @param path the materialized path of the subtree root
+     * @return the descendants, excluding the category itself, each one after its parent
+     */
+    @Query("select c from Category c where c.path like :path% and c.path <> :path order by c.path")
+    List<Category> findDescendantsByPath(@Param("path") String path);
+
+    /**
+     * Collects the IDs of every descendant of a category with a single range scan on the path index.
+     *
+     * @param path the materialized path of the subtree root
+     * @return the descendant IDs, excluding the category itself
+     */
+    @Query("select c.id from Category c where c.path like :path% and c.path <> :path")
+    List<Long> findDescendantIdsByPath(@Param("path") String path);
+
+    /**
+     * Loads the ancestors listed in a materialized path with a single primary-key lookup.
+     *
+     * @param path the materialized path of the category
+     * @return the ancestors, excluding the category itself, ordered from the root down to the parent
+     */
+    default List<Category> findAncestorsByPath(String path) {
+        List<Long> ids = CategoryPath.ancestorIds(path);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        List<Category> ancestors = new ArrayList<>(findAllById(ids));
+        ancestors.sort(Comparator.comparingInt(ancestor -> ids.indexOf(ancestor.getId())));
+        return ancestors;
+    }
 }
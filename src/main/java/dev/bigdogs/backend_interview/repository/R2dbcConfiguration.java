@@ -0,0 +1,90 @@
+package dev.bigdogs.backend_interview.repository;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.PropertyMapper;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import io.r2dbc.h2.H2ConnectionConfiguration;
+import io.r2dbc.h2.H2ConnectionFactory;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactory;
+
+/**
+ * R2DBC access to the database behind the JPA data source, used by the reactive read API.
+ *
+ * The connection factory is derived from the JDBC URL, so both stacks always see the same
+ * database, including the uniquely named in-memory one Spring Boot generates when no URL is set.
+ * Writes stay on JPA; no reactive transaction manager is registered (see application.properties).
+ *
+ * Connections are pooled with r2dbc-pool, sized by the standard {@code spring.r2dbc.pool.*} properties,
+ * so that each subscription does not open and close its own connection. The pool is deliberately not
+ * exposed as a {@link ConnectionFactory} bean: Spring Boot only configures the JDBC data source, and
+ * with it JPA, when there is none. For the same reason Boot's own R2DBC configuration is excluded.
+ */
+@Configuration
+@EnableConfigurationProperties(R2dbcProperties.class)
+public class R2dbcConfiguration {
+
+    private static final String H2_JDBC_PREFIX = "jdbc:h2:";
+
+    @Bean
+    public ReactiveConnections reactiveConnections(final DataSourceProperties dataSourceProperties,
+            final R2dbcProperties r2dbcProperties) {
+        String url = dataSourceProperties.determineUrl();
+        if (url == null || !url.startsWith(H2_JDBC_PREFIX)) {
+            throw new IllegalStateException("The reactive read API needs an H2 data source, got: " + url);
+        }
+        H2ConnectionFactory connectionFactory = new H2ConnectionFactory(H2ConnectionConfiguration.builder()
+            .url(url.substring(H2_JDBC_PREFIX.length()))
+            .username(dataSourceProperties.determineUsername())
+            .password(dataSourceProperties.determinePassword())
+            .build());
+
+        R2dbcProperties.Pool pool = r2dbcProperties.getPool();
+        ConnectionPoolConfiguration.Builder builder = ConnectionPoolConfiguration.builder(connectionFactory);
+        PropertyMapper map = PropertyMapper.get().alwaysApplyingWhenNonNull();
+        map.from(pool.getInitialSize()).to(builder::initialSize);
+        map.from(pool.getMaxSize()).to(builder::maxSize);
+        map.from(pool.getMinIdle()).to(builder::minIdle);
+        map.from(pool.getMaxIdleTime()).to(builder::maxIdleTime);
+        map.from(pool.getMaxLifeTime()).to(builder::maxLifeTime);
+        map.from(pool.getMaxAcquireTime()).to(builder::maxAcquireTime);
+        map.from(pool.getMaxCreateConnectionTime()).to(builder::maxCreateConnectionTime);
+        map.from(pool.getMaxValidationTime()).to(builder::maxValidationTime);
+        map.from(pool.getValidationQuery()).whenHasText().to(builder::validationQuery);
+        map.from(pool.getValidationDepth()).to(builder::validationDepth);
+        return new ReactiveConnections(new ConnectionPool(builder.build()));
+    }
+
+    @Bean
+    public DatabaseClient databaseClient(final ReactiveConnections reactiveConnections) {
+        return DatabaseClient.create(reactiveConnections.connectionFactory());
+    }
+
+    /**
+     * Owns the connection pool of the reactive read API and disposes of it on shutdown.
+     */
+    public static final class ReactiveConnections implements DisposableBean {
+
+        private final ConnectionPool pool;
+
+        private ReactiveConnections(final ConnectionPool pool) {
+            this.pool = pool;
+        }
+
+        public ConnectionFactory connectionFactory() {
+            return pool;
+        }
+
+        @Override
+        public void destroy() {
+            pool.dispose();
+        }
+    }
+}
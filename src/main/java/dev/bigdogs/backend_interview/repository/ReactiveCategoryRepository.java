@@ -0,0 +1,68 @@
+package dev.bigdogs.backend_interview.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+
+import dev.bigdogs.backend_interview.model.CategoryNode;
+import io.r2dbc.spi.Readable;
+import reactor.core.publisher.Flux;
+
+/**
+ * Read-only, non-blocking queries over the category hierarchy, issued through R2DBC.
+ *
+ * Rows are emitted as they are decoded, as {@link CategoryNode}s; no entity is materialized and
+ * nothing goes through the persistence context or the second-level cache.
+ */
+@Repository
+public class ReactiveCategoryRepository {
+
+    private static final String SUBTREE =
+        "WITH RECURSIVE subtree (id, parent_id, name, active, lvl) AS ("
+            + "SELECT id, parent_id, name, active, 0 FROM categories WHERE id = :id "
+            + "UNION ALL "
+            + "SELECT c.id, c.parent_id, c.name, c.active, s.lvl + 1 FROM categories c JOIN subtree s ON c.parent_id = s.id"
+            + ") "
+            + "SELECT id, parent_id, name, active FROM subtree ORDER BY lvl, id";
+
+    private static final String ANCESTORS =
+        "WITH RECURSIVE ancestors (id, parent_id, name, active, lvl) AS ("
+            + "SELECT id, parent_id, name, active, 0 FROM categories WHERE id = :id "
+            + "UNION ALL "
+            + "SELECT p.id, p.parent_id, p.name, p.active, a.lvl + 1 FROM categories p JOIN ancestors a ON p.id = a.parent_id"
+            + ") "
+            + "SELECT id, parent_id, name, active FROM ancestors WHERE lvl > 0 ORDER BY lvl DESC";
+
+    private final DatabaseClient databaseClient;
+
+    @Autowired
+    public ReactiveCategoryRepository(final DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    /**
+     * Streams a category and its whole subtree, walking parent_id with a recursive query.
+     *
+     * @param id the ID of the subtree root
+     * @return the category first, then its descendants level by level, by ascending ID within a level;
+     *         empty if the category does not exist
+     */
+    public Flux<CategoryNode> streamSubtree(final Long id) {
+        return databaseClient.sql(SUBTREE).bind("id", id).map(ReactiveCategoryRepository::toNode).all();
+    }
+
+    /**
+     * Streams the ancestors of a category with a recursive query.
+     *
+     * @param id the ID of the category
+     * @return the ancestors, excluding the category itself, from the root down to the parent
+     */
+    public Flux<CategoryNode> streamAncestors(final Long id) {
+        return databaseClient.sql(ANCESTORS).bind("id", id).map(ReactiveCategoryRepository::toNode).all();
+    }
+
+    private static CategoryNode toNode(final Readable row) {
+        return new CategoryNode(row.get("id", Long.class), row.get("parent_id", Long.class),
+            row.get("name", String.class), row.get("active", Boolean.class));
+    }
+}
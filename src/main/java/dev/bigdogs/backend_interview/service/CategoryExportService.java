@@ -0,0 +1,92 @@
+package dev.bigdogs.backend_interview.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import dev.bigdogs.backend_interview.repository.CategoryExportRow;
+import dev.bigdogs.backend_interview.repository.CategoryRepository;
+
+/**
+ * Exports the whole category hierarchy as newline-delimited JSON.
+ *
+ * Rows are read from a forward-only database cursor and written one by one, so nothing but the
+ * current row is held in memory. Output is flushed periodically, which lets the client start
+ * reading long before the last row is fetched.
+ */
+@Service
+public class CategoryExportService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CategoryExportService.class);
+
+    /**
+     * Number of rows written between two flushes of the output stream.
+     */
+    private static final int FLUSH_INTERVAL = 500;
+
+    private final CategoryRepository categoryRepository;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public CategoryExportService(final CategoryRepository categoryRepository, final ObjectMapper objectMapper) {
+        this.categoryRepository = categoryRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Writes every category in depth-first order, one JSON object per line
+     * ({@code id}, {@code parentId}, {@code name}, {@code active}, {@code depth}).
+     * The output can be fed back to the NDJSON import.
+     *
+     * @param output the stream to write to; it is flushed but not closed
+     */
+    @Transactional(readOnly = true)
+    public void exportNdjson(final OutputStream output) throws IOException {
+        LOGGER.debug("Exporting category hierarchy as NDJSON");
+        int exported = 0;
+
+        try (Stream<CategoryExportRow> rows = categoryRepository.streamAllDepthFirst();
+                JsonGenerator generator = objectMapper.getFactory().createGenerator(output)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+
+            Iterator<CategoryExportRow> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                writeRow(generator, iterator.next());
+                if (++exported % FLUSH_INTERVAL == 0) {
+                    generator.flush();
+                }
+            }
+        }
+        LOGGER.info("Exported {} categories", exported);
+    }
+
+    private void writeRow(final JsonGenerator generator, final CategoryExportRow row) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("id", row.getId());
+        if (row.getParentId() != null) {
+            generator.writeNumberField("parentId", row.getParentId());
+        } else {
+            generator.writeNullField("parentId");
+        }
+        generator.writeStringField("name", row.getName());
+        if (row.getActive() != null) {
+            generator.writeBooleanField("active", row.getActive());
+        } else {
+            generator.writeNullField("active");
+        }
+        generator.writeNumberField("depth", row.getDepth());
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+}
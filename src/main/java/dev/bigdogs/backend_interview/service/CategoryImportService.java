@@ -0,0 +1,363 @@
+package dev.bigdogs.backend_interview.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionOperations;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import dev.bigdogs.backend_interview.cache.CategoryTreeCache;
+import dev.bigdogs.backend_interview.dto.ImportCategoryDTO;
+import dev.bigdogs.backend_interview.dto.ImportResultDTO;
+import dev.bigdogs.backend_interview.exception.CategoryNotFoundException;
+import dev.bigdogs.backend_interview.exception.InvalidCategoryOperationException;
+import dev.bigdogs.backend_interview.model.Category;
+import dev.bigdogs.backend_interview.model.CategoryPath;
+import dev.bigdogs.backend_interview.repository.CategoryRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+/**
+ * Imports whole category hierarchies, each in a single transaction.
+ *
+ * The payload is read as a stream and never fully materialized. Sibling-name uniqueness is checked
+ * in memory; names of pre-existing siblings are loaded once per parent. Categories are persisted in
+ * JDBC batches, and their closure rows are written with batched INSERT ... SELECT statements. The
+ * persistence context is cleared after every batch. Sibling names, paths and import keys are only
+ * tracked for the categories on the path from the target parent to the current one, and dropped as
+ * soon as a subtree is complete, so memory stays bounded by the batch size and the depth of the
+ * imported hierarchy, not by its size.
+ *
+ * An import holds the lock of its target parent, or of the roots, from before its transaction starts
+ * until it completes, like a single creation under the same parent.
+ *
+ * Any validation error rolls back the whole import.
+ */
+@Service
+public class CategoryImportService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CategoryImportService.class);
+
+    /**
+     * Number of categories persisted between two flushes of the persistence context.
+     */
+    private static final int FLUSH_INTERVAL = 1000;
+
+    private static final String INSERT_ROOT_CLOSURE =
+        "INSERT INTO category_closure (ancestor_id, descendant_id, depth) VALUES (?, ?, 0)";
+
+    /**
+     * The bound IDs are cast because H2 cannot infer the type of a bare parameter in a SELECT list.
+     */
+    private static final String INSERT_CHILD_CLOSURE =
+        "INSERT INTO category_closure (ancestor_id, descendant_id, depth) "
+            + "SELECT ancestor_id, CAST(? AS BIGINT), depth + 1 FROM category_closure WHERE descendant_id = ? "
+            + "UNION ALL SELECT CAST(? AS BIGINT), CAST(? AS BIGINT), 0";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final CategoryRepository categoryRepository;
+    private final CategoryTreeCache categoryTreeCache;
+    private final CategoryLocks categoryLocks;
+    private final TransactionOperations transactionOperations;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public CategoryImportService(final CategoryRepository categoryRepository, final CategoryTreeCache categoryTreeCache,
+            final CategoryLocks categoryLocks, final TransactionOperations transactionOperations,
+            final JdbcTemplate jdbcTemplate, final ObjectMapper objectMapper) {
+        this.categoryRepository = categoryRepository;
+        this.categoryTreeCache = categoryTreeCache;
+        this.categoryLocks = categoryLocks;
+        this.transactionOperations = transactionOperations;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Imports a JSON array of category trees nested through {@code subcategories}.
+     * Within each object, {@code name} and {@code active} must come before {@code subcategories}.
+     *
+     * @param input the request body
+     * @param parentId the category to import under, or null to import root categories
+     * @return the number of imported categories
+     */
+    public ImportResultDTO importJson(final InputStream input, final Long parentId) throws IOException {
+        LOGGER.debug("Importing JSON category hierarchy under parent id: {}", parentId);
+        return importLocked(parentId, batch -> readJson(input, parentId, batch));
+    }
+
+    private void readJson(final InputStream input, final Long parentId, final ImportBatch batch) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(input)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new InvalidCategoryOperationException("Expected a JSON array of categories.");
+            }
+            Deque<PendingCategory> open = new ArrayDeque<>();
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                if (token == JsonToken.START_OBJECT) {
+                    open.push(new PendingCategory(open.isEmpty() ? parentId : batch.createdId(open.peek())));
+                } else if (token == JsonToken.FIELD_NAME) {
+                    readField(parser, open.peek(), batch);
+                } else if (token == JsonToken.END_OBJECT) {
+                    PendingCategory closed = open.pop();
+                    batch.createdId(closed);
+                    batch.close(closed.id);
+                } else if (token == JsonToken.END_ARRAY && open.isEmpty()) {
+                    break;
+                } else if (token != JsonToken.END_ARRAY) {
+                    throw new InvalidCategoryOperationException("Unexpected JSON token: " + token);
+                }
+            }
+        }
+    }
+
+    /**
+     * Imports newline-delimited JSON rows ({@code id}, {@code parentId}, {@code name}, {@code active}).
+     * Rows without a parentId are attached to the given parent, or become root categories.
+     *
+     * Rows must come in depth-first order, as the export writes them: a row's parent is either the
+     * previous row or one of its ancestors. Once a row names an earlier parent, the subtrees listed
+     * since then are complete and forgotten.
+     *
+     * @param input the request body
+     * @param parentId the category to import under, or null to import root categories
+     * @return the number of imported categories
+     */
+    public ImportResultDTO importNdjson(final InputStream input, final Long parentId) throws IOException {
+        LOGGER.debug("Importing NDJSON category rows under parent id: {}", parentId);
+        return importLocked(parentId, batch -> readNdjson(input, parentId, batch));
+    }
+
+    private void readNdjson(final InputStream input, final Long parentId, final ImportBatch batch) throws IOException {
+        // Import keys and created IDs of the previous row and its ancestors, innermost first.
+        Deque<Long[]> open = new ArrayDeque<>();
+
+        try (MappingIterator<ImportCategoryDTO> rows = objectMapper.readerFor(ImportCategoryDTO.class).readValues(input)) {
+            while (rows.hasNext()) {
+                ImportCategoryDTO row = rows.next();
+                while (!open.isEmpty() && !open.peek()[0].equals(row.getParentId())) {
+                    batch.close(open.pop()[1]);
+                }
+                Long rowParentId = parentId;
+                if (row.getParentId() != null) {
+                    if (open.isEmpty()) {
+                        throw new InvalidCategoryOperationException("Parent " + row.getParentId()
+                            + " must be imported before its children, in depth-first order.");
+                    }
+                    rowParentId = open.peek()[1];
+                }
+                Long createdId = batch.create(row.getName(), row.getActive(), rowParentId);
+                if (row.getId() != null) {
+                    open.push(new Long[] {row.getId(), createdId});
+                } else {
+                    // Without a key, nothing can be imported under it.
+                    batch.close(createdId);
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs an import in its own transaction, under the lock of its target parent.
+     */
+    private ImportResultDTO importLocked(final Long parentId, final ImportReader reader) throws IOException {
+        try {
+            return categoryLocks.withParent(parentId, () -> transactionOperations.execute(status -> {
+                ImportBatch batch = new ImportBatch(parentId);
+                try {
+                    reader.read(batch);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return batch.finish();
+            }));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void readField(final JsonParser parser, final PendingCategory pending, final ImportBatch batch)
+            throws IOException {
+        String field = parser.currentName();
+        JsonToken value = parser.nextToken();
+        switch (field) {
+            case "name" -> pending.name = parser.getValueAsString();
+            case "active" -> pending.active = value == JsonToken.VALUE_NULL ? null : parser.getBooleanValue();
+            case "subcategories" -> {
+                // Children follow, so the category itself has to exist first.
+                batch.createdId(pending);
+                if (value != JsonToken.START_ARRAY && value != JsonToken.VALUE_NULL) {
+                    throw new InvalidCategoryOperationException("'subcategories' must be an array.");
+                }
+            }
+            default -> parser.skipChildren();
+        }
+    }
+
+    /**
+     * Reads the categories of one import into its batch.
+     */
+    @FunctionalInterface
+    private interface ImportReader {
+        void read(ImportBatch batch) throws IOException;
+    }
+
+    /**
+     * A category of a JSON import whose object has been opened but not necessarily persisted yet.
+     */
+    private static final class PendingCategory {
+        private final Long parentId;
+        private String name;
+        private Boolean active;
+        private Long id;
+
+        private PendingCategory(Long parentId) {
+            this.parentId = parentId;
+        }
+    }
+
+    /**
+     * State of one import: sibling names seen so far and categories waiting for the next flush.
+     */
+    private final class ImportBatch {
+
+        private final Long targetParentId;
+
+        /**
+         * Names used under the parents that may still receive children. The null key holds root names.
+         */
+        private final Map<Long, Set<String>> siblingNames = new HashMap<>();
+
+        /**
+         * Materialized paths of the parents that may still receive children.
+         */
+        private final Map<Long, String> paths = new HashMap<>();
+
+        /**
+         * Persisted but not yet flushed categories, as {id, parentId} pairs; parentId is null for roots.
+         */
+        private final List<Long[]> pendingClosures = new ArrayList<>(FLUSH_INTERVAL);
+
+        private int imported;
+
+        private ImportBatch(Long targetParentId) {
+            this.targetParentId = targetParentId;
+            if (targetParentId != null) {
+                if (!categoryRepository.existsById(targetParentId)) {
+                    throw new CategoryNotFoundException();
+                }
+                paths.put(targetParentId, categoryRepository.findPathById(targetParentId).orElse(null));
+            }
+        }
+
+        private Long createdId(PendingCategory pending) {
+            if (pending.id == null) {
+                pending.id = create(pending.name, pending.active, pending.parentId);
+            }
+            return pending.id;
+        }
+
+        private Long create(String name, Boolean active, Long parentId) {
+            if (name == null || name.isBlank()) {
+                throw new InvalidCategoryOperationException("Every imported category needs a name.");
+            }
+            if (!siblingsOf(parentId).add(name)) {
+                throw new InvalidCategoryOperationException("Duplicate category name under the same parent: " + name);
+            }
+
+            Category category = new Category();
+            category.setName(name);
+            if (parentId != null) {
+                category.setParent(entityManager.getReference(Category.class, parentId));
+                category.setActive(active != null ? active : Boolean.TRUE);
+            }
+            entityManager.persist(category);
+
+            Long id = category.getId();
+            String path = parentId != null ? CategoryPath.child(paths.get(parentId), id) : CategoryPath.root(id);
+            category.setPath(path);
+            paths.put(id, path);
+            // A category created by this import has no siblings in the database yet.
+            siblingNames.put(id, new HashSet<>());
+            pendingClosures.add(new Long[] {id, parentId});
+            imported++;
+            if (pendingClosures.size() >= FLUSH_INTERVAL) {
+                flush();
+            }
+            return id;
+        }
+
+        /**
+         * Drops what was tracked for a parent that will receive no more children.
+         */
+        private void close(Long parentId) {
+            siblingNames.remove(parentId);
+            paths.remove(parentId);
+        }
+
+        private Set<String> siblingsOf(Long parentId) {
+            Set<String> names = siblingNames.get(parentId);
+            if (names == null) {
+                names = new HashSet<>(parentId == null
+                    ? categoryRepository.findRootNames()
+                    : categoryRepository.findChildNames(parentId));
+                siblingNames.put(parentId, names);
+            }
+            return names;
+        }
+
+        private void flush() {
+            entityManager.flush();
+
+            List<Object[]> roots = new ArrayList<>();
+            List<Object[]> children = new ArrayList<>();
+            for (Long[] pending : pendingClosures) {
+                Long id = pending[0];
+                Long parentId = pending[1];
+                if (parentId == null) {
+                    roots.add(new Object[] {id, id});
+                } else {
+                    children.add(new Object[] {id, parentId, id, id});
+                }
+            }
+            // Roots first: children created in the same batch read their closure rows.
+            if (!roots.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_ROOT_CLOSURE, roots);
+            }
+            if (!children.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_CHILD_CLOSURE, children);
+            }
+
+            pendingClosures.clear();
+            entityManager.clear();
+        }
+
+        private ImportResultDTO finish() {
+            flush();
+            categoryTreeCache.invalidate();
+            LOGGER.info("Imported {} categories under parent id: {}", imported, targetParentId);
+            return new ImportResultDTO(imported);
+        }
+    }
+}
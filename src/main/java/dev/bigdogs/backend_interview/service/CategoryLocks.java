@@ -0,0 +1,72 @@
+package dev.bigdogs.backend_interview.service;
+
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * The in-process locks shared by every service that adds, moves or deletes categories, so that a
+ * single creation and a bulk import under the same parent are serialized with one another, and that
+ * no category is added while a move rewrites paths and closure rows or a deletion removes its parent.
+ *
+ * Callers take a lock before they start their transaction and pass the transactional work as an
+ * action, so that a writer waiting for a lock does not hold a connection from the pool.
+ */
+@Component
+public class CategoryLocks {
+
+    /**
+     * Number of per-parent locks. Two parents share a lock only if their IDs hash to the same stripe.
+     */
+    private static final int PARENT_LOCK_STRIPES = 64;
+
+    /**
+     * Serializes writers that add children to the same parent; the null key stands for the roots.
+     */
+    private final StripedLocks parentLocks = new StripedLocks(PARENT_LOCK_STRIPES);
+
+    /**
+     * Held exclusively by moves, whatever their parents: the cycle check of a move must see every
+     * other move committed, or two crossing moves could each pass it and link their categories into
+     * a cycle. Creations and imports hold it shared: they copy the path and closure rows of their
+     * parent, which a move of any of its ancestors rewrites. Deletions hold it exclusively too, since
+     * the parent of a creation may be anywhere in the deleted subtree. Always taken before a parent lock.
+     */
+    private final ReentrantReadWriteLock moveLock = new ReentrantReadWriteLock();
+
+    /**
+     * Runs an action under the lock of a parent, excluding moves.
+     *
+     * @param parentId the parent ID, or null for the root categories
+     * @param action the action to run, which runs its own transaction
+     * @return the result of the action
+     */
+    <T> T withParent(final Long parentId, final Supplier<T> action) {
+        return StripedLocks.callLocked(moveLock.readLock(), () -> parentLocks.callLocked(parentId, action));
+    }
+
+    /**
+     * Runs a move to the exclusion of every creation, import and other move, then under the lock of
+     * its new parent.
+     *
+     * @param newParentId the new parent ID, or null for a move to the roots
+     * @param action the action to run, which runs its own transaction
+     * @return the result of the action
+     */
+    <T> T withMove(final Long newParentId, final Supplier<T> action) {
+        return StripedLocks.callLocked(moveLock.writeLock(), () -> parentLocks.callLocked(newParentId, action));
+    }
+
+    /**
+     * Runs a deletion to the exclusion of every creation, import and move, then under the lock of the
+     * deleted category's parent.
+     *
+     * @param parentId the parent ID of the deleted category, or null for a root category
+     * @param action the action to run, which runs its own transaction
+     * @return the result of the action
+     */
+    <T> T withRemoval(final Long parentId, final Supplier<T> action) {
+        return StripedLocks.callLocked(moveLock.writeLock(), () -> parentLocks.callLocked(parentId, action));
+    }
+}
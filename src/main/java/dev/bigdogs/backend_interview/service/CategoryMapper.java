@@ -0,0 +1,111 @@
+package dev.bigdogs.backend_interview.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import dev.bigdogs.backend_interview.dto.CategoryDTO;
+import dev.bigdogs.backend_interview.dto.CategoryTreeDTO;
+import dev.bigdogs.backend_interview.dto.FlatCategoryDTO;
+import dev.bigdogs.backend_interview.model.Category;
+import dev.bigdogs.backend_interview.model.CategoryNode;
+
+/**
+ * Builds the response DTOs of the category services.
+ *
+ * Every DTO is filled straight from the fields of a {@link CategoryNode} or of a {@link Category}
+ * without going through an intermediate object, and a tree node only gets a subcategory list once it
+ * has children. The blocking and the reactive read paths share it, so they produce identical responses.
+ */
+final class CategoryMapper {
+
+    private CategoryMapper() {
+    }
+
+    static CategoryDTO toDTO(final CategoryNode node) {
+        return toDTO(node.id(), node.parentId(), node.name(), node.active());
+    }
+
+    /**
+     * Maps an entity without initializing its parent proxy.
+     */
+    static CategoryDTO toDTO(final Category category) {
+        Category parent = category.getParent();
+        return toDTO(category.getId(), parent != null ? parent.getId() : null, category.getName(), category.getActive());
+    }
+
+    /**
+     * Maps a node without its children.
+     *
+     * @param node the category node
+     * @param parentActive whether the node's parent and all of its ancestors are active
+     * @return the tree DTO, with its effective visibility set
+     */
+    static CategoryTreeDTO toTreeDTO(final CategoryNode node, final boolean parentActive) {
+        CategoryTreeDTO dto = new CategoryTreeDTO();
+        dto.setId(node.id());
+        dto.setName(node.name());
+        dto.setActive(node.active());
+        dto.setEffectiveActive(parentActive && !Boolean.FALSE.equals(node.active()));
+        dto.setParentId(node.parentId());
+        return dto;
+    }
+
+    /**
+     * @param node the category node
+     * @param depth the depth of the category below the first row of the listing
+     * @return the flat row of the category
+     */
+    static FlatCategoryDTO toFlatDTO(final CategoryNode node, final int depth) {
+        FlatCategoryDTO dto = new FlatCategoryDTO();
+        dto.setId(node.id());
+        dto.setParentId(node.parentId());
+        dto.setName(node.name());
+        dto.setActive(node.active());
+        dto.setDepth(depth);
+        return dto;
+    }
+
+    /**
+     * Appends a child to a tree DTO, creating its subcategory list on the first child.
+     */
+    static void addSubcategory(final CategoryTreeDTO parent, final CategoryTreeDTO child) {
+        if (parent.getSubcategories() == null) {
+            parent.setSubcategories(new ArrayList<>());
+        }
+        parent.getSubcategories().add(child);
+    }
+
+    /**
+     * @param ancestors an ancestor chain, from the root down to the parent
+     * @return the flat DTOs of the chain, in the same order
+     */
+    static List<CategoryDTO> toAncestorDTOs(final List<CategoryNode> ancestors) {
+        List<CategoryDTO> dtos = new ArrayList<>(ancestors.size());
+        for (CategoryNode ancestor : ancestors) {
+            dtos.add(toDTO(ancestor));
+        }
+        return dtos;
+    }
+
+    /**
+     * @param ancestors an ancestor chain
+     * @return true if none of the ancestors is inactive
+     */
+    static boolean allActive(final List<CategoryNode> ancestors) {
+        for (CategoryNode ancestor : ancestors) {
+            if (Boolean.FALSE.equals(ancestor.active())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static CategoryDTO toDTO(final Long id, final Long parentId, final String name, final Boolean active) {
+        CategoryDTO dto = new CategoryDTO();
+        dto.setId(id);
+        dto.setName(name);
+        dto.setActive(active);
+        dto.setParentId(parentId);
+        return dto;
+    }
+}
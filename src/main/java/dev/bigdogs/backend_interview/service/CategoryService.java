@@ -1,22 +1,45 @@
 package dev.bigdogs.backend_interview.service;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
+import java.util.Locale;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.retry.annotation.Backoff;
+import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionOperations;
+
+import dev.bigdogs.backend_interview.cache.CategoryTreeCache;
+import dev.bigdogs.backend_interview.cache.SerializedCategoryTree;
 
 import dev.bigdogs.backend_interview.dto.CategoryDTO;
 import dev.bigdogs.backend_interview.dto.CategoryTreeDTO;
 import dev.bigdogs.backend_interview.dto.CreateCategoryDTO;
+import dev.bigdogs.backend_interview.dto.FlatCategoryDTO;
+import dev.bigdogs.backend_interview.dto.MoveCategoryDTO;
 import dev.bigdogs.backend_interview.dto.UpdateCategoryDTO;
 import dev.bigdogs.backend_interview.exception.CategoryNotFoundException;
 import dev.bigdogs.backend_interview.exception.InvalidCategoryOperationException;
 import dev.bigdogs.backend_interview.model.Category;
+import dev.bigdogs.backend_interview.model.CategoryNode;
+import dev.bigdogs.backend_interview.model.CategoryPath;
+import dev.bigdogs.backend_interview.model.CategoryVersion;
 import dev.bigdogs.backend_interview.repository.CategoryRepository;
+import dev.bigdogs.backend_interview.tree.CategoryHierarchy;
+import dev.bigdogs.backend_interview.tree.CategoryIndex;
+import dev.bigdogs.backend_interview.tree.CategoryTraversal;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 
 /**
  * Service layer for managing Category entities.
@@ -26,24 +49,73 @@ import dev.bigdogs.backend_interview.repository.CategoryRepository;
  * - Create subcategories under existing categories.
  * - Retrieve ancestors and descendants of a category.
  * - Update the 'active' state of a subcategory.
+ * - Move categories (and their subcategories) under another parent.
  * - Delete categories (and their subcategories).
  *
  * Validations:
  * - Unique category name under the same parent.
- * - No cycles in the hierarchy.
+ * - No cycles in the hierarchy: a category cannot become its own parent or the child of one of its descendants.
  * - 'active' can only be updated in subcategories, not in root categories.
+ *
+ * Concurrency:
+ * - Writers that create or move categories under the same parent are serialized with striped
+ *   in-process locks keyed by parent ID; writers under different parents do not wait for each other.
+ *   The locks are taken before the writer's transaction starts and released after it completes, so
+ *   waiting writers do not hold database connections.
+ * - Moves are serialized with one another, so that no two moves can pass the cycle check together.
+ *   Moves and deletions exclude creations and imports, which copy the path and closure rows of a
+ *   parent that either could rewrite or remove.
+ * - Categories carry an optimistic lock version. Updates that lose a race are retried, in a new
+ *   transaction, up to {@link #WRITE_ATTEMPTS} times in total.
  */
 @Service
+@Timed(value = "category.service", description = "Time spent in CategoryService operations")
 public class CategoryService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(CategoryService.class);
 
+    /**
+     * Maximum number of IDs bound to a single statement when deleting a subtree.
+     */
+    private static final int DELETE_CHUNK_SIZE = 1000;
+
+    /**
+     * Attempts made by an update that fails with a concurrency conflict, the first one included.
+     */
+    static final int WRITE_ATTEMPTS = 4;
+
     @Autowired
     private CategoryRepository categoryRepository; // Ensure this is properly injected
 
+    private final CategoryTreeCache categoryTreeCache;
+
+    private final TreeAssembler treeAssembler;
+
+    private final CategoryLocks categoryLocks;
+
+    /**
+     * Runs the writes that have to start under a lock, which are not {@link Transactional}.
+     */
+    private final TransactionOperations transactionOperations;
+
+    /**
+     * Number of nodes in each returned tree, ancestors excluded.
+     */
+    private final DistributionSummary treeSizes;
+
     @Autowired
-    public CategoryService(final CategoryRepository categoryRepository) {
+    public CategoryService(final CategoryRepository categoryRepository, final CategoryTreeCache categoryTreeCache,
+            final TreeAssembler treeAssembler, final CategoryLocks categoryLocks,
+            final TransactionOperations transactionOperations, final MeterRegistry meterRegistry) {
         this.categoryRepository = categoryRepository;
+        this.categoryTreeCache = categoryTreeCache;
+        this.treeAssembler = treeAssembler;
+        this.categoryLocks = categoryLocks;
+        this.transactionOperations = transactionOperations;
+        this.treeSizes = DistributionSummary.builder("category.tree.nodes")
+            .description("Categories returned per tree response")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
     }
 
     /**
@@ -52,10 +124,15 @@ public class CategoryService {
      * @param createCategoryDTO the DTO containing category data
      * @return the created category DTO
      */
-    @Transactional
     public CategoryDTO createRootCategory(final CreateCategoryDTO createCategoryDTO) {
         LOGGER.debug("Creating a new root category with name: {}", createCategoryDTO.getName());
 
+        // Root names are not covered by the sibling-name constraint, so the check must not race.
+        return categoryLocks.withParent(null,
+            () -> transactionOperations.execute(status -> insertRootCategory(createCategoryDTO)));
+    }
+
+    private CategoryDTO insertRootCategory(final CreateCategoryDTO createCategoryDTO) {
         if (categoryRepository.existsByNameAndParentIsNull(createCategoryDTO.getName())) {
             LOGGER.error("A root category with the given name already exists.");
             throw new InvalidCategoryOperationException();
@@ -66,32 +143,41 @@ public class CategoryService {
         category.setActive(null);
 
         Category savedCategory = categoryRepository.save(category);
+        savedCategory.setPath(CategoryPath.root(savedCategory.getId()));
+        categoryRepository.insertRootClosure(savedCategory.getId());
+        categoryTreeCache.nodeSaved(new CategoryNode(savedCategory.getId(), null, savedCategory.getName(), savedCategory.getActive(),
+            savedCategory.getVersion()));
         LOGGER.info("Root category created with id: {}", savedCategory.getId());
 
-        CategoryDTO categoryDTO = new CategoryDTO();
-        categoryDTO.setId(savedCategory.getId());
-        categoryDTO.setName(savedCategory.getName());
-        categoryDTO.setActive(savedCategory.getActive());
-        categoryDTO.setParentId(null);
-        return categoryDTO;
+        return CategoryMapper.toDTO(savedCategory);
     }
 
     /**
      * Creates a new subcategory under an existing parent category.
      * The subcategory will be active by default.
      *
+     * Sibling-name uniqueness is enforced by the {@link Category#SIBLING_NAME_CONSTRAINT} constraint:
+     * the category is inserted right away, and a violation is reported as an invalid operation, so
+     * there is no window for concurrent duplicates. A name already listed in the loaded snapshot is
+     * confirmed with a query and rejected before the insert; otherwise no existence query is run.
+     *
      * @param createCategoryDTO the DTO containing subcategory data
      * @return the created subcategory DTO
      */
-    @Transactional
     public CategoryDTO createSubcategory(final CreateCategoryDTO createCategoryDTO) {
         LOGGER.debug("Creating subcategory '{}' under parent with id: {}", createCategoryDTO.getName(), createCategoryDTO.getParentId());
 
+        return categoryLocks.withParent(createCategoryDTO.getParentId(),
+            () -> transactionOperations.execute(status -> insertSubcategory(createCategoryDTO)));
+    }
+
+    private CategoryDTO insertSubcategory(final CreateCategoryDTO createCategoryDTO) {
         Category parent = categoryRepository.findById(createCategoryDTO.getParentId())
             .orElseThrow(CategoryNotFoundException::new);
 
-        if (categoryRepository.existsByNameAndParent(createCategoryDTO.getName(), parent)) {
-            LOGGER.error("A subcategory with the given name already exists under the specified parent.");
+        if (Boolean.TRUE.equals(hasChildNamedInSnapshot(parent.getId(), createCategoryDTO.getName()))
+                && categoryRepository.existsByNameAndParent(createCategoryDTO.getName(), parent)) {
+            LOGGER.error("A category with the given name already exists under the specified parent.");
             throw new InvalidCategoryOperationException();
         }
 
@@ -100,15 +186,14 @@ public class CategoryService {
         subcategory.setParent(parent);
         subcategory.setActive(Boolean.TRUE);
 
-        Category savedSubcategory = categoryRepository.save(subcategory);
+        Category savedSubcategory = saveUniqueSibling(subcategory);
+        savedSubcategory.setPath(CategoryPath.child(parent.getPath(), savedSubcategory.getId()));
+        categoryRepository.insertClosure(savedSubcategory.getId(), createCategoryDTO.getParentId());
+        categoryTreeCache.nodeSaved(new CategoryNode(savedSubcategory.getId(), createCategoryDTO.getParentId(),
+            savedSubcategory.getName(), savedSubcategory.getActive(), savedSubcategory.getVersion()));
         LOGGER.info("Subcategory created with id: {} under parent id: {}", savedSubcategory.getId(), createCategoryDTO.getParentId());
 
-        CategoryDTO categoryDTO = new CategoryDTO();
-        categoryDTO.setId(savedSubcategory.getId());
-        categoryDTO.setName(savedSubcategory.getName());
-        categoryDTO.setActive(savedSubcategory.getActive());
-        categoryDTO.setParentId(createCategoryDTO.getParentId());
-        return categoryDTO;
+        return CategoryMapper.toDTO(savedSubcategory);
     }
 
     /**
@@ -117,40 +202,196 @@ public class CategoryService {
      * @param categoryId the ID of the category
      * @return a CategoryTreeDTO containing ancestors, the category itself, and its descendants
      */
-    @Transactional(readOnly = true)
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
     public CategoryTreeDTO getAncestorsAndDescendants(final Long categoryId) {
-        LOGGER.debug("Retrieving ancestors and descendants for category id: {}", categoryId);
+        return getAncestorsAndDescendants(categoryId, null, null, null);
+    }
 
-        Category category = categoryRepository.findById(categoryId)
-            .orElseThrow(CategoryNotFoundException::new);
+    /**
+     * Retrieves the ancestors of a specific category and a bounded part of its subtree.
+     *
+     * The tree is served from the in-memory snapshot when the tree cache is enabled. Otherwise the
+     * subtree is loaded from the closure table, one level past the depth limit so that the children of
+     * the deepest nodes can be counted, and the ancestor chain with a single recursive query. No
+     * transaction is started unless the database is queried. Large subtrees are assembled in parallel
+     * by the {@link TreeAssembler}, in the same order as a sequential build.
+     *
+     * Nodes whose children are not all listed, because of the depth limit or the per-level limit, carry
+     * their {@code childCount} and a {@code nextCursor}. Passing that cursor back for the same node
+     * returns its next page of children.
+     *
+     * @param categoryId the ID of the category
+     * @param maxDepth the number of levels to expand below the category, or null for the whole subtree
+     * @param limit the maximum number of children listed under each node, or null for no limit
+     * @param cursor a continuation token returned for this category, or null to start from its first child
+     * @return a CategoryTreeDTO containing ancestors, the category itself, and its descendants
+     */
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public CategoryTreeDTO getAncestorsAndDescendants(final Long categoryId, final Integer maxDepth,
+            final Integer limit, final String cursor) {
+        LOGGER.debug("Retrieving ancestors and descendants for category id: {} (maxDepth: {}, limit: {}, cursor: {})",
+            categoryId, maxDepth, limit, cursor);
+
+        if (maxDepth != null && maxDepth < 0) {
+            throw new InvalidCategoryOperationException("maxDepth must not be negative.");
+        }
+        if (limit != null && limit < 1) {
+            throw new InvalidCategoryOperationException("limit must be positive.");
+        }
+        Long afterId = cursor != null ? decodeCursor(categoryId, cursor) : null;
+
+        CategoryHierarchy hierarchy = categoryTreeCache.isEnabled()
+            ? categoryTreeCache.getSnapshot()
+            : loadHierarchy(categoryId, maxDepth);
+        int slot = hierarchy.index().slotOf(categoryId);
+        if (slot == CategoryIndex.NONE) {
+            throw new CategoryNotFoundException();
+        }
 
-        CategoryTreeDTO treeDTO = mapToTreeDTO(category);
+        List<CategoryNode> ancestors = hierarchy.ancestors(categoryId);
+        TreeAssembler.AssembledTree assembled = treeAssembler.assemble(hierarchy.index(), slot,
+            maxDepth != null ? maxDepth : CategoryTraversal.UNLIMITED,
+            limit != null ? limit : Integer.MAX_VALUE,
+            afterId, CategoryMapper.allActive(ancestors));
+        CategoryTreeDTO treeDTO = assembled.tree();
+        treeDTO.setAncestors(CategoryMapper.toAncestorDTOs(ancestors));
+        treeSizes.record(assembled.size());
         LOGGER.debug("Ancestors and descendants retrieved for category id: {}", categoryId);
         return treeDTO;
     }
 
     /**
-     * Maps a Category entity to CategoryTreeDTO recursively.
+     * Lists a category and its descendants as flat rows, in preorder: every category is followed by
+     * its subtree, and siblings are sorted by ID. A row's depth is relative to the category.
      *
-     * @param category the Category entity
-     * @return the mapped CategoryTreeDTO
+     * The rows are produced by one {@link CategoryTraversal} of the snapshot, or of the result of a
+     * single closure-table query when the tree cache is disabled, into a list sized up front.
+     *
+     * @param categoryId the ID of the category
+     * @param maxDepth the number of levels to list below the category, or null for the whole subtree
+     * @return the rows of the category and its descendants, the category first
      */
-    private CategoryTreeDTO mapToTreeDTO(Category category) {
-        CategoryTreeDTO dto = new CategoryTreeDTO();
-        dto.setId(category.getId());
-        dto.setName(category.getName());
-        dto.setActive(category.getActive());
-        dto.setParentId(category.getParent() != null ? category.getParent().getId() : null);
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public List<FlatCategoryDTO> getFlatSubtree(final Long categoryId, final Integer maxDepth) {
+        LOGGER.debug("Retrieving flat subtree for category id: {} (maxDepth: {})", categoryId, maxDepth);
+        if (maxDepth != null && maxDepth < 0) {
+            throw new InvalidCategoryOperationException("maxDepth must not be negative.");
+        }
 
-        if (category.getSubcategories() != null && !category.getSubcategories().isEmpty()) {
-            List<CategoryTreeDTO> subDTOs = new ArrayList<>();
-            for (Category sub : category.getSubcategories()) {
-                subDTOs.add(mapToTreeDTO(sub));
-            }
-            dto.setSubcategories(subDTOs);
+        CategoryHierarchy hierarchy;
+        if (categoryTreeCache.isEnabled()) {
+            hierarchy = categoryTreeCache.getSnapshot();
+        } else {
+            hierarchy = CategoryHierarchy.of(maxDepth != null
+                ? categoryRepository.findSubtreeNodesWithinDepth(categoryId, maxDepth)
+                : categoryRepository.findSubtreeNodes(categoryId));
+        }
+        CategoryIndex index = hierarchy.index();
+        int slot = index.slotOf(categoryId);
+        if (slot == CategoryIndex.NONE) {
+            throw new CategoryNotFoundException();
+        }
+
+        int depthLimit = maxDepth != null ? maxDepth : CategoryTraversal.UNLIMITED;
+        List<FlatCategoryDTO> rows = new ArrayList<>(CategoryTraversal.count(index, slot, depthLimit));
+        CategoryTraversal.depthFirst(index, slot, depthLimit, (descendant, depth) -> {
+            rows.add(CategoryMapper.toFlatDTO(index.nodeAt(descendant), depth));
+            return true;
+        });
+        treeSizes.record(rows.size());
+        return rows;
+    }
+
+    /**
+     * Retrieves the ancestors and the whole subtree of a category, already serialized.
+     *
+     * Served from the fragments kept with the in-memory snapshot, so only the categories changed since
+     * the last read are serialized again. The JSON is the same as that of
+     * {@link #getAncestorsAndDescendants(Long)}.
+     *
+     * @param categoryId the ID of the category
+     * @return the serialized tree, or null when the tree cache is disabled
+     */
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public SerializedCategoryTree getSerializedTree(final Long categoryId) {
+        if (!categoryTreeCache.isEnabled()) {
+            return null;
         }
+        LOGGER.debug("Retrieving serialized tree for category id: {}", categoryId);
+        SerializedCategoryTree tree = categoryTreeCache.getSerializedTree(categoryId);
+        if (tree == null) {
+            throw new CategoryNotFoundException();
+        }
+        treeSizes.record(tree.size());
+        return tree;
+    }
+
+    /**
+     * Returns a strong entity tag for tree responses, derived from the hierarchy version that every
+     * committed write bumps. A tree served under a tag stays valid for as long as the tag is current,
+     * whatever its category, depth limit or page. Reading it touches neither the database nor the snapshot.
+     *
+     * @return the quoted entity tag
+     */
+    public String getTreeETag() {
+        return "\"" + categoryTreeCache.getVersionTag() + "\"";
+    }
+
+    /**
+     * Loads a category together with its ancestor chain and its subtree.
+     * Both queries project straight into nodes, so no entity is hydrated or dirty-checked.
+     *
+     * @param categoryId the ID of the category
+     * @param maxDepth the number of levels that will be expanded, or null for the whole subtree
+     * @return a hierarchy holding the ancestors, the category and its descendants
+     */
+    private CategoryHierarchy loadHierarchy(final Long categoryId, final Integer maxDepth) {
+        List<CategoryNode> subtree = maxDepth != null && maxDepth < Integer.MAX_VALUE
+            ? categoryRepository.findSubtreeNodesWithinDepth(categoryId, maxDepth + 1)
+            : categoryRepository.findSubtreeNodes(categoryId);
+        if (subtree.isEmpty()) {
+            throw new CategoryNotFoundException();
+        }
+
+        List<CategoryNode> ancestors = categoryRepository.findAncestorNodes(categoryId);
+        List<CategoryNode> nodes = new ArrayList<>(ancestors.size() + subtree.size());
+        nodes.addAll(ancestors);
+        nodes.addAll(subtree);
+        return CategoryHierarchy.of(nodes);
+    }
+
+    /**
+     * Encodes the position of a page of children as an opaque, URL-safe token.
+     *
+     * @param parentId the ID of the category whose children are paginated
+     * @param afterId the ID of the last child already returned, or null to start from the first one
+     * @return the continuation token
+     */
+    static String encodeCursor(long parentId, Long afterId) {
+        String position = parentId + ":" + (afterId != null ? afterId : "");
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.US_ASCII));
+    }
 
-        return dto;
+    /**
+     * Decodes a continuation token produced by {@link #encodeCursor(long, Long)}.
+     *
+     * @param categoryId the category the token is used with
+     * @param cursor the continuation token
+     * @return the ID of the last child already returned, or null to start from the first one
+     */
+    private static Long decodeCursor(Long categoryId, String cursor) {
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+            int separator = position.indexOf(':');
+            if (separator > 0 && Long.parseLong(position.substring(0, separator)) == categoryId) {
+                String afterId = position.substring(separator + 1);
+                return afterId.isEmpty() ? null : Long.valueOf(afterId);
+            }
+        } catch (IllegalArgumentException e) {
+            // Not a token produced by encodeCursor; reported below.
+        }
+        LOGGER.error("Invalid cursor '{}' for category id: {}", cursor, categoryId);
+        throw new InvalidCategoryOperationException("Invalid cursor.");
     }
 
     /**
@@ -160,6 +401,8 @@ public class CategoryService {
      * @param updateCategoryDTO the DTO containing the new active state
      * @return the updated category DTO
      */
+    @Retryable(retryFor = ConcurrencyFailureException.class, maxAttempts = WRITE_ATTEMPTS,
+        backoff = @Backoff(delay = 10, multiplier = 2, random = true))
     @Transactional
     public CategoryDTO updateActiveState(final Long categoryId, final UpdateCategoryDTO updateCategoryDTO) {
         LOGGER.debug("Updating 'active' state for category id: {} to {}", categoryId, updateCategoryDTO.getActive());
@@ -173,69 +416,224 @@ public class CategoryService {
         }
 
         category.setActive(updateCategoryDTO.getActive());
-        Category updatedCategory = categoryRepository.save(category);
+        // Flushed here so that a version conflict surfaces inside the retried call.
+        Category updatedCategory = categoryRepository.saveAndFlush(category);
+        categoryTreeCache.nodeSaved(CategoryNode.of(updatedCategory));
         LOGGER.info("'active' state updated for category id: {} to {}", categoryId, updateCategoryDTO.getActive());
 
-        CategoryDTO categoryDTO = new CategoryDTO();
-        categoryDTO.setId(updatedCategory.getId());
-        categoryDTO.setName(updatedCategory.getName());
-        categoryDTO.setActive(updatedCategory.getActive());
-        categoryDTO.setParentId(updatedCategory.getParent() != null ? updatedCategory.getParent().getId() : null);
-        return categoryDTO;
+        return CategoryMapper.toDTO(updatedCategory);
     }
 
     /**
-     * Deletes a category. Subcategories are deleted automatically due to cascading.
+     * Updates the 'active' state of a subcategory and of its whole subtree with a single statement.
      *
-     * @param categoryId the ID of the category to delete
+     * @param categoryId the ID of the subcategory
+     * @param updateCategoryDTO the DTO containing the new active state
+     * @return the updated category DTO
      */
+    @Retryable(retryFor = ConcurrencyFailureException.class, maxAttempts = WRITE_ATTEMPTS,
+        backoff = @Backoff(delay = 10, multiplier = 2, random = true))
     @Transactional
-    public void deleteCategory(final Long categoryId) {
-        LOGGER.debug("Deleting category with id: {}", categoryId);
+    public CategoryDTO updateSubtreeActiveState(final Long categoryId, final UpdateCategoryDTO updateCategoryDTO) {
+        LOGGER.debug("Updating 'active' state for the subtree of category id: {} to {}", categoryId, updateCategoryDTO.getActive());
 
         Category category = categoryRepository.findById(categoryId)
             .orElseThrow(CategoryNotFoundException::new);
 
-        categoryRepository.delete(category);
-        LOGGER.info("Category with id: {} deleted successfully.", categoryId);
+        if (category.getParent() == null) {
+            LOGGER.error("'active' state cannot be updated on a root category.");
+            throw new InvalidCategoryOperationException();
+        }
+
+        CategoryNode updated = new CategoryNode(category.getId(), category.getParent().getId(), category.getName(),
+            updateCategoryDTO.getActive());
+        int count = categoryRepository.updateSubtreeActive(categoryId, updateCategoryDTO.getActive());
+        // The updated rows stay locked until commit, so these are exactly the versions being committed.
+        List<CategoryVersion> versions = categoryTreeCache.isEnabled()
+            ? categoryRepository.findSubtreeVersions(categoryId)
+            : List.of();
+        categoryTreeCache.subtreeActiveChanged(categoryId, updateCategoryDTO.getActive(), versions);
+        LOGGER.info("'active' state updated for {} categories under id: {} to {}", count, categoryId, updateCategoryDTO.getActive());
+        return CategoryMapper.toDTO(updated);
     }
 
     /**
-     * Retrieves all ancestors of the given category, starting from its parent and moving up to the root.
+     * Lists the categories that are effectively active: neither they nor any of their ancestors are
+     * inactive. Computed from the in-memory snapshot when the tree cache is enabled, otherwise with a
+     * single recursive query that skips inactive subtrees.
+     *
+     * @return the IDs of the effectively active categories, sorted ascending
      */
-    private List<Category> getAncestors(final Category category) {
-        List<Category> ancestors = new ArrayList<>();
-        Category current = category.getParent();
-        while (current != null) {
-            ancestors.add(0, current);
-            current = current.getParent();
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public long[] getEffectivelyActiveIds() {
+        if (categoryTreeCache.isEnabled()) {
+            return categoryTreeCache.getSnapshot().effectivelyActiveIds();
         }
-        return ancestors;
+        return categoryRepository.findEffectivelyActiveIds().stream().mapToLong(Long::longValue).toArray();
     }
 
     /**
-     * Recursively retrieves all descendants of the given category.
+     * Moves a category and its whole subtree under another parent, or turns it into a root category
+     * when no parent is given.
+     *
+     * Only the moved category is loaded. The closure rows and materialized paths of its descendants
+     * are rewritten with one set-based statement each, so the cost does not grow with the number of
+     * statements per descendant. A category that becomes a root loses its 'active' state; a root that
+     * becomes a subcategory is active.
+     *
+     * @param categoryId the ID of the category to move
+     * @param moveCategoryDTO the DTO containing the new parent ID
+     * @return the moved category DTO
      */
-    private List<Category> getDescendants(final Category category) {
-        List<Category> descendants = new ArrayList<>();
-        if (category.getSubcategories() != null && !category.getSubcategories().isEmpty()) {
-            for (Category sub : category.getSubcategories()) {
-                descendants.add(sub);
-                descendants.addAll(getDescendants(sub));
+    @Retryable(retryFor = ConcurrencyFailureException.class, maxAttempts = WRITE_ATTEMPTS,
+        backoff = @Backoff(delay = 10, multiplier = 2, random = true))
+    public CategoryDTO moveCategory(final Long categoryId, final MoveCategoryDTO moveCategoryDTO) {
+        Long newParentId = moveCategoryDTO.getParentId();
+        LOGGER.debug("Moving category id: {} under parent id: {}", categoryId, newParentId);
+
+        return categoryLocks.withMove(newParentId,
+            () -> transactionOperations.execute(status -> relink(categoryId, newParentId)));
+    }
+
+    private CategoryDTO relink(final Long categoryId, final Long newParentId) {
+        Category category = categoryRepository.findById(categoryId)
+            .orElseThrow(CategoryNotFoundException::new);
+        Category oldParent = category.getParent();
+        Long oldParentId = oldParent != null ? oldParent.getId() : null;
+        if (newParentId == null ? oldParentId == null : newParentId.equals(oldParentId)) {
+            return CategoryMapper.toDTO(CategoryNode.of(category));
+        }
+
+        Category newParent = null;
+        if (newParentId != null) {
+            if (newParentId.equals(categoryId)) {
+                LOGGER.error("A category cannot be its own parent.");
+                throw new InvalidCategoryOperationException("A category cannot be its own parent.");
             }
+            newParent = categoryRepository.findById(newParentId)
+                .orElseThrow(CategoryNotFoundException::new);
+            if (categoryRepository.isInSubtree(categoryId, newParentId)) {
+                LOGGER.error("Category id: {} cannot be moved under its descendant id: {}", categoryId, newParentId);
+                throw new InvalidCategoryOperationException("A category cannot be moved under one of its descendants.");
+            }
+        }
+        // Below a parent, a name missing from the snapshot is left to the sibling-name constraint.
+        boolean duplicateName = newParent != null
+            ? !Boolean.FALSE.equals(hasChildNamedInSnapshot(newParentId, category.getName()))
+                && categoryRepository.existsByNameAndParent(category.getName(), newParent)
+            : categoryRepository.existsByNameAndParentIsNull(category.getName());
+        if (duplicateName) {
+            LOGGER.error("A category with the given name already exists under the target parent.");
+            throw new InvalidCategoryOperationException();
+        }
+
+        String oldPath = category.getPath();
+        String newPath = newParent != null
+            ? CategoryPath.child(newParent.getPath(), categoryId)
+            : CategoryPath.root(categoryId);
+
+        category.setParent(newParent);
+        category.setPath(newPath);
+        if (newParent == null) {
+            category.setActive(null);
+        } else if (category.getActive() == null) {
+            category.setActive(Boolean.TRUE);
         }
-        return descendants;
+        Category moved = saveUniqueSibling(category);
+        CategoryNode movedNode = CategoryNode.of(moved);
+
+        categoryRepository.detachSubtreeClosure(categoryId);
+        if (newParentId != null) {
+            categoryRepository.attachSubtreeClosure(categoryId, newParentId);
+        }
+        if (oldPath != null && newPath != null) {
+            categoryRepository.rebasePaths(oldPath, newPath);
+        }
+
+        categoryTreeCache.nodeSaved(movedNode);
+        LOGGER.info("Category id: {} moved from parent id: {} to parent id: {}", categoryId, oldParentId, newParentId);
+        return CategoryMapper.toDTO(movedNode);
     }
 
-    public Category saveCategory(Category category) {
-        return categoryRepository.save(category);
+    /**
+     * Deletes a category together with its whole subtree and the matching closure rows.
+     *
+     * The subtree IDs are collected with one recursive query, then removed with set-based statements
+     * of at most {@link #DELETE_CHUNK_SIZE} IDs each. No category is loaded into the persistence
+     * context, so the cost does not depend on Hibernate cascades.
+     *
+     * @param categoryId the ID of the category to delete
+     * @return the number of deleted categories, including the category itself
+     */
+    @Retryable(retryFor = ConcurrencyFailureException.class, maxAttempts = WRITE_ATTEMPTS,
+        backoff = @Backoff(delay = 10, multiplier = 2, random = true))
+    public int deleteCategory(final Long categoryId) {
+        LOGGER.debug("Deleting category with id: {}", categoryId);
+
+        // A missing category is reported by the transaction, which finds no subtree to delete.
+        Long parentId = categoryRepository.findById(categoryId)
+            .map(Category::getParent)
+            .map(Category::getId)
+            .orElse(null);
+        return categoryLocks.withRemoval(parentId,
+            () -> transactionOperations.execute(status -> removeSubtree(categoryId)));
     }
 
-    public Category findCategoryById(Long id) {
-        return categoryRepository.findById(id).orElse(null);
+    private int removeSubtree(final Long categoryId) {
+        List<Long> subtreeIds = categoryRepository.findSubtreeIds(categoryId);
+        if (subtreeIds.isEmpty()) {
+            throw new CategoryNotFoundException();
+        }
+
+        // Parent links go first, so that no chunk trips the parent_id foreign key of a later one.
+        for (int from = 0; from < subtreeIds.size(); from += DELETE_CHUNK_SIZE) {
+            categoryRepository.detachParents(chunk(subtreeIds, from));
+        }
+        int deleted = 0;
+        for (int from = 0; from < subtreeIds.size(); from += DELETE_CHUNK_SIZE) {
+            List<Long> ids = chunk(subtreeIds, from);
+            categoryRepository.deleteClosureOf(ids);
+            deleted += categoryRepository.deleteByIds(ids);
+        }
+
+        categoryTreeCache.nodeDeleted(categoryId);
+        LOGGER.info("Category with id: {} deleted successfully ({} categories removed).", categoryId, deleted);
+        return deleted;
     }
 
-    public void deleteCategory(Category category) {
-        categoryRepository.delete(category);
+    /**
+     * Looks a sibling name up in the loaded snapshot, without any query. The snapshot may lag behind
+     * the database, so its answer is only a hint: the sibling-name constraint remains the authority.
+     *
+     * @return whether the parent has a child with that name in the snapshot, or null if none is loaded
+     */
+    private Boolean hasChildNamedInSnapshot(final Long parentId, final String name) {
+        CategoryHierarchy loaded = categoryTreeCache.getLoadedSnapshot();
+        return loaded != null ? loaded.hasChildNamed(parentId, name) : null;
+    }
+
+    /**
+     * Saves and flushes a category, turning a violation of the sibling-name constraint into an
+     * {@link InvalidCategoryOperationException}. Other integrity violations are rethrown.
+     */
+    private Category saveUniqueSibling(final Category category) {
+        try {
+            return categoryRepository.saveAndFlush(category);
+        } catch (DataIntegrityViolationException e) {
+            String message = e.getMostSpecificCause().getMessage();
+            if (message == null || !message.toLowerCase(Locale.ROOT).contains(Category.SIBLING_NAME_CONSTRAINT)) {
+                throw e;
+            }
+            LOGGER.error("A category with the given name already exists under the specified parent.");
+            throw new InvalidCategoryOperationException();
+        }
+    }
+
+    private static List<Long> chunk(List<Long> ids, int from) {
+        return ids.subList(from, Math.min(ids.size(), from + DELETE_CHUNK_SIZE));
+    }
+
+    public Category findCategoryById(Long id) {
+        return categoryRepository.findById(id).orElse(null);
     }
 }
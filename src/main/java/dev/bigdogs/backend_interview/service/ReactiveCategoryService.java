@@ -0,0 +1,90 @@
+package dev.bigdogs.backend_interview.service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import dev.bigdogs.backend_interview.dto.CategoryDTO;
+import dev.bigdogs.backend_interview.dto.CategoryTreeDTO;
+import dev.bigdogs.backend_interview.exception.CategoryNotFoundException;
+import dev.bigdogs.backend_interview.model.CategoryNode;
+import dev.bigdogs.backend_interview.repository.ReactiveCategoryRepository;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking reads of the category hierarchy, served straight from the database through R2DBC.
+ *
+ * The tree is assembled while the subtree rows stream in: rows arrive level by level, so every
+ * parent is already in place when its children show up. The response has the same shape as the
+ * full tree returned by {@link CategoryService#getAncestorsAndDescendants(Long)}.
+ *
+ * With the embedded H2 driver the statements still execute on the subscribing thread; the
+ * request thread is only released for the whole round trip with a networked R2DBC driver.
+ */
+@Service
+public class ReactiveCategoryService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReactiveCategoryService.class);
+
+    private final ReactiveCategoryRepository reactiveCategoryRepository;
+
+    @Autowired
+    public ReactiveCategoryService(final ReactiveCategoryRepository reactiveCategoryRepository) {
+        this.reactiveCategoryRepository = reactiveCategoryRepository;
+    }
+
+    /**
+     * Retrieves all ancestors and descendants of a specific category.
+     *
+     * @param categoryId the ID of the category
+     * @return a CategoryTreeDTO containing ancestors, the category itself, and its descendants,
+     *         or an error with {@link CategoryNotFoundException} if the category does not exist
+     */
+    public Mono<CategoryTreeDTO> getAncestorsAndDescendants(final Long categoryId) {
+        LOGGER.debug("Retrieving ancestors and descendants reactively for category id: {}", categoryId);
+        return reactiveCategoryRepository.streamAncestors(categoryId)
+            .collectList()
+            .flatMap(ancestors -> reactiveCategoryRepository.streamSubtree(categoryId)
+                .reduce(new RowTreeBuilder(ancestors), RowTreeBuilder::add))
+            .flatMap(builder -> builder.root != null
+                ? Mono.just(builder.root)
+                : Mono.error(new CategoryNotFoundException()));
+    }
+
+    /**
+     * Builds a CategoryTreeDTO from subtree rows, each of which must come after its parent.
+     */
+    private static final class RowTreeBuilder {
+
+        private final List<CategoryDTO> ancestors;
+        private final boolean ancestorsActive;
+        private final Map<Long, CategoryTreeDTO> byId = new HashMap<>();
+        private CategoryTreeDTO root;
+
+        private RowTreeBuilder(List<CategoryNode> ancestorNodes) {
+            this.ancestors = CategoryMapper.toAncestorDTOs(ancestorNodes);
+            this.ancestorsActive = CategoryMapper.allActive(ancestorNodes);
+        }
+
+        private RowTreeBuilder add(CategoryNode node) {
+            CategoryTreeDTO parent = root != null ? byId.get(node.parentId()) : null;
+            boolean parentActive = parent != null ? parent.getEffectiveActive() : ancestorsActive;
+
+            CategoryTreeDTO dto = CategoryMapper.toTreeDTO(node, parentActive);
+            byId.put(node.id(), dto);
+
+            if (root == null) {
+                dto.setAncestors(ancestors);
+                root = dto;
+            } else {
+                CategoryMapper.addSubcategory(parent, dto);
+            }
+            return this;
+        }
+    }
+}
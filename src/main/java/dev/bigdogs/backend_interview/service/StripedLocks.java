@@ -0,0 +1,81 @@
+package dev.bigdogs.backend_interview.service;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * A fixed number of in-process locks shared out by key hash.
+ *
+ * Keys that land on different stripes never contend, so writers working under different parents
+ * proceed in parallel while writers under the same parent are serialized. The lock is taken before
+ * the writer's transaction starts, so a waiting writer does not hold a pooled connection, and released
+ * once that transaction has committed, so the next writer for the same key sees the committed rows.
+ * {@link ReentrantLock} is used rather than monitors so that waiting virtual threads do not pin their
+ * carrier.
+ */
+final class StripedLocks {
+
+    private final ReentrantLock[] stripes;
+
+    /**
+     * @param stripes the number of locks; rounded up to a power of two
+     */
+    StripedLocks(final int stripes) {
+        int size = stripes <= 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Runs an action under the stripe of the given key. The action is expected to run its own
+     * transaction, which has committed or rolled back by the time the lock is released.
+     *
+     * A caller that is already inside a transaction holds the lock until that transaction completes
+     * instead, since the action's changes only become visible then.
+     *
+     * @param key the key to lock, may be null
+     * @param action the action to run
+     * @return the result of the action
+     */
+    <T> T callLocked(final Object key, final Supplier<T> action) {
+        return callLocked(stripeFor(key), action);
+    }
+
+    /**
+     * Runs an action under a given lock, which is released like a stripe: once the action returns,
+     * or once the caller's transaction completes if there is one.
+     *
+     * @param lock the lock to take
+     * @param action the action to run
+     * @return the result of the action
+     */
+    static <T> T callLocked(final Lock lock, final Supplier<T> action) {
+        lock.lock();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(final int status) {
+                    lock.unlock();
+                }
+            });
+            return action.get();
+        }
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock stripeFor(final Object key) {
+        int hash = key != null ? key.hashCode() : 0;
+        hash ^= hash >>> 16;
+        return stripes[hash & (stripes.length - 1)];
+    }
+}
@@ -0,0 +1,225 @@
+package dev.bigdogs.backend_interview.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import dev.bigdogs.backend_interview.dto.CategoryTreeDTO;
+import dev.bigdogs.backend_interview.service.TreeDTOBuilder.Deferred;
+import dev.bigdogs.backend_interview.tree.CategoryIndex;
+import dev.bigdogs.backend_interview.tree.CategoryTraversal;
+
+/**
+ * Assembles tree responses from an in-memory {@link CategoryIndex}.
+ *
+ * Subtrees smaller than the parallel threshold are built sequentially on the calling thread. Larger
+ * ones are split by child subtree across a dedicated {@link ForkJoinPool}: the top-level category is
+ * listed with its children, then the children's subtrees are built by tasks, small siblings batched
+ * together and large children split again in the same way. Every subtree is spliced back at the
+ * position it was listed at, so the result is identical to the sequential one.
+ *
+ * The index is immutable and only read, so tasks share it without synchronization.
+ */
+@Component
+public class TreeAssembler implements DisposableBean {
+
+    /**
+     * Levels below the top-level category at which a large subtree may still be split. Deeper ones
+     * are built by the task that reaches them, so long chains of large subtrees do not nest tasks.
+     */
+    private static final int MAX_SPLIT_DEPTH = 8;
+
+    /**
+     * Fraction of the parallel threshold that small sibling subtrees are batched up to per task.
+     */
+    private static final int BATCHES_PER_THRESHOLD = 8;
+
+    private final ForkJoinPool pool;
+
+    private final int parallelThreshold;
+
+    private final int batchSize;
+
+    /**
+     * @param parallelism the number of pool threads, or 0 for the number of available processors
+     * @param parallelThreshold the number of categories from which a subtree is built in parallel
+     */
+    public TreeAssembler(@Value("${categories.tree-assembly.parallelism:0}") final int parallelism,
+            @Value("${categories.tree-assembly.parallel-threshold:50000}") final int parallelThreshold) {
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.parallelThreshold = Math.max(2, parallelThreshold);
+        this.batchSize = Math.max(1, this.parallelThreshold / BATCHES_PER_THRESHOLD);
+    }
+
+    /**
+     * A built tree and the number of categories in it.
+     *
+     * @param tree the top-level category, with its listed descendants
+     * @param size the number of categories in the tree, ancestors excluded
+     */
+    public record AssembledTree(CategoryTreeDTO tree, int size) {
+    }
+
+    /**
+     * Builds the tree of a category.
+     *
+     * @param index the index holding the category
+     * @param root the slot of the category
+     * @param maxDepth the deepest level to list, or {@link CategoryTraversal#UNLIMITED}
+     * @param limit the maximum number of children listed under each category
+     * @param afterId list only the category's children after this ID, or null for all of them
+     * @param ancestorsActive whether every ancestor of the category is active
+     * @return the tree, without ancestors
+     */
+    public AssembledTree assemble(final CategoryIndex index, final int root, final int maxDepth, final int limit,
+            final Long afterId, final boolean ancestorsActive) {
+        TreeDTOBuilder builder;
+        if (maxDepth > 1 && isLarge(index, root, maxDepth)) {
+            builder = pool.invoke(new SplitTask(index, root, maxDepth, limit, afterId, ancestorsActive, 0));
+        } else {
+            builder = new TreeDTOBuilder(index, maxDepth, limit, afterId, ancestorsActive, false);
+            CategoryTraversal.depthFirst(index, root, maxDepth, builder);
+        }
+        return new AssembledTree(builder.root(), builder.size());
+    }
+
+    @Override
+    public void destroy() {
+        pool.shutdown();
+    }
+
+    private boolean isLarge(final CategoryIndex index, final int slot, final int maxDepth) {
+        return countUpTo(index, slot, maxDepth, parallelThreshold) >= parallelThreshold;
+    }
+
+    /**
+     * Counts a subtree, descending no further once the cap is reached.
+     */
+    private static int countUpTo(final CategoryIndex index, final int slot, final int maxDepth, final int cap) {
+        int[] count = {0};
+        CategoryTraversal.depthFirst(index, slot, maxDepth, (visited, depth) -> ++count[0] < cap);
+        return count[0];
+    }
+
+    private static int below(final int maxDepth) {
+        return maxDepth == CategoryTraversal.UNLIMITED ? maxDepth : maxDepth - 1;
+    }
+
+    /**
+     * Lists a category with its children, then builds the children's subtrees in subtasks.
+     */
+    private final class SplitTask extends RecursiveTask<TreeDTOBuilder> {
+
+        private final CategoryIndex index;
+        private final int slot;
+        private final int maxDepth;
+        private final int limit;
+        private final Long afterId;
+        private final boolean ancestorsActive;
+        private final int splitDepth;
+
+        private SplitTask(final CategoryIndex index, final int slot, final int maxDepth, final int limit,
+                final Long afterId, final boolean ancestorsActive, final int splitDepth) {
+            this.index = index;
+            this.slot = slot;
+            this.maxDepth = maxDepth;
+            this.limit = limit;
+            this.afterId = afterId;
+            this.ancestorsActive = ancestorsActive;
+            this.splitDepth = splitDepth;
+        }
+
+        @Override
+        protected TreeDTOBuilder compute() {
+            TreeDTOBuilder builder = new TreeDTOBuilder(index, maxDepth, limit, afterId, ancestorsActive, true);
+            CategoryTraversal.depthFirst(index, slot, maxDepth, builder);
+
+            int childDepth = below(maxDepth);
+            boolean childrenActive = builder.root().getEffectiveActive();
+            List<Deferred> children = builder.deferred();
+            List<Deferred> splitChildren = new ArrayList<>();
+            List<SplitTask> splitTasks = new ArrayList<>();
+            List<BatchTask> batchTasks = new ArrayList<>();
+            int from = 0;
+            int weight = 0;
+            for (int i = 0; i < children.size(); i++) {
+                Deferred child = children.get(i);
+                int childSize = countUpTo(index, child.slot(), childDepth, parallelThreshold);
+                if (childSize >= parallelThreshold && childDepth > 1 && splitDepth + 1 < MAX_SPLIT_DEPTH) {
+                    if (from < i) {
+                        batchTasks.add(new BatchTask(index, children.subList(from, i), childDepth, limit, childrenActive));
+                    }
+                    splitChildren.add(child);
+                    splitTasks.add(new SplitTask(index, child.slot(), childDepth, limit, null, childrenActive,
+                        splitDepth + 1));
+                    from = i + 1;
+                    weight = 0;
+                    continue;
+                }
+                weight += childSize;
+                if (weight >= batchSize) {
+                    batchTasks.add(new BatchTask(index, children.subList(from, i + 1), childDepth, limit, childrenActive));
+                    from = i + 1;
+                    weight = 0;
+                }
+            }
+            if (from < children.size()) {
+                batchTasks.add(new BatchTask(index, children.subList(from, children.size()), childDepth, limit,
+                    childrenActive));
+            }
+
+            List<ForkJoinTask<?>> tasks = new ArrayList<>(splitTasks.size() + batchTasks.size());
+            tasks.addAll(splitTasks);
+            tasks.addAll(batchTasks);
+            invokeAll(tasks);
+
+            for (int i = 0; i < splitTasks.size(); i++) {
+                builder.replace(splitChildren.get(i), splitTasks.get(i).join());
+            }
+            for (BatchTask batch : batchTasks) {
+                TreeDTOBuilder[] subtrees = batch.join();
+                for (int i = 0; i < subtrees.length; i++) {
+                    builder.replace(batch.children.get(i), subtrees[i]);
+                }
+            }
+            return builder;
+        }
+    }
+
+    /**
+     * Builds the subtrees of consecutive siblings sequentially.
+     */
+    private static final class BatchTask extends RecursiveTask<TreeDTOBuilder[]> {
+
+        private final CategoryIndex index;
+        private final List<Deferred> children;
+        private final int maxDepth;
+        private final int limit;
+        private final boolean parentActive;
+
+        private BatchTask(final CategoryIndex index, final List<Deferred> children, final int maxDepth,
+                final int limit, final boolean parentActive) {
+            this.index = index;
+            this.children = children;
+            this.maxDepth = maxDepth;
+            this.limit = limit;
+            this.parentActive = parentActive;
+        }
+
+        @Override
+        protected TreeDTOBuilder[] compute() {
+            TreeDTOBuilder[] subtrees = new TreeDTOBuilder[children.size()];
+            for (int i = 0; i < subtrees.length; i++) {
+                subtrees[i] = new TreeDTOBuilder(index, maxDepth, limit, null, parentActive, false);
+                CategoryTraversal.depthFirst(index, children.get(i).slot(), maxDepth, subtrees[i]);
+            }
+            return subtrees;
+        }
+    }
+}
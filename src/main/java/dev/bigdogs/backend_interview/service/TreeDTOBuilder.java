@@ -0,0 +1,164 @@
+package dev.bigdogs.backend_interview.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import dev.bigdogs.backend_interview.dto.CategoryTreeDTO;
+import dev.bigdogs.backend_interview.tree.CategoryIndex;
+import dev.bigdogs.backend_interview.tree.CategoryTraversal;
+
+/**
+ * Builds a CategoryTreeDTO during a {@link CategoryTraversal} of a subtree, one level of state per
+ * depth. Effective visibility is passed down the same walk, so no ancestor is visited twice.
+ *
+ * Children beyond the per-level limit, or not after the cursor of the top-level category, are
+ * skipped without walking their subtrees; their parent then carries its {@code childCount}, and a
+ * {@code nextCursor} if children remain. The same holds for categories at the depth limit.
+ *
+ * When children are deferred, the listed children of the top-level category are added without
+ * their subtrees and recorded instead; each one is then built by a builder of its own and spliced
+ * back in with {@link #replace}, at the position it was listed at.
+ */
+final class TreeDTOBuilder implements CategoryTraversal.Visitor {
+
+    private final CategoryIndex index;
+    private final int maxDepth;
+    private final int limit;
+    private final Long afterId;
+    private final boolean ancestorsActive;
+    private final boolean deferChildren;
+    private final List<Level> levels = new ArrayList<>();
+    private final List<Deferred> deferred = new ArrayList<>();
+
+    private CategoryTreeDTO root;
+    private int size;
+
+    /**
+     * @param index the index holding the subtree
+     * @param maxDepth the deepest level to list, or {@link CategoryTraversal#UNLIMITED}
+     * @param limit the maximum number of children listed under each category
+     * @param afterId list only the top-level children after this ID, or null for all of them
+     * @param ancestorsActive whether every ancestor of the top-level category is active
+     * @param deferChildren whether to record the subtrees of the top-level children instead of building them
+     */
+    TreeDTOBuilder(CategoryIndex index, int maxDepth, int limit, Long afterId, boolean ancestorsActive,
+            boolean deferChildren) {
+        this.index = index;
+        this.maxDepth = maxDepth;
+        this.limit = limit;
+        this.afterId = afterId;
+        this.ancestorsActive = ancestorsActive;
+        this.deferChildren = deferChildren;
+    }
+
+    CategoryTreeDTO root() {
+        return root;
+    }
+
+    /**
+     * @return the number of categories in the built tree
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the top-level children whose subtrees were deferred, in listing order
+     */
+    List<Deferred> deferred() {
+        return deferred;
+    }
+
+    /**
+     * Puts the tree of a deferred child in place of the childless entry listed for it.
+     *
+     * @param child the deferred child
+     * @param subtree a builder that walked the child's subtree
+     */
+    void replace(Deferred child, TreeDTOBuilder subtree) {
+        root.getSubcategories().set(child.position(), subtree.root);
+        size += subtree.size - 1;
+    }
+
+    @Override
+    public boolean enter(int slot, int depth) {
+        Level parent = depth > 0 ? levels.get(depth - 1) : null;
+        long id = index.idAt(slot);
+        if (parent != null) {
+            // Children are sorted by ID, so a page starts right after the last ID of the previous one.
+            if (depth == 1 && afterId != null && id <= afterId) {
+                parent.skippedBefore = true;
+                return false;
+            }
+            if (parent.listed == limit) {
+                parent.skippedAfter = true;
+                return false;
+            }
+        }
+
+        CategoryTreeDTO dto = CategoryMapper.toTreeDTO(index.nodeAt(slot),
+            parent != null ? parent.dto.getEffectiveActive() : ancestorsActive);
+        size++;
+        if (parent == null) {
+            root = dto;
+        } else {
+            CategoryMapper.addSubcategory(parent.dto, dto);
+            parent.listed++;
+            parent.lastListedId = id;
+        }
+
+        if (depth == maxDepth) {
+            int childCount = index.childCount(slot);
+            if (childCount > 0) {
+                dto.setChildCount(childCount);
+                dto.setNextCursor(CategoryService.encodeCursor(id, null));
+            }
+            return false;
+        }
+        if (deferChildren && depth == 1) {
+            deferred.add(new Deferred(slot, parent.listed - 1));
+            return false;
+        }
+        if (levels.size() == depth) {
+            levels.add(new Level());
+        }
+        levels.get(depth).reset(dto);
+        return true;
+    }
+
+    @Override
+    public void leave(int slot, int depth) {
+        Level level = levels.get(depth);
+        if (level.skippedBefore || level.skippedAfter) {
+            level.dto.setChildCount(index.childCount(slot));
+            if (level.skippedAfter) {
+                level.dto.setNextCursor(CategoryService.encodeCursor(level.dto.getId(), level.lastListedId));
+            }
+        }
+    }
+
+    /**
+     * A top-level child whose subtree was not walked.
+     *
+     * @param slot the slot of the child
+     * @param position its position among the listed subcategories of the top-level category
+     */
+    record Deferred(int slot, int position) {
+    }
+
+    private static final class Level {
+
+        private CategoryTreeDTO dto;
+        private int listed;
+        private long lastListedId;
+        private boolean skippedBefore;
+        private boolean skippedAfter;
+
+        private void reset(CategoryTreeDTO dto) {
+            this.dto = dto;
+            this.listed = 0;
+            this.skippedBefore = false;
+            this.skippedAfter = false;
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package dev.bigdogs.backend_interview.tree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import dev.bigdogs.backend_interview.model.CategoryNode;
+
+/**
+ * Immutable in-memory view of a set of categories, backed by a compact {@link CategoryIndex}.
+ *
+ * A hierarchy can hold the whole catalog or just the part of it needed to answer one request.
+ * Modifications never touch an existing instance; they return a new copy instead, which shares
+ * every part of the index they did not change, so readers can keep using the hierarchy they
+ * obtained without any locking.
+ *
+ * Parents that are not part of the hierarchy are tolerated: their children keep their parent ID,
+ * and ancestor walks stop there.
+ */
+public final class CategoryHierarchy {
+
+    private static final long[] NO_CHILDREN = new long[0];
+
+    private static final CategoryHierarchy EMPTY = new CategoryHierarchy(CategoryIndex.of(List.of(), false));
+
+    private final CategoryIndex index;
+
+    private CategoryHierarchy(CategoryIndex index) {
+        this.index = index;
+    }
+
+    /**
+     * Returns a hierarchy without any category.
+     *
+     * @return the empty hierarchy
+     */
+    public static CategoryHierarchy empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Builds an on-heap hierarchy from an arbitrary collection of nodes.
+     *
+     * @param nodes the nodes, in any order
+     * @return the hierarchy
+     */
+    public static CategoryHierarchy of(Collection<CategoryNode> nodes) {
+        return of(nodes, false);
+    }
+
+    /**
+     * Builds a hierarchy from an arbitrary collection of nodes.
+     *
+     * @param nodes the nodes, in any order
+     * @param offHeap whether to keep the index arrays outside of the Java heap
+     * @return the hierarchy
+     */
+    public static CategoryHierarchy of(Collection<CategoryNode> nodes, boolean offHeap) {
+        return new CategoryHierarchy(CategoryIndex.of(nodes, offHeap));
+    }
+
+    /**
+     * @return the compact index backing this hierarchy
+     */
+    public CategoryIndex index() {
+        return index;
+    }
+
+    /**
+     * @return the number of categories in this hierarchy
+     */
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * @param id the category ID
+     * @return the node, or null if the category is not part of this hierarchy
+     */
+    public CategoryNode get(Long id) {
+        int slot = index.slotOf(id);
+        return slot != CategoryIndex.NONE ? index.nodeAt(slot) : null;
+    }
+
+    /**
+     * @param id the category ID
+     * @return true if the category is part of this hierarchy
+     */
+    public boolean contains(Long id) {
+        return index.slotOf(id) != CategoryIndex.NONE;
+    }
+
+    /**
+     * @param id the category ID
+     * @return the version of the row the category was read from, or null if it is unknown or the
+     *         category is not part of this hierarchy
+     */
+    public Long versionOf(Long id) {
+        int slot = index.slotOf(id);
+        return slot != CategoryIndex.NONE ? index.versionAt(slot) : null;
+    }
+
+    /**
+     * @param id the parent category ID
+     * @return the IDs of its direct children, sorted ascending; never null
+     */
+    public long[] childIds(Long id) {
+        int slot = index.slotOf(id);
+        return slot != CategoryIndex.NONE ? index.childIds(slot) : NO_CHILDREN;
+    }
+
+    /**
+     * Walks up the parent links of a category.
+     *
+     * @param id the category ID
+     * @return its ancestors ordered from the root down to the parent, excluding the category itself
+     */
+    public List<CategoryNode> ancestors(Long id) {
+        int slot = index.slotOf(id);
+        if (slot == CategoryIndex.NONE) {
+            return List.of();
+        }
+        int[] ancestorSlots = index.ancestorSlots(slot);
+        List<CategoryNode> ancestors = new ArrayList<>(ancestorSlots.length);
+        for (int ancestorSlot : ancestorSlots) {
+            ancestors.add(index.nodeAt(ancestorSlot));
+        }
+        return ancestors;
+    }
+
+    /**
+     * Checks whether a sibling with the given name exists.
+     *
+     * @param parentId the parent ID, or null for root categories
+     * @param name the name to look for
+     * @return true if a direct child of the parent already has that name
+     */
+    public boolean hasChildNamed(Long parentId, String name) {
+        return index.hasChildNamed(parentId, name);
+    }
+
+    /**
+     * Collects the categories that are effectively active: neither they nor any of their ancestors
+     * are inactive. Root categories, whose state is null, count as active. Inactive subtrees are
+     * skipped without being visited.
+     *
+     * @return the IDs of the effectively active categories, sorted ascending
+     */
+    public long[] effectivelyActiveIds() {
+        ActiveCollector collector = new ActiveCollector(index);
+        for (int root = index.firstRoot(); root != CategoryIndex.NONE; root = index.nextSibling(root)) {
+            CategoryTraversal.depthFirst(index, root, CategoryTraversal.UNLIMITED, collector);
+        }
+        long[] ids = Arrays.copyOf(collector.ids, collector.count);
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    /**
+     * Returns a copy of this hierarchy with the given node added, or replaced if it already exists.
+     * A replaced node whose parent changed is moved together with its subtree.
+     *
+     * @param node the new or updated node
+     * @return the new hierarchy
+     */
+    public CategoryHierarchy with(CategoryNode node) {
+        return new CategoryHierarchy(index.with(node));
+    }
+
+    /**
+     * Returns a copy of this hierarchy where a category and its whole subtree share the given state.
+     *
+     * @param id the ID of the subtree root
+     * @param active the new state
+     * @return the new hierarchy, or this one if the category is not part of it
+     */
+    public CategoryHierarchy withSubtreeActive(Long id, Boolean active) {
+        int slot = index.slotOf(id);
+        return slot != CategoryIndex.NONE ? new CategoryHierarchy(index.withSubtreeActive(slot, active)) : this;
+    }
+
+    /**
+     * Returns a copy of this hierarchy where the given categories have the given state and versions.
+     * Categories that are not part of this hierarchy are ignored.
+     *
+     * @param ids the category IDs
+     * @param versions the new version of each category, in the same order
+     * @param active the new state
+     * @return the new hierarchy
+     */
+    public CategoryHierarchy withActive(long[] ids, long[] versions, Boolean active) {
+        int[] slots = new int[ids.length];
+        long[] found = new long[ids.length];
+        int count = 0;
+        for (int i = 0; i < ids.length; i++) {
+            int slot = index.slotOf(ids[i]);
+            if (slot != CategoryIndex.NONE) {
+                slots[count] = slot;
+                found[count++] = versions[i];
+            }
+        }
+        return new CategoryHierarchy(index.withActive(Arrays.copyOf(slots, count), Arrays.copyOf(found, count), active));
+    }
+
+    /**
+     * Returns a copy of this hierarchy without the given category and its whole subtree.
+     *
+     * @param id the ID of the subtree root
+     * @return the new hierarchy, or this one if the category is not part of it
+     */
+    public CategoryHierarchy without(Long id) {
+        int slot = index.slotOf(id);
+        return slot != CategoryIndex.NONE ? new CategoryHierarchy(index.without(slot)) : this;
+    }
+
+    private static final class ActiveCollector implements CategoryTraversal.Visitor {
+
+        private final CategoryIndex index;
+        private final long[] ids;
+        private int count;
+
+        private ActiveCollector(CategoryIndex index) {
+            this.index = index;
+            this.ids = new long[index.size()];
+        }
+
+        @Override
+        public boolean enter(int slot, int depth) {
+            if (Boolean.FALSE.equals(index.activeAt(slot))) {
+                return false;
+            }
+            ids[count++] = index.idAt(slot);
+            return true;
+        }
+    }
+}
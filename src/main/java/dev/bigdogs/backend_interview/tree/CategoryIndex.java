@@ -0,0 +1,1211 @@
+package dev.bigdogs.backend_interview.tree;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+import dev.bigdogs.backend_interview.model.CategoryNode;
+
+/**
+ * Compact, primitive-specialized index of a set of categories.
+ *
+ * Every category occupies one slot. Slots are ordered by category ID, so an ID is found with a binary
+ * search and no boxed keys are needed. The hierarchy is stored as parallel arrays holding the parent slot,
+ * the first child slot and the next sibling slot of every category; siblings are chained in ascending ID
+ * order. Active flags are kept in bitsets, names in a deduplicated UTF-8 pool, and row versions, when
+ * known, alongside the IDs.
+ *
+ * The arrays are split into chunks of {@value #CHUNK_SIZE} slots. Changing a few categories with
+ * {@link #with}, {@link #withSubtreeActive} or {@link #without} returns a new index that shares every chunk
+ * it does not touch with this one: only the touched chunks are copied, and no name is decoded. A removed
+ * category leaves its slot unused, and a new name is appended to the pool without deduplication; once
+ * these make up a quarter of the index, or when a new ID does not sort after every other one, the next
+ * index is compacted instead, which copies the name bytes without decoding them either.
+ *
+ * The arrays can be allocated off-heap, in which case they do not count towards the Java heap
+ * and are not scanned by the garbage collector.
+ *
+ * Instances are immutable and safe to share between threads.
+ */
+public final class CategoryIndex {
+
+    /**
+     * Slot value meaning "no such category".
+     */
+    public static final int NONE = -1;
+
+    /**
+     * Number of slots per chunk of every array.
+     */
+    static final int CHUNK_SIZE = 1 << 10;
+
+    /**
+     * Stored in place of an unknown version.
+     */
+    private static final long NO_VERSION = Long.MIN_VALUE;
+
+    private static final int CHUNK_SHIFT = 10;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int WORDS_PER_CHUNK = CHUNK_SIZE / Long.SIZE;
+
+    /**
+     * Estimated retained size of one managed Category entity, excluding its name characters:
+     * the entity itself, its boxed ID, the String header and its byte array header, the subcategories
+     * ArrayList and its Hibernate PersistentBag wrapper, the EntityEntry, loaded-state array and EntityKey
+     * kept by the persistence context, and the persistence context map entries.
+     * Based on a 64-bit JVM with compressed oops.
+     */
+    static final long ENTITY_BYTES_PER_CATEGORY = 32 + 16 + 24 + 16 + 24 + 48 + 96 + 40 + 32 + 64;
+
+    private final int size;
+    private final int slots;
+    private final boolean offHeap;
+
+    private final LongBuffer[] ids;
+    private final LongBuffer[] versions;
+    private final IntBuffer[] parents;
+    private final IntBuffer[] firstChildren;
+    private final IntBuffer[] nextSiblings;
+    private final IntBuffer[] nameRefs;
+    private final long[][] activeValues;
+    private final long[][] activeNonNull;
+
+    /**
+     * Slots left behind by removed categories. Their IDs stay in place, so that the slots remain sorted.
+     */
+    private final long[][] removed;
+
+    private final NamePool names;
+
+    private final int firstRoot;
+
+    /**
+     * Parent IDs of categories whose parent is not part of this index, keyed by slot.
+     */
+    private final Map<Integer, Long> detachedParentIds;
+
+    /**
+     * Lazily computed, see {@link #footprint()}.
+     */
+    private volatile Footprint footprint;
+
+    private CategoryIndex(Columns columns) {
+        this.size = columns.size;
+        this.slots = columns.slots;
+        this.offHeap = columns.offHeap;
+        this.ids = columns.ids;
+        this.versions = columns.versions;
+        this.parents = columns.parents;
+        this.firstChildren = columns.firstChildren;
+        this.nextSiblings = columns.nextSiblings;
+        this.nameRefs = columns.nameRefs;
+        this.activeValues = columns.activeValues;
+        this.activeNonNull = columns.activeNonNull;
+        this.removed = columns.removed;
+        this.names = columns.names;
+        this.firstRoot = columns.firstRoot;
+        this.detachedParentIds = columns.detachedParentIds;
+    }
+
+    /**
+     * Builds an index from an arbitrary collection of nodes.
+     *
+     * @param nodes the nodes, in any order
+     * @param offHeap whether to allocate the arrays outside of the Java heap
+     * @return the index
+     */
+    public static CategoryIndex of(Collection<CategoryNode> nodes, boolean offHeap) {
+        Builder builder = new Builder(nodes.size(), offHeap);
+        for (CategoryNode node : nodes) {
+            builder.add(node);
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return the number of categories in this index
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true if the arrays of this index live outside of the Java heap
+     */
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+
+    /**
+     * @param id the category ID
+     * @return the slot of the category, or {@link #NONE} if it is not part of this index
+     */
+    public int slotOf(long id) {
+        int slot = search(id);
+        return slot >= 0 && !isRemoved(slot) ? slot : NONE;
+    }
+
+    public long idAt(int slot) {
+        return ids[slot >>> CHUNK_SHIFT].get(slot & CHUNK_MASK);
+    }
+
+    /**
+     * @return the parent slot, or {@link #NONE} for roots and for categories whose parent is not indexed
+     */
+    public int parentSlot(int slot) {
+        return parents[slot >>> CHUNK_SHIFT].get(slot & CHUNK_MASK);
+    }
+
+    /**
+     * @return the parent ID, or null for root categories
+     */
+    public Long parentIdAt(int slot) {
+        int parentSlot = parentSlot(slot);
+        return parentSlot != NONE ? Long.valueOf(idAt(parentSlot)) : detachedParentIds.get(slot);
+    }
+
+    /**
+     * @return the slot of the first child, or {@link #NONE} for leaves
+     */
+    public int firstChild(int slot) {
+        return firstChildren[slot >>> CHUNK_SHIFT].get(slot & CHUNK_MASK);
+    }
+
+    /**
+     * @return the slot of the next sibling, or {@link #NONE} for the last child
+     */
+    public int nextSibling(int slot) {
+        return nextSiblings[slot >>> CHUNK_SHIFT].get(slot & CHUNK_MASK);
+    }
+
+    /**
+     * @return the slot of the first category without an indexed parent, or {@link #NONE} if the index is empty.
+     *         The others follow through {@link #nextSibling(int)}.
+     */
+    public int firstRoot() {
+        return firstRoot;
+    }
+
+    /**
+     * @return the version of the row the category was read from, or null if unknown
+     */
+    public Long versionAt(int slot) {
+        long version = versions[slot >>> CHUNK_SHIFT].get(slot & CHUNK_MASK);
+        return version != NO_VERSION ? Long.valueOf(version) : null;
+    }
+
+    public Boolean activeAt(int slot) {
+        return bit(activeNonNull, slot) ? Boolean.valueOf(bit(activeValues, slot)) : null;
+    }
+
+    public String nameAt(int slot) {
+        return new String(names.bytes(nameRef(slot)), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Materializes the category stored in a slot.
+     *
+     * @param slot the slot
+     * @return a new node
+     */
+    public CategoryNode nodeAt(int slot) {
+        return new CategoryNode(idAt(slot), parentIdAt(slot), nameAt(slot), activeAt(slot), versionAt(slot));
+    }
+
+    /**
+     * @param slot the parent slot
+     * @return the number of direct children
+     */
+    public int childCount(int slot) {
+        int count = 0;
+        for (int child = firstChild(slot); child != NONE; child = nextSibling(child)) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @param slot the parent slot
+     * @return the IDs of its direct children, sorted ascending
+     */
+    public long[] childIds(int slot) {
+        long[] result = new long[childCount(slot)];
+        int i = 0;
+        for (int child = firstChild(slot); child != NONE; child = nextSibling(child)) {
+            result[i++] = idAt(child);
+        }
+        return result;
+    }
+
+    /**
+     * @param slot the slot of a category
+     * @return the slots of its indexed ancestors, ordered from the root down to the parent
+     */
+    public int[] ancestorSlots(int slot) {
+        int depth = 0;
+        for (int current = parentSlot(slot); current != NONE; current = parentSlot(current)) {
+            depth++;
+        }
+        int[] result = new int[depth];
+        for (int current = parentSlot(slot); current != NONE; current = parentSlot(current)) {
+            result[--depth] = current;
+        }
+        return result;
+    }
+
+    /**
+     * Collects the subtree below a category in preorder, without recursion.
+     *
+     * @param slot the slot of the subtree root
+     * @return the slots of its descendants, excluding the category itself
+     */
+    public int[] descendantSlots(int slot) {
+        int[] result = new int[CategoryTraversal.count(this, slot, CategoryTraversal.UNLIMITED) - 1];
+        CategoryTraversal.depthFirst(this, slot, CategoryTraversal.UNLIMITED, new CategoryTraversal.Visitor() {
+            private int next;
+
+            @Override
+            public boolean enter(int descendant, int depth) {
+                if (depth > 0) {
+                    result[next++] = descendant;
+                }
+                return true;
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Checks sibling-name uniqueness without materializing any name.
+     *
+     * @param parentId the parent ID, or null to look among root categories
+     * @param name the name to look for
+     * @return true if a direct child of the parent already has that name
+     */
+    public boolean hasChildNamed(Long parentId, String name) {
+        int first;
+        if (parentId == null) {
+            first = firstRoot;
+        } else {
+            int parentSlot = slotOf(parentId);
+            if (parentSlot == NONE) {
+                return false;
+            }
+            first = firstChild(parentSlot);
+        }
+        byte[] target = name.getBytes(StandardCharsets.UTF_8);
+        for (int child = first; child != NONE; child = nextSibling(child)) {
+            if ((parentId != null || parentIdAt(child) == null) && names.matches(nameRef(child), target)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns a copy of this index with the given category added, or replaced if it already exists.
+     * A replaced category whose parent changed is moved together with its subtree, and indexed
+     * categories whose parent was missing are attached to an added one.
+     *
+     * @param node the new or updated category
+     * @return the new index
+     */
+    CategoryIndex with(CategoryNode node) {
+        int slot = search(node.id());
+        if (slot < 0 && -slot - 1 < slots) {
+            // A new ID that does not sort last needs a slot in the middle.
+            return compact(node);
+        }
+        Patch patch = new Patch(this);
+        patch.put(slot, node);
+        return patch.finish();
+    }
+
+    /**
+     * Returns a copy of this index where a category and its whole subtree share the given state.
+     *
+     * @param slot the slot of the subtree root
+     * @param active the new state
+     * @return the new index
+     */
+    CategoryIndex withSubtreeActive(int slot, Boolean active) {
+        Patch patch = new Patch(this);
+        CategoryTraversal.depthFirst(this, slot, CategoryTraversal.UNLIMITED, (descendant, depth) -> {
+            patch.columns.setActive(descendant, active);
+            return true;
+        });
+        return patch.finish();
+    }
+
+    /**
+     * Returns a copy of this index where the given categories have the given state and versions.
+     *
+     * @param slots the slots of the categories
+     * @param versions the new version of each category, in the same order
+     * @param active the new state
+     * @return the new index
+     */
+    CategoryIndex withActive(int[] slots, long[] versions, Boolean active) {
+        Patch patch = new Patch(this);
+        for (int i = 0; i < slots.length; i++) {
+            patch.columns.setActive(slots[i], active);
+            patch.columns.setVersion(slots[i], versions[i]);
+        }
+        return patch.finish();
+    }
+
+    /**
+     * Returns a copy of this index without the given category and its whole subtree.
+     *
+     * @param slot the slot of the subtree root
+     * @return the new index
+     */
+    CategoryIndex without(int slot) {
+        Patch patch = new Patch(this);
+        patch.unlink(slot);
+        CategoryTraversal.depthFirst(this, slot, CategoryTraversal.UNLIMITED, (descendant, depth) -> {
+            patch.remove(descendant);
+            return true;
+        });
+        return patch.finish();
+    }
+
+    /**
+     * Estimates the memory used by this index and by the equivalent managed entity graph.
+     *
+     * @return the footprint report
+     */
+    public Footprint footprint() {
+        Footprint computed = footprint;
+        if (computed == null) {
+            computed = computeFootprint();
+            footprint = computed;
+        }
+        return computed;
+    }
+
+    private Footprint computeFootprint() {
+        long indexBytes = names.bytes();
+        for (int chunk = 0; chunk < ids.length; chunk++) {
+            indexBytes += ids[chunk].capacity() * (2L * Long.BYTES + 4L * Integer.BYTES)
+                + 3L * activeValues[chunk].length * Long.BYTES;
+        }
+
+        long nameBytes = 0;
+        for (int slot = 0; slot < slots; slot++) {
+            if (!isRemoved(slot)) {
+                nameBytes += align8(names.length(nameRef(slot)));
+            }
+        }
+        long entityGraphBytes = size * ENTITY_BYTES_PER_CATEGORY + nameBytes;
+        return new Footprint(size, names.count(), indexBytes, entityGraphBytes, offHeap);
+    }
+
+    /**
+     * Builds a new index holding the categories of this one, without unused slots or pool entries.
+     *
+     * @param extra a category to add, whose ID is not part of this index, or null
+     * @return the new index
+     */
+    private CategoryIndex compact(CategoryNode extra) {
+        int count = size + (extra != null ? 1 : 0);
+        long[] sortedIds = new long[count];
+        int[] newSlots = new int[slots];
+        int extraSlot = NONE;
+        int next = 0;
+        for (int slot = 0; slot < slots; slot++) {
+            newSlots[slot] = NONE;
+            if (isRemoved(slot)) {
+                continue;
+            }
+            long id = idAt(slot);
+            if (extra != null && extraSlot == NONE && extra.id() < id) {
+                extraSlot = next;
+                sortedIds[next++] = extra.id();
+            }
+            newSlots[slot] = next;
+            sortedIds[next++] = id;
+        }
+        if (extra != null && extraSlot == NONE) {
+            extraSlot = next;
+            sortedIds[next] = extra.id();
+        }
+
+        long[] newVersions = new long[count];
+        int[] parentSlots = new int[count];
+        byte[] actives = new byte[count];
+        int[] refs = new int[count];
+        Map<Integer, Long> detached = new HashMap<>();
+        int[] newRefs = new int[names.count()];
+        Arrays.fill(newRefs, NONE);
+        PoolBuilder pool = new PoolBuilder();
+        for (int slot = 0; slot < slots; slot++) {
+            int newSlot = newSlots[slot];
+            if (newSlot == NONE) {
+                continue;
+            }
+            int parentSlot = parentSlot(slot);
+            Long detachedParentId = detachedParentIds.get(slot);
+            if (parentSlot != NONE) {
+                parentSlots[newSlot] = newSlots[parentSlot];
+            } else if (detachedParentId != null && extra != null && detachedParentId.equals(extra.id())) {
+                parentSlots[newSlot] = extraSlot;
+            } else {
+                parentSlots[newSlot] = NONE;
+                if (detachedParentId != null) {
+                    detached.put(newSlot, detachedParentId);
+                }
+            }
+            newVersions[newSlot] = versions[slot >>> CHUNK_SHIFT].get(slot & CHUNK_MASK);
+            actives[newSlot] = stateOf(activeAt(slot));
+            int ref = nameRef(slot);
+            if (newRefs[ref] == NONE) {
+                newRefs[ref] = pool.add(names.bytes(ref));
+            }
+            refs[newSlot] = newRefs[ref];
+        }
+        if (extra != null) {
+            int parentSlot = extra.parentId() != null ? slotOf(extra.parentId()) : NONE;
+            parentSlots[extraSlot] = parentSlot != NONE ? newSlots[parentSlot] : NONE;
+            if (parentSlot == NONE && extra.parentId() != null) {
+                detached.put(extraSlot, extra.parentId());
+            }
+            newVersions[extraSlot] = versionOf(extra);
+            actives[extraSlot] = stateOf(extra.active());
+            refs[extraSlot] = pool.add(extra.name().getBytes(StandardCharsets.UTF_8));
+        }
+        return assemble(offHeap, count, sortedIds, newVersions, parentSlots, detached, actives, refs,
+            pool.build(offHeap));
+    }
+
+    /**
+     * Builds an index from slot-ordered columns, chaining children and roots in slot order.
+     */
+    private static CategoryIndex assemble(boolean offHeap, int count, long[] sortedIds, long[] versions,
+            int[] parentSlots, Map<Integer, Long> detachedParentIds, byte[] actives, int[] refs, NamePool names) {
+        Columns columns = new Columns(offHeap, count);
+        columns.size = count;
+        columns.slots = count;
+        columns.names = names;
+        columns.detachedParentIds = detachedParentIds;
+        for (int slot = 0; slot < count; slot++) {
+            columns.setId(slot, sortedIds[slot]);
+            columns.setVersion(slot, versions[slot]);
+            columns.setParent(slot, parentSlots[slot]);
+            columns.setFirstChild(slot, NONE);
+            columns.setNameRef(slot, refs[slot]);
+            columns.setActive(slot, actives[slot] == 0 ? null : actives[slot] == 2);
+        }
+
+        // Walking the slots backwards and prepending keeps every sibling chain in ascending ID order.
+        int root = NONE;
+        for (int slot = count - 1; slot >= 0; slot--) {
+            int parentSlot = parentSlots[slot];
+            if (parentSlot != NONE) {
+                columns.setNextSibling(slot, columns.firstChild(parentSlot));
+                columns.setFirstChild(parentSlot, slot);
+            } else {
+                columns.setNextSibling(slot, root);
+                root = slot;
+            }
+        }
+        columns.firstRoot = root;
+        return new CategoryIndex(columns);
+    }
+
+    /**
+     * @return the slot holding the ID, removed or not, or {@code -(insertion point) - 1}
+     */
+    private int search(long id) {
+        int low = 0;
+        int high = slots - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midId = idAt(mid);
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -low - 1;
+    }
+
+    private int nameRef(int slot) {
+        return nameRefs[slot >>> CHUNK_SHIFT].get(slot & CHUNK_MASK);
+    }
+
+    private boolean isRemoved(int slot) {
+        return bit(removed, slot);
+    }
+
+    private static boolean bit(long[][] bits, int slot) {
+        return (bits[slot >>> CHUNK_SHIFT][(slot & CHUNK_MASK) >>> 6] & (1L << slot)) != 0;
+    }
+
+    private static long versionOf(CategoryNode node) {
+        return node.version() != null ? node.version() : NO_VERSION;
+    }
+
+    private static byte stateOf(Boolean active) {
+        return active == null ? 0 : active ? (byte) 2 : (byte) 1;
+    }
+
+    private static long align8(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    private static LongBuffer allocateLongs(int length, boolean offHeap) {
+        return offHeap
+            ? ByteBuffer.allocateDirect(length * Long.BYTES).order(ByteOrder.nativeOrder()).asLongBuffer()
+            : LongBuffer.allocate(length);
+    }
+
+    private static IntBuffer allocateInts(int length, boolean offHeap) {
+        return offHeap
+            ? ByteBuffer.allocateDirect(length * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer()
+            : IntBuffer.allocate(length);
+    }
+
+    private static ByteBuffer allocateBytes(int length, boolean offHeap) {
+        return offHeap ? ByteBuffer.allocateDirect(length) : ByteBuffer.allocate(length);
+    }
+
+    /**
+     * Memory footprint of an index compared with the managed entity graph holding the same categories.
+     *
+     * @param categories the number of categories
+     * @param distinctNames the number of names in the pool
+     * @param indexBytes the bytes used by the index arrays, bitsets and name pool
+     * @param entityGraphBytes the estimated bytes retained by the same categories loaded as entities
+     * @param offHeap whether the index arrays live outside of the Java heap
+     */
+    public record Footprint(int categories, int distinctNames, long indexBytes, long entityGraphBytes, boolean offHeap) {
+
+        /**
+         * @return how many times smaller the index is than the entity graph
+         */
+        public double ratio() {
+            return indexBytes == 0 ? 0 : (double) entityGraphBytes / indexBytes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d categories (%d distinct names): index %,d bytes%s vs. entity graph ~%,d bytes (%.1fx)",
+                categories, distinctNames, indexBytes, offHeap ? " off-heap" : "", entityGraphBytes, ratio());
+        }
+    }
+
+    /**
+     * Accumulates categories before building an index. Categories can be added in any order.
+     */
+    static final class Builder {
+
+        private final boolean offHeap;
+        private int count;
+        private long[] ids;
+        private long[] versions;
+        private long[] parentIds;
+        private boolean[] hasParent;
+        private String[] names;
+        private Boolean[] actives;
+
+        Builder(int expectedSize, boolean offHeap) {
+            int capacity = Math.max(expectedSize, 8);
+            this.offHeap = offHeap;
+            this.ids = new long[capacity];
+            this.versions = new long[capacity];
+            this.parentIds = new long[capacity];
+            this.hasParent = new boolean[capacity];
+            this.names = new String[capacity];
+            this.actives = new Boolean[capacity];
+        }
+
+        Builder add(CategoryNode node) {
+            return add(node.id(), node.parentId(), node.name(), node.active(), versionOf(node));
+        }
+
+        private Builder add(long id, Long parentId, String name, Boolean active, long version) {
+            if (count == ids.length) {
+                int capacity = count * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                versions = Arrays.copyOf(versions, capacity);
+                parentIds = Arrays.copyOf(parentIds, capacity);
+                hasParent = Arrays.copyOf(hasParent, capacity);
+                names = Arrays.copyOf(names, capacity);
+                actives = Arrays.copyOf(actives, capacity);
+            }
+            ids[count] = id;
+            versions[count] = version;
+            hasParent[count] = parentId != null;
+            parentIds[count] = parentId != null ? parentId : 0L;
+            names[count] = name;
+            actives[count] = active;
+            count++;
+            return this;
+        }
+
+        CategoryIndex build() {
+            int[] order = new int[count];
+            boolean sorted = true;
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+                if (i > 0 && ids[i - 1] > ids[i]) {
+                    sorted = false;
+                }
+            }
+            if (!sorted) {
+                order = IntStream.range(0, count)
+                    .boxed()
+                    .sorted((a, b) -> Long.compare(ids[a], ids[b]))
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+            }
+
+            long[] sortedIds = new long[count];
+            long[] sortedVersions = new long[count];
+            for (int slot = 0; slot < count; slot++) {
+                sortedIds[slot] = ids[order[slot]];
+                sortedVersions[slot] = versions[order[slot]];
+                if (slot > 0 && sortedIds[slot - 1] == sortedIds[slot]) {
+                    throw new IllegalArgumentException("Duplicate category id: " + sortedIds[slot]);
+                }
+            }
+
+            int[] parentSlots = new int[count];
+            byte[] states = new byte[count];
+            int[] refs = new int[count];
+            Map<Integer, Long> detached = new HashMap<>();
+            Map<String, Integer> distinctNames = new HashMap<>();
+            PoolBuilder pool = new PoolBuilder();
+            for (int slot = 0; slot < count; slot++) {
+                int row = order[slot];
+                int parentSlot = NONE;
+                if (hasParent[row]) {
+                    parentSlot = Math.max(NONE, Arrays.binarySearch(sortedIds, parentIds[row]));
+                    if (parentSlot == NONE) {
+                        detached.put(slot, parentIds[row]);
+                    }
+                }
+                parentSlots[slot] = parentSlot;
+                states[slot] = stateOf(actives[row]);
+                Integer ref = distinctNames.get(names[row]);
+                if (ref == null) {
+                    ref = pool.add(names[row].getBytes(StandardCharsets.UTF_8));
+                    distinctNames.put(names[row], ref);
+                }
+                refs[slot] = ref;
+            }
+            return assemble(offHeap, count, sortedIds, sortedVersions, parentSlots, detached, states, refs,
+                pool.build(offHeap));
+        }
+    }
+
+    /**
+     * The columns of an index under construction. Chunks shared with the index they were copied from
+     * are copied before their first write, so that index never changes.
+     */
+    private static final class Columns {
+
+        private final boolean offHeap;
+        private int size;
+        private int slots;
+        private int firstRoot = NONE;
+        private LongBuffer[] ids;
+        private LongBuffer[] versions;
+        private IntBuffer[] parents;
+        private IntBuffer[] firstChildren;
+        private IntBuffer[] nextSiblings;
+        private IntBuffer[] nameRefs;
+        private long[][] activeValues;
+        private long[][] activeNonNull;
+        private long[][] removed;
+        private NamePool names;
+        private Map<Integer, Long> detachedParentIds;
+
+        /**
+         * Whether each chunk belongs to this index under construction, rather than to the one it was copied from.
+         */
+        private boolean[] owned;
+
+        /**
+         * Allocates the columns of a new index, the last chunk no larger than needed.
+         */
+        private Columns(boolean offHeap, int slots) {
+            this.offHeap = offHeap;
+            this.ids = new LongBuffer[0];
+            this.versions = new LongBuffer[0];
+            this.parents = new IntBuffer[0];
+            this.firstChildren = new IntBuffer[0];
+            this.nextSiblings = new IntBuffer[0];
+            this.nameRefs = new IntBuffer[0];
+            this.activeValues = new long[0][];
+            this.activeNonNull = new long[0][];
+            this.removed = new long[0][];
+            this.owned = new boolean[0];
+            for (int start = 0; start < slots; start += CHUNK_SIZE) {
+                addChunk(Math.min(CHUNK_SIZE, slots - start));
+            }
+        }
+
+        private Columns(CategoryIndex index) {
+            this.offHeap = index.offHeap;
+            this.size = index.size;
+            this.slots = index.slots;
+            this.firstRoot = index.firstRoot;
+            this.ids = index.ids.clone();
+            this.versions = index.versions.clone();
+            this.parents = index.parents.clone();
+            this.firstChildren = index.firstChildren.clone();
+            this.nextSiblings = index.nextSiblings.clone();
+            this.nameRefs = index.nameRefs.clone();
+            this.activeValues = index.activeValues.clone();
+            this.activeNonNull = index.activeNonNull.clone();
+            this.removed = index.removed.clone();
+            this.names = index.names;
+            this.detachedParentIds = index.detachedParentIds;
+            this.owned = new boolean[ids.length];
+        }
+
+        private void addChunk(int capacity) {
+            int chunk = ids.length;
+            int words = (capacity + Long.SIZE - 1) / Long.SIZE;
+            ids = Arrays.copyOf(ids, chunk + 1);
+            ids[chunk] = allocateLongs(capacity, offHeap);
+            versions = Arrays.copyOf(versions, chunk + 1);
+            versions[chunk] = allocateLongs(capacity, offHeap);
+            parents = Arrays.copyOf(parents, chunk + 1);
+            parents[chunk] = allocateInts(capacity, offHeap);
+            firstChildren = Arrays.copyOf(firstChildren, chunk + 1);
+            firstChildren[chunk] = allocateInts(capacity, offHeap);
+            nextSiblings = Arrays.copyOf(nextSiblings, chunk + 1);
+            nextSiblings[chunk] = allocateInts(capacity, offHeap);
+            nameRefs = Arrays.copyOf(nameRefs, chunk + 1);
+            nameRefs[chunk] = allocateInts(capacity, offHeap);
+            activeValues = Arrays.copyOf(activeValues, chunk + 1);
+            activeValues[chunk] = new long[words];
+            activeNonNull = Arrays.copyOf(activeNonNull, chunk + 1);
+            activeNonNull[chunk] = new long[words];
+            removed = Arrays.copyOf(removed, chunk + 1);
+            removed[chunk] = new long[words];
+            owned = Arrays.copyOf(owned, chunk + 1);
+            owned[chunk] = true;
+        }
+
+        /**
+         * Copies the chunk holding a slot, unless it was already copied or allocated here. Copies
+         * always have room for {@value CategoryIndex#CHUNK_SIZE} slots.
+         *
+         * @return the chunk
+         */
+        private int own(int slot) {
+            int chunk = slot >>> CHUNK_SHIFT;
+            if (chunk == ids.length) {
+                addChunk(CHUNK_SIZE);
+            } else if (!owned[chunk]) {
+                ids[chunk] = copy(ids[chunk]);
+                versions[chunk] = copy(versions[chunk]);
+                parents[chunk] = copy(parents[chunk]);
+                firstChildren[chunk] = copy(firstChildren[chunk]);
+                nextSiblings[chunk] = copy(nextSiblings[chunk]);
+                nameRefs[chunk] = copy(nameRefs[chunk]);
+                activeValues[chunk] = Arrays.copyOf(activeValues[chunk], WORDS_PER_CHUNK);
+                activeNonNull[chunk] = Arrays.copyOf(activeNonNull[chunk], WORDS_PER_CHUNK);
+                removed[chunk] = Arrays.copyOf(removed[chunk], WORDS_PER_CHUNK);
+                owned[chunk] = true;
+            }
+            return chunk;
+        }
+
+        private LongBuffer copy(LongBuffer chunk) {
+            return allocateLongs(CHUNK_SIZE, offHeap).put(chunk.duplicate().rewind()).rewind();
+        }
+
+        private IntBuffer copy(IntBuffer chunk) {
+            return allocateInts(CHUNK_SIZE, offHeap).put(chunk.duplicate().rewind()).rewind();
+        }
+
+        private long id(int slot) {
+            return ids[slot >>> CHUNK_SHIFT].get(slot & CHUNK_MASK);
+        }
+
+        private int parent(int slot) {
+            return parents[slot >>> CHUNK_SHIFT].get(slot & CHUNK_MASK);
+        }
+
+        private int firstChild(int slot) {
+            return firstChildren[slot >>> CHUNK_SHIFT].get(slot & CHUNK_MASK);
+        }
+
+        private int nextSibling(int slot) {
+            return nextSiblings[slot >>> CHUNK_SHIFT].get(slot & CHUNK_MASK);
+        }
+
+        private int nameRef(int slot) {
+            return nameRefs[slot >>> CHUNK_SHIFT].get(slot & CHUNK_MASK);
+        }
+
+        private boolean isRemoved(int slot) {
+            return bit(removed, slot);
+        }
+
+        private void setId(int slot, long id) {
+            int chunk = own(slot);
+            ids[chunk].put(slot & CHUNK_MASK, id);
+        }
+
+        private void setVersion(int slot, long version) {
+            int chunk = own(slot);
+            versions[chunk].put(slot & CHUNK_MASK, version);
+        }
+
+        private void setParent(int slot, int parentSlot) {
+            int chunk = own(slot);
+            parents[chunk].put(slot & CHUNK_MASK, parentSlot);
+        }
+
+        private void setFirstChild(int slot, int child) {
+            int chunk = own(slot);
+            firstChildren[chunk].put(slot & CHUNK_MASK, child);
+        }
+
+        private void setNextSibling(int slot, int sibling) {
+            int chunk = own(slot);
+            nextSiblings[chunk].put(slot & CHUNK_MASK, sibling);
+        }
+
+        private void setNameRef(int slot, int ref) {
+            int chunk = own(slot);
+            nameRefs[chunk].put(slot & CHUNK_MASK, ref);
+        }
+
+        private void setActive(int slot, Boolean active) {
+            int chunk = own(slot);
+            setBit(activeNonNull[chunk], slot, active != null);
+            setBit(activeValues[chunk], slot, Boolean.TRUE.equals(active));
+        }
+
+        private void setRemoved(int slot, boolean value) {
+            int chunk = own(slot);
+            setBit(removed[chunk], slot, value);
+        }
+
+        private static void setBit(long[] words, int slot, boolean value) {
+            int word = (slot & CHUNK_MASK) >>> 6;
+            if (value) {
+                words[word] |= 1L << slot;
+            } else {
+                words[word] &= ~(1L << slot);
+            }
+        }
+    }
+
+    /**
+     * Applies changes to a copy of an index. Every chunk starts out shared with the source index and
+     * is copied the first time one of its slots is written.
+     */
+    private static final class Patch {
+
+        private final CategoryIndex source;
+        private final Columns columns;
+
+        private Patch(CategoryIndex source) {
+            this.source = source;
+            this.columns = new Columns(source);
+        }
+
+        /**
+         * Adds or replaces a category.
+         *
+         * @param found the result of searching the category's ID in the source index
+         * @param node the category
+         */
+        private void put(int found, CategoryNode node) {
+            byte[] name = node.name().getBytes(StandardCharsets.UTF_8);
+            int parentSlot = node.parentId() != null ? liveSlotOf(node.parentId()) : NONE;
+            Long detachedParentId = parentSlot == NONE ? node.parentId() : null;
+
+            if (found >= 0 && !columns.isRemoved(found)) {
+                int slot = found;
+                if (!columns.names.matches(columns.nameRef(slot), name)) {
+                    columns.setNameRef(slot, appendName(name));
+                }
+                columns.setActive(slot, node.active());
+                columns.setVersion(slot, versionOf(node));
+                if (parentSlot != columns.parent(slot)
+                        || !Objects.equals(detachedParentId, columns.detachedParentIds.get(slot))) {
+                    unlink(slot);
+                    columns.setParent(slot, parentSlot);
+                    setDetachedParentId(slot, detachedParentId);
+                    link(slot);
+                }
+                return;
+            }
+
+            int slot;
+            if (found >= 0) {
+                slot = found;
+                columns.setRemoved(slot, false);
+            } else {
+                slot = columns.slots++;
+                columns.setId(slot, node.id());
+            }
+            columns.size++;
+            columns.setNameRef(slot, found >= 0 && columns.names.matches(columns.nameRef(slot), name)
+                ? columns.nameRef(slot)
+                : appendName(name));
+            columns.setActive(slot, node.active());
+            columns.setVersion(slot, versionOf(node));
+            columns.setFirstChild(slot, NONE);
+            columns.setParent(slot, parentSlot);
+            setDetachedParentId(slot, detachedParentId);
+            link(slot);
+            attachOrphansOf(slot);
+        }
+
+        private void remove(int slot) {
+            columns.setRemoved(slot, true);
+            columns.size--;
+            setDetachedParentId(slot, null);
+        }
+
+        /**
+         * Chains a category among its siblings, or among the roots, in ascending ID order.
+         */
+        private void link(int slot) {
+            int parentSlot = columns.parent(slot);
+            long id = columns.id(slot);
+            int previous = NONE;
+            int current = parentSlot != NONE ? columns.firstChild(parentSlot) : columns.firstRoot;
+            while (current != NONE && columns.id(current) < id) {
+                previous = current;
+                current = columns.nextSibling(current);
+            }
+            columns.setNextSibling(slot, current);
+            if (previous != NONE) {
+                columns.setNextSibling(previous, slot);
+            } else if (parentSlot != NONE) {
+                columns.setFirstChild(parentSlot, slot);
+            } else {
+                columns.firstRoot = slot;
+            }
+        }
+
+        private void unlink(int slot) {
+            int parentSlot = columns.parent(slot);
+            int previous = NONE;
+            int current = parentSlot != NONE ? columns.firstChild(parentSlot) : columns.firstRoot;
+            while (current != slot) {
+                previous = current;
+                current = columns.nextSibling(current);
+            }
+            int next = columns.nextSibling(slot);
+            if (previous != NONE) {
+                columns.setNextSibling(previous, next);
+            } else if (parentSlot != NONE) {
+                columns.setFirstChild(parentSlot, next);
+            } else {
+                columns.firstRoot = next;
+            }
+        }
+
+        /**
+         * Moves the categories that were waiting for the given one as their parent below it.
+         */
+        private void attachOrphansOf(int slot) {
+            Long id = columns.id(slot);
+            List<Integer> orphans = new ArrayList<>();
+            columns.detachedParentIds.forEach((orphan, parentId) -> {
+                if (parentId.equals(id)) {
+                    orphans.add(orphan);
+                }
+            });
+            for (int orphan : orphans) {
+                unlink(orphan);
+                columns.setParent(orphan, slot);
+                setDetachedParentId(orphan, null);
+                link(orphan);
+            }
+        }
+
+        private void setDetachedParentId(int slot, Long parentId) {
+            Map<Integer, Long> detached = columns.detachedParentIds;
+            if (Objects.equals(detached.get(slot), parentId)) {
+                return;
+            }
+            if (detached == source.detachedParentIds) {
+                detached = new HashMap<>(detached);
+                columns.detachedParentIds = detached;
+            }
+            if (parentId != null) {
+                detached.put(slot, parentId);
+            } else {
+                detached.remove(slot);
+            }
+        }
+
+        private int appendName(byte[] name) {
+            columns.names = columns.names.append(name);
+            return columns.names.count() - 1;
+        }
+
+        private int liveSlotOf(long id) {
+            int low = 0;
+            int high = columns.slots - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                long midId = columns.id(mid);
+                if (midId < id) {
+                    low = mid + 1;
+                } else if (midId > id) {
+                    high = mid - 1;
+                } else {
+                    return columns.isRemoved(mid) ? NONE : mid;
+                }
+            }
+            return NONE;
+        }
+
+        /**
+         * @return the patched index, compacted if unused slots and appended names have piled up
+         */
+        private CategoryIndex finish() {
+            CategoryIndex patched = new CategoryIndex(columns);
+            int waste = (columns.slots - columns.size) + columns.names.appendedCount();
+            return waste > Math.max(CHUNK_SIZE, columns.size / 4) ? patched.compact(null) : patched;
+        }
+    }
+
+    /**
+     * Deduplicated UTF-8 bytes of the names: a pool built in one go, followed by names appended
+     * one by one in chunks of {@value CategoryIndex#CHUNK_SIZE}, which are shared between indexes.
+     */
+    private static final class NamePool {
+
+        private final ByteBuffer pool;
+
+        /**
+         * Start offset of every pooled name, plus the end offset of the last one.
+         */
+        private final IntBuffer offsets;
+        private final int pooled;
+        private final byte[][][] appended;
+        private final int appendedCount;
+
+        private NamePool(ByteBuffer pool, IntBuffer offsets, int pooled, byte[][][] appended, int appendedCount) {
+            this.pool = pool;
+            this.offsets = offsets;
+            this.pooled = pooled;
+            this.appended = appended;
+            this.appendedCount = appendedCount;
+        }
+
+        private int count() {
+            return pooled + appendedCount;
+        }
+
+        private int appendedCount() {
+            return appendedCount;
+        }
+
+        private int length(int ref) {
+            return ref < pooled ? offsets.get(ref + 1) - offsets.get(ref) : appendedName(ref).length;
+        }
+
+        private byte[] bytes(int ref) {
+            if (ref >= pooled) {
+                return appendedName(ref);
+            }
+            int start = offsets.get(ref);
+            byte[] bytes = new byte[offsets.get(ref + 1) - start];
+            pool.get(start, bytes);
+            return bytes;
+        }
+
+        private boolean matches(int ref, byte[] target) {
+            if (ref >= pooled) {
+                return Arrays.equals(appendedName(ref), target);
+            }
+            int start = offsets.get(ref);
+            if (offsets.get(ref + 1) - start != target.length) {
+                return false;
+            }
+            for (int i = 0; i < target.length; i++) {
+                if (pool.get(start + i) != target[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private NamePool append(byte[] name) {
+            int index = appendedCount;
+            int chunk = index >>> CHUNK_SHIFT;
+            byte[][][] chunks = Arrays.copyOf(appended, Math.max(appended.length, chunk + 1));
+            chunks[chunk] = chunk < appended.length ? appended[chunk].clone() : new byte[CHUNK_SIZE][];
+            chunks[chunk][index & CHUNK_MASK] = name;
+            return new NamePool(pool, offsets, pooled, chunks, appendedCount + 1);
+        }
+
+        private long bytes() {
+            long bytes = pool.capacity() + (long) offsets.capacity() * Integer.BYTES;
+            for (int ref = pooled; ref < count(); ref++) {
+                bytes += align8(16 + length(ref)) + 4;
+            }
+            return bytes;
+        }
+
+        private byte[] appendedName(int ref) {
+            int index = ref - pooled;
+            return appended[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+        }
+    }
+
+    /**
+     * Concatenates distinct names into a new {@link NamePool}.
+     */
+    private static final class PoolBuilder {
+
+        private byte[] bytes = new byte[64];
+        private int length;
+        private int[] offsets = new int[16];
+        private int count;
+
+        /**
+         * @return the reference of the added name
+         */
+        private int add(byte[] name) {
+            if (count + 1 == offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            if (length + name.length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + name.length));
+            }
+            offsets[count] = length;
+            System.arraycopy(name, 0, bytes, length, name.length);
+            length += name.length;
+            return count++;
+        }
+
+        private NamePool build(boolean offHeap) {
+            offsets[count] = length;
+            ByteBuffer pool = allocateBytes(length, offHeap);
+            pool.put(0, bytes, 0, length);
+            IntBuffer poolOffsets = allocateInts(count + 1, offHeap);
+            poolOffsets.put(0, offsets, 0, count + 1);
+            return new NamePool(pool, poolOffsets, count, new byte[0][][], 0);
+        }
+    }
+}
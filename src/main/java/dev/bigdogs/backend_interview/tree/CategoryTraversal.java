@@ -0,0 +1,149 @@
+package dev.bigdogs.backend_interview.tree;
+
+/**
+ * Walks the subtree of a category in a {@link CategoryIndex}, without recursion.
+ *
+ * The depth-first walk keeps no stack at all: it follows the first-child, next-sibling and parent
+ * links of the index, so its memory use does not depend on the depth of the tree and hierarchies of
+ * any depth are safe to walk. The breadth-first walk uses one queue, allocated once with the exact
+ * size of the subtree.
+ *
+ * Siblings are always visited in ascending ID order.
+ */
+public final class CategoryTraversal {
+
+    /**
+     * Depth limit meaning "the whole subtree".
+     */
+    public static final int UNLIMITED = Integer.MAX_VALUE;
+
+    private CategoryTraversal() {
+    }
+
+    /**
+     * Receives the categories of a depth-first walk.
+     */
+    @FunctionalInterface
+    public interface Visitor {
+
+        /**
+         * Called before the descendants of a category, in preorder.
+         *
+         * @param slot the slot of the category
+         * @param depth its depth below the subtree root, which is at depth 0
+         * @return false to skip the descendants of the category; {@link #leave} is then not called for it
+         */
+        boolean enter(int slot, int depth);
+
+        /**
+         * Called after the descendants of a category, in postorder, if {@link #enter} returned true.
+         *
+         * @param slot the slot of the category
+         * @param depth its depth below the subtree root
+         */
+        default void leave(int slot, int depth) {
+        }
+    }
+
+    /**
+     * Receives the categories of a breadth-first walk.
+     */
+    @FunctionalInterface
+    public interface LevelVisitor {
+
+        /**
+         * @param slot the slot of the category
+         * @param depth its depth below the subtree root; never decreases from one call to the next
+         */
+        void visit(int slot, int depth);
+    }
+
+    /**
+     * Walks a subtree depth-first, calling the visitor before and after the descendants of each category.
+     *
+     * @param index the index holding the subtree
+     * @param root the slot of the subtree root
+     * @param maxDepth the deepest level to visit, or {@link #UNLIMITED}
+     * @param visitor the visitor
+     */
+    public static void depthFirst(CategoryIndex index, int root, int maxDepth, Visitor visitor) {
+        int slot = root;
+        int depth = 0;
+        while (true) {
+            boolean expanded = visitor.enter(slot, depth);
+            int child = expanded && depth < maxDepth ? index.firstChild(slot) : CategoryIndex.NONE;
+            if (child != CategoryIndex.NONE) {
+                slot = child;
+                depth++;
+                continue;
+            }
+            if (expanded) {
+                visitor.leave(slot, depth);
+            }
+
+            // Climb until a category with a next sibling is found, leaving every parent on the way.
+            while (slot != root && index.nextSibling(slot) == CategoryIndex.NONE) {
+                slot = index.parentSlot(slot);
+                depth--;
+                visitor.leave(slot, depth);
+            }
+            if (slot == root) {
+                return;
+            }
+            slot = index.nextSibling(slot);
+        }
+    }
+
+    /**
+     * Walks a subtree level by level.
+     *
+     * @param index the index holding the subtree
+     * @param root the slot of the subtree root
+     * @param maxDepth the deepest level to visit, or {@link #UNLIMITED}
+     * @param visitor the visitor
+     */
+    public static void breadthFirst(CategoryIndex index, int root, int maxDepth, LevelVisitor visitor) {
+        int[] queue = new int[count(index, root, maxDepth)];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = root;
+        int depth = 0;
+        int levelEnd = tail;
+        while (head < tail) {
+            if (head == levelEnd) {
+                depth++;
+                levelEnd = tail;
+            }
+            int slot = queue[head++];
+            visitor.visit(slot, depth);
+            if (depth < maxDepth) {
+                for (int child = index.firstChild(slot); child != CategoryIndex.NONE; child = index.nextSibling(child)) {
+                    queue[tail++] = child;
+                }
+            }
+        }
+    }
+
+    /**
+     * @param index the index holding the subtree
+     * @param root the slot of the subtree root
+     * @param maxDepth the deepest level to count, or {@link #UNLIMITED}
+     * @return the number of categories in the subtree down to that level, the root included
+     */
+    public static int count(CategoryIndex index, int root, int maxDepth) {
+        Counter counter = new Counter();
+        depthFirst(index, root, maxDepth, counter);
+        return counter.count;
+    }
+
+    private static final class Counter implements Visitor {
+
+        private int count;
+
+        @Override
+        public boolean enter(int slot, int depth) {
+            count++;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package dev.bigdogs.backend_interview.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import dev.bigdogs.backend_interview.model.CategoryNode;
+import dev.bigdogs.backend_interview.model.CategoryVersion;
+import dev.bigdogs.backend_interview.repository.CategoryRepository;
+import dev.bigdogs.backend_interview.tree.CategoryHierarchy;
+
+public class CategoryTreeCacheTest {
+
+    private CategoryRepository categoryRepository;
+
+    private CategoryTreeCache categoryTreeCache;
+
+    @BeforeEach
+    public void setUp() {
+        categoryRepository = mock(CategoryRepository.class);
+        when(categoryRepository.findAllNodes()).thenReturn(List.of(
+            new CategoryNode(1L, null, "Bebidas", null),
+            new CategoryNode(2L, 1L, "Cervezas", true)));
+        categoryTreeCache = new CategoryTreeCache(categoryRepository, true, false);
+    }
+
+    @Test
+    public void testSnapshotIsLoadedOnceAndThenServedFromMemory() {
+        CategoryHierarchy first = categoryTreeCache.getSnapshot();
+        CategoryHierarchy second = categoryTreeCache.getSnapshot();
+
+        assertSame(first, second);
+        assertEquals(2, first.size());
+        assertEquals(1, categoryTreeCache.getMissCount());
+        assertEquals(1, categoryTreeCache.getHitCount());
+        assertEquals(1, categoryTreeCache.getRebuildCount());
+        verify(categoryRepository, times(1)).findAllNodes();
+    }
+
+    @Test
+    public void testLoadedSnapshotIsNeverLoadedOnDemand() {
+        assertNull(categoryTreeCache.getLoadedSnapshot());
+
+        CategoryHierarchy loaded = categoryTreeCache.getSnapshot();
+        assertSame(loaded, categoryTreeCache.getLoadedSnapshot());
+        assertNull(new CategoryTreeCache(categoryRepository, false, false).getLoadedSnapshot());
+        verify(categoryRepository, times(1)).findAllNodes();
+    }
+
+    @Test
+    public void testWritesSwapInNewSnapshot() {
+        CategoryHierarchy original = categoryTreeCache.getSnapshot();
+
+        categoryTreeCache.nodeSaved(new CategoryNode(3L, 1L, "Vinos", true));
+        CategoryHierarchy afterCreate = categoryTreeCache.getSnapshot();
+        assertNotSame(original, afterCreate);
+        assertArrayEquals(new long[] {2L, 3L}, afterCreate.childIds(1L));
+        assertFalse(original.contains(3L));
+
+        categoryTreeCache.nodeDeleted(1L);
+        assertEquals(0, categoryTreeCache.getSnapshot().size());
+        assertEquals(1, categoryTreeCache.getRebuildCount());
+    }
+
+    @Test
+    public void testInvalidateForcesRebuild() {
+        categoryTreeCache.getSnapshot();
+        categoryTreeCache.invalidate();
+        categoryTreeCache.getSnapshot();
+
+        assertEquals(2, categoryTreeCache.getRebuildCount());
+        assertEquals(2, categoryTreeCache.getMissCount());
+        verify(categoryRepository, times(2)).findAllNodes();
+    }
+
+    @Test
+    public void testWritesBeforeFirstReadAreNotLost() {
+        categoryTreeCache.nodeSaved(new CategoryNode(3L, 1L, "Vinos", true));
+        when(categoryRepository.findAllNodes()).thenReturn(List.of(
+            new CategoryNode(1L, null, "Bebidas", null),
+            new CategoryNode(2L, 1L, "Cervezas", true),
+            new CategoryNode(3L, 1L, "Vinos", true)));
+
+        assertTrue(categoryTreeCache.getSnapshot().contains(3L));
+    }
+
+    @Test
+    public void testVersionTagChangesOnEveryWrite() {
+        String initial = categoryTreeCache.getVersionTag();
+        categoryTreeCache.getSnapshot();
+        assertEquals(initial, categoryTreeCache.getVersionTag());
+
+        categoryTreeCache.nodeSaved(new CategoryNode(3L, 1L, "Vinos", true));
+        String afterSave = categoryTreeCache.getVersionTag();
+        assertNotEquals(initial, afterSave);
+
+        CategoryTreeCache disabledCache = new CategoryTreeCache(categoryRepository, false, false);
+        String disabledInitial = disabledCache.getVersionTag();
+        disabledCache.invalidate();
+        assertNotEquals(disabledInitial, disabledCache.getVersionTag());
+    }
+
+    @Test
+    public void testVersionTagsOfTwoInstancesNeverMatch() {
+        CategoryTreeCache otherInstance = new CategoryTreeCache(categoryRepository, true, false);
+
+        assertNotEquals(categoryTreeCache.getVersionTag(), otherInstance.getVersionTag());
+    }
+
+    @Test
+    public void testSerializedTree() throws IOException {
+        assertEquals("{\"id\":1,\"name\":\"Bebidas\",\"active\":null,\"effectiveActive\":true,\"parentId\":null,"
+                + "\"subcategories\":[{\"id\":2,\"name\":\"Cervezas\",\"active\":true,\"effectiveActive\":true,"
+                + "\"parentId\":1,\"subcategories\":null}],\"ancestors\":[]}",
+            write(categoryTreeCache.getSerializedTree(1L)));
+        assertEquals("{\"id\":2,\"name\":\"Cervezas\",\"active\":true,\"effectiveActive\":true,\"parentId\":1,"
+                + "\"subcategories\":null,\"ancestors\":[{\"id\":1,\"name\":\"Bebidas\",\"active\":null,\"parentId\":null}]}",
+            write(categoryTreeCache.getSerializedTree(2L)));
+        assertNull(categoryTreeCache.getSerializedTree(9L));
+    }
+
+    @Test
+    public void testWritesOnlyEvictAffectedFragments() throws IOException {
+        categoryTreeCache.getSerializedTree(1L);
+        assertEquals(2, categoryTreeCache.getFragmentCount());
+
+        categoryTreeCache.nodeSaved(new CategoryNode(3L, 1L, "Vinos", true));
+        assertEquals(1, categoryTreeCache.getFragmentCount());
+        assertEquals(3, categoryTreeCache.getSerializedTree(1L).size());
+        assertEquals(3, categoryTreeCache.getFragmentCount());
+
+        categoryTreeCache.subtreeActiveChanged(1L, false, List.of(
+            new CategoryVersion(1L, 1L), new CategoryVersion(2L, 1L), new CategoryVersion(3L, 1L)));
+        assertEquals(0, categoryTreeCache.getFragmentCount());
+        assertTrue(write(categoryTreeCache.getSerializedTree(2L)).startsWith(
+            "{\"id\":2,\"name\":\"Cervezas\",\"active\":false,\"effectiveActive\":false,"));
+
+        categoryTreeCache.invalidate();
+        assertEquals(0, categoryTreeCache.getFragmentCount());
+    }
+
+    @Test
+    public void testChangesAppliedAfterLaterOnesAreSkipped() {
+        when(categoryRepository.findAllNodes()).thenReturn(List.of(
+            new CategoryNode(1L, null, "Bebidas", null, 0L),
+            new CategoryNode(2L, 1L, "Cervezas", true, 4L),
+            new CategoryNode(3L, 2L, "Rubias", true, 4L)));
+        categoryTreeCache.getSnapshot();
+
+        categoryTreeCache.nodeSaved(new CategoryNode(3L, 2L, "Rubias", false, 6L));
+        categoryTreeCache.nodeSaved(new CategoryNode(3L, 2L, "Rubias", true, 5L));
+        assertEquals(new CategoryNode(3L, 2L, "Rubias", false, 6L), categoryTreeCache.getSnapshot().get(3L));
+
+        categoryTreeCache.subtreeActiveChanged(2L, false, List.of(new CategoryVersion(2L, 7L), new CategoryVersion(3L, 7L)));
+        categoryTreeCache.subtreeActiveChanged(2L, true, List.of(new CategoryVersion(2L, 5L), new CategoryVersion(3L, 5L)));
+        assertFalse(categoryTreeCache.getSnapshot().get(2L).active());
+        assertFalse(categoryTreeCache.getSnapshot().get(3L).active());
+        assertEquals(1, categoryTreeCache.getRebuildCount());
+    }
+
+    @Test
+    public void testChangesOvertakenByDeletionDropTheSnapshot() {
+        categoryTreeCache.getSnapshot();
+
+        // The creation of 3 committed first, but its deletion was applied first.
+        categoryTreeCache.nodeDeleted(3L);
+        categoryTreeCache.nodeSaved(new CategoryNode(3L, 1L, "Vinos", true, 0L));
+        categoryTreeCache.getSnapshot();
+        assertEquals(2, categoryTreeCache.getRebuildCount());
+
+        // An update of 2 committed first, but the deletion of 2 was applied first.
+        categoryTreeCache.nodeDeleted(2L);
+        categoryTreeCache.nodeSaved(new CategoryNode(2L, 1L, "Cervezas", false, 3L));
+        categoryTreeCache.getSnapshot();
+        assertEquals(3, categoryTreeCache.getRebuildCount());
+
+        // A child of 2 was created first, but the deletion of 2 was applied first.
+        categoryTreeCache.nodeDeleted(2L);
+        categoryTreeCache.nodeSaved(new CategoryNode(4L, 2L, "Rubias", true, 0L));
+        assertNull(categoryTreeCache.getLoadedSnapshot());
+    }
+
+    @Test
+    public void testOffHeapSnapshot() {
+        CategoryTreeCache offHeapCache = new CategoryTreeCache(categoryRepository, true, true);
+
+        CategoryHierarchy snapshot = offHeapCache.getSnapshot();
+
+        assertTrue(snapshot.index().isOffHeap());
+        assertEquals("Cervezas", snapshot.get(2L).name());
+    }
+
+    private static String write(SerializedCategoryTree tree) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        tree.writeTo(out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,85 @@
+package dev.bigdogs.backend_interview.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import dev.bigdogs.backend_interview.dto.CategoryDTO;
+import dev.bigdogs.backend_interview.dto.CreateCategoryDTO;
+import dev.bigdogs.backend_interview.dto.UpdateCategoryDTO;
+import dev.bigdogs.backend_interview.repository.CategoryRepository;
+import dev.bigdogs.backend_interview.service.CategoryService;
+import jakarta.persistence.EntityManagerFactory;
+
+@SpringBootTest
+public class SecondLevelCacheTest {
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    public void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    public void testFindByIdIsServedFromEntityCache() {
+        CategoryDTO root = createRoot("Cache Root");
+
+        categoryRepository.findById(root.getId());
+        categoryRepository.findById(root.getId());
+
+        assertTrue(statistics.getDomainDataRegionStatistics("category").getHitCount() > 0);
+    }
+
+    @Test
+    public void testExistenceChecksUseQueryCacheAndSeeNewCategories() {
+        assertFalse(categoryRepository.existsByNameAndParentIsNull("Cache Exists"));
+        assertFalse(categoryRepository.existsByNameAndParentIsNull("Cache Exists"));
+        assertTrue(statistics.getQueryRegionStatistics("category-exists").getHitCount() > 0);
+
+        createRoot("Cache Exists");
+
+        assertTrue(categoryRepository.existsByNameAndParentIsNull("Cache Exists"));
+    }
+
+    @Test
+    public void testCachedCategoriesFollowUpdatesAndDeletes() {
+        CategoryDTO root = createRoot("Cache Flows");
+        CreateCategoryDTO childDto = new CreateCategoryDTO();
+        childDto.setName("Cache Child");
+        childDto.setParentId(root.getId());
+        CategoryDTO child = categoryService.createSubcategory(childDto);
+        assertTrue(categoryRepository.findById(child.getId()).orElseThrow().getActive());
+
+        UpdateCategoryDTO deactivate = new UpdateCategoryDTO();
+        deactivate.setActive(false);
+        categoryService.updateSubtreeActiveState(child.getId(), deactivate);
+        assertFalse(categoryRepository.findById(child.getId()).orElseThrow().getActive());
+
+        categoryService.deleteCategory(root.getId());
+        assertTrue(categoryRepository.findById(child.getId()).isEmpty());
+        assertTrue(categoryRepository.findById(root.getId()).isEmpty());
+        assertFalse(categoryRepository.existsByNameAndParentIsNull("Cache Flows"));
+    }
+
+    private CategoryDTO createRoot(String name) {
+        CreateCategoryDTO dto = new CreateCategoryDTO();
+        dto.setName(name);
+        return categoryService.createRootCategory(dto);
+    }
+}
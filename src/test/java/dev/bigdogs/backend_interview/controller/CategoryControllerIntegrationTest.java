@@ -2,8 +2,18 @@ package dev.bigdogs.backend_interview.controller;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.hamcrest.Matchers.contains;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.StreamReadConstraints;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,11 +21,15 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import dev.bigdogs.backend_interview.dto.CategoryDTO;
 import dev.bigdogs.backend_interview.dto.CreateCategoryDTO;
+import dev.bigdogs.backend_interview.dto.MoveCategoryDTO;
 import dev.bigdogs.backend_interview.dto.UpdateCategoryDTO;
 import dev.bigdogs.backend_interview.model.Category;
 import dev.bigdogs.backend_interview.repository.CategoryRepository;
+import dev.bigdogs.backend_interview.service.CategoryService;
 
 @SpringBootTest
 @AutoConfigureMockMvc
@@ -30,6 +44,339 @@ public class CategoryControllerIntegrationTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private CategoryService categoryService;
+
+    @Test
+    public void testGetTreeIncludesAncestorsAndDescendants() throws Exception {
+        Long rootId = createCategory("/categories/root", "Almacen", null);
+        Long bakeryId = createCategory("/categories/sub", "Panificados", rootId);
+        createCategory("/categories/sub", "Pan de Molde", bakeryId);
+
+        mockMvc.perform(get("/categories/{id}/tree", bakeryId))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.name").value("Panificados"))
+            .andExpect(jsonPath("$.ancestors.length()").value(1))
+            .andExpect(jsonPath("$.ancestors[0].id").value(rootId))
+            .andExpect(jsonPath("$.ancestors[0].name").value("Almacen"))
+            .andExpect(jsonPath("$.subcategories.length()").value(1))
+            .andExpect(jsonPath("$.subcategories[0].name").value("Pan de Molde"))
+            .andExpect(jsonPath("$.subcategories[0].ancestors").doesNotExist());
+    }
+
+    @Test
+    public void testTreeIsRevalidatedWithETag() throws Exception {
+        Long rootId = createCategory("/categories/root", "Conditional Root", null);
+
+        String eTag = mockMvc.perform(get("/categories/{id}/tree", rootId))
+            .andExpect(status().isOk())
+            .andExpect(header().exists("ETag"))
+            .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/categories/{id}/tree", rootId).header("If-None-Match", eTag))
+            .andExpect(status().isNotModified())
+            .andExpect(content().string(""));
+
+        createCategory("/categories/sub", "Conditional Child", rootId);
+
+        String changedETag = mockMvc.perform(get("/categories/{id}/tree", rootId).header("If-None-Match", eTag))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.subcategories[0].name").value("Conditional Child"))
+            .andReturn().getResponse().getHeader("ETag");
+        assertNotEquals(eTag, changedETag);
+    }
+
+    @Test
+    public void testFlatTreeFormat() throws Exception {
+        Long rootId = createCategory("/categories/root", "Flat Root", null);
+        Long branchId = createCategory("/categories/sub", "Flat Branch", rootId);
+        Long leafId = createCategory("/categories/sub", "Flat Leaf", branchId);
+        Long siblingId = createCategory("/categories/sub", "Flat Sibling", rootId);
+
+        mockMvc.perform(get("/categories/{id}/tree", rootId).param("format", "flat"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(4))
+            .andExpect(jsonPath("$[*].id").value(contains(rootId.intValue(), branchId.intValue(), leafId.intValue(), siblingId.intValue())))
+            .andExpect(jsonPath("$[*].depth").value(contains(0, 1, 2, 1)))
+            .andExpect(jsonPath("$[2].parentId").value(branchId))
+            .andExpect(jsonPath("$[2].name").value("Flat Leaf"));
+
+        mockMvc.perform(get("/categories/{id}/tree", rootId).param("format", "flat").param("maxDepth", "1"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(3));
+
+        mockMvc.perform(get("/categories/{id}/tree", rootId).param("format", "flat").param("limit", "1"))
+            .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/categories/{id}/tree", rootId).param("format", "nested"))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testTreesDeeperThanTheDefaultNestingLimit() throws Exception {
+        // Every level opens an object and an array, so 600 levels nest 1,200 deep, past the limit of 1,000.
+        int depth = 600;
+        CreateCategoryDTO dto = new CreateCategoryDTO();
+        dto.setName("Nested Root");
+        Long rootId = categoryService.createRootCategory(dto).getId();
+        Long deepestId = rootId;
+        for (int level = 1; level <= depth; level++) {
+            dto.setName("Nested " + level);
+            dto.setParentId(deepestId);
+            deepestId = categoryService.createSubcategory(dto).getId();
+        }
+
+        StreamReadConstraints unlimited = StreamReadConstraints.builder().maxNestingDepth(Integer.MAX_VALUE).build();
+        ObjectMapper jsonReader = JsonMapper.builder(JsonFactory.builder().streamReadConstraints(unlimited).build()).build();
+        ObjectMapper cborReader = new CBORMapper(CBORFactory.builder().streamReadConstraints(unlimited).build());
+        ObjectMapper smileReader = new SmileMapper(SmileFactory.builder().streamReadConstraints(unlimited).build());
+
+        byte[] maxDepth = mockMvc.perform(get("/categories/{id}/tree", rootId).param("maxDepth", "2000"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsByteArray();
+        assertDeepestCategory(jsonReader.readTree(maxDepth), depth, deepestId);
+
+        byte[] limited = mockMvc.perform(get("/categories/{id}/tree", rootId).param("limit", "10"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsByteArray();
+        assertDeepestCategory(jsonReader.readTree(limited), depth, deepestId);
+
+        byte[] cbor = mockMvc.perform(get("/categories/{id}/tree", rootId).accept(MediaType.APPLICATION_CBOR))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+            .andReturn().getResponse().getContentAsByteArray();
+        assertDeepestCategory(cborReader.readTree(cbor), depth, deepestId);
+
+        byte[] smile = mockMvc.perform(get("/categories/{id}/tree", rootId).accept("application/x-jackson-smile"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsByteArray();
+        assertDeepestCategory(smileReader.readTree(smile), depth, deepestId);
+    }
+
+    @Test
+    public void testBinaryWireFormats() throws Exception {
+        CBORMapper cborMapper = new CBORMapper();
+        CreateCategoryDTO createDto = new CreateCategoryDTO();
+        createDto.setName("Binary Root");
+        byte[] created = mockMvc.perform(post("/categories/root")
+                .contentType(MediaType.APPLICATION_CBOR)
+                .accept(MediaType.APPLICATION_CBOR)
+                .content(cborMapper.writeValueAsBytes(createDto)))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+            .andReturn().getResponse().getContentAsByteArray();
+        Long rootId = cborMapper.readValue(created, CategoryDTO.class).getId();
+        createCategory("/categories/sub", "Binary Child", rootId);
+
+        MvcResult json = mockMvc.perform(get("/categories/{id}/tree", rootId))
+            .andExpect(status().isOk())
+            .andExpect(header().string("Vary", "Accept"))
+            .andReturn();
+        MvcResult cbor = mockMvc.perform(get("/categories/{id}/tree", rootId).accept(MediaType.APPLICATION_CBOR))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+            .andReturn();
+        MvcResult smile = mockMvc.perform(get("/categories/{id}/tree", rootId).accept("application/x-jackson-smile"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+        byte[] jsonBytes = json.getResponse().getContentAsByteArray();
+        byte[] cborBytes = cbor.getResponse().getContentAsByteArray();
+        assertTrue(cborBytes.length < jsonBytes.length);
+        assertEquals(objectMapper.readTree(jsonBytes), cborMapper.readTree(cborBytes));
+        assertEquals(objectMapper.readTree(jsonBytes), new SmileMapper().readTree(smile.getResponse().getContentAsByteArray()));
+
+        String jsonETag = json.getResponse().getHeader("ETag");
+        String cborETag = cbor.getResponse().getHeader("ETag");
+        assertNotEquals(jsonETag, cborETag);
+        mockMvc.perform(get("/categories/{id}/tree", rootId).accept(MediaType.APPLICATION_CBOR).header("If-None-Match", jsonETag))
+            .andExpect(status().isOk());
+        mockMvc.perform(get("/categories/{id}/tree", rootId).accept(MediaType.APPLICATION_CBOR).header("If-None-Match", cborETag))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string("Vary", "Accept"));
+    }
+
+    @Test
+    public void testReactiveTreeMatchesBlockingTree() throws Exception {
+        Long rootId = createCategory("/categories/root", "Reactive Root", null);
+        Long branchId = createCategory("/categories/sub", "Reactive Branch", rootId);
+        Long leafId = createCategory("/categories/sub", "Reactive Leaf", branchId);
+        createCategory("/categories/sub", "Reactive Sibling", branchId);
+        UpdateCategoryDTO deactivate = new UpdateCategoryDTO();
+        deactivate.setActive(false);
+        mockMvc.perform(put("/categories/{id}/active", leafId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(deactivate)))
+            .andExpect(status().isOk());
+
+        String blocking = mockMvc.perform(get("/categories/{id}/tree", branchId))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString();
+
+        MvcResult pending = mockMvc.perform(get("/reactive/categories/{id}/tree", branchId))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        String reactive = mockMvc.perform(asyncDispatch(pending))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.ancestors[0].id").value(rootId))
+            .andExpect(jsonPath("$.subcategories.length()").value(2))
+            .andExpect(jsonPath("$.subcategories[0].effectiveActive").value(false))
+            .andReturn().getResponse().getContentAsString();
+
+        assertEquals(objectMapper.readTree(blocking), objectMapper.readTree(reactive));
+    }
+
+    @Test
+    public void testReactiveTreeOfMissingCategory() throws Exception {
+        MvcResult pending = mockMvc.perform(get("/reactive/categories/{id}/tree", Long.MAX_VALUE))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        mockMvc.perform(asyncDispatch(pending))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testImportJsonHierarchy() throws Exception {
+        String body = "[{\"name\": \"Bebidas Import\", \"subcategories\": ["
+            + "{\"name\": \"Cervezas\", \"subcategories\": [{\"name\": \"Rubias\"}, {\"name\": \"Negras\", \"active\": false}]},"
+            + "{\"name\": \"Vinos\"}]}]";
+
+        mockMvc.perform(post("/categories/import")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.imported").value(5));
+
+        Long rootId = categoryRepository.findByParentIsNull().stream()
+            .filter(category -> category.getName().equals("Bebidas Import"))
+            .findFirst().orElseThrow().getId();
+
+        mockMvc.perform(get("/categories/{id}/tree", rootId))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.active").doesNotExist())
+            .andExpect(jsonPath("$.subcategories.length()").value(2))
+            .andExpect(jsonPath("$.subcategories[0].name").value("Cervezas"))
+            .andExpect(jsonPath("$.subcategories[0].subcategories[0].active").value(true))
+            .andExpect(jsonPath("$.subcategories[0].subcategories[1].active").value(false));
+    }
+
+    @Test
+    public void testImportNdjsonUnderExistingParent() throws Exception {
+        Long parentId = createCategory("/categories/root", "Ndjson Import", null);
+        String body = "{\"id\": 1, \"name\": \"Lacteos\"}\n"
+            + "{\"id\": 2, \"parentId\": 1, \"name\": \"Leches\"}\n"
+            + "{\"id\": 3, \"parentId\": 1, \"name\": \"Yogures\"}\n";
+
+        mockMvc.perform(post("/categories/import")
+                .param("parentId", parentId.toString())
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .content(body))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.imported").value(3));
+
+        mockMvc.perform(get("/categories/{id}/tree", parentId))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.subcategories[0].name").value("Lacteos"))
+            .andExpect(jsonPath("$.subcategories[0].subcategories.length()").value(2));
+    }
+
+    @Test
+    public void testCreateSubcategoryRejectsDuplicateSibling() throws Exception {
+        Long rootId = createCategory("/categories/root", "Unique Siblings", null);
+        createCategory("/categories/sub", "Unique Child", rootId);
+
+        CreateCategoryDTO duplicate = new CreateCategoryDTO();
+        duplicate.setName("Unique Child");
+        duplicate.setParentId(rootId);
+        mockMvc.perform(post("/categories/sub")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(duplicate)))
+            .andExpect(status().isBadRequest());
+
+        mockMvc.perform(get("/categories/{id}/tree", rootId))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.subcategories.length()").value(1));
+    }
+
+    @Test
+    public void testImportRejectsDuplicateSiblingsAndRollsBack() throws Exception {
+        Long parentId = createCategory("/categories/root", "Duplicate Import", null);
+        String body = "{\"name\": \"Snacks\"}\n{\"name\": \"Snacks\"}\n";
+
+        mockMvc.perform(post("/categories/import")
+                .param("parentId", parentId.toString())
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .content(body))
+            .andExpect(status().isBadRequest());
+
+        mockMvc.perform(get("/categories/{id}/tree", parentId))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.subcategories").doesNotExist());
+    }
+
+    @Test
+    public void testImportNdjsonFollowsDepthFirstOrder() throws Exception {
+        Long parentId = createCategory("/categories/root", "Depth First Import", null);
+        String body = "{\"id\": 1, \"name\": \"Bebidas\"}\n"
+            + "{\"id\": 2, \"parentId\": 1, \"name\": \"Gaseosas\"}\n"
+            + "{\"id\": 3, \"parentId\": 2, \"name\": \"Cola\"}\n"
+            + "{\"id\": 4, \"parentId\": 1, \"name\": \"Aguas\"}\n"
+            + "{\"id\": 5, \"name\": \"Almacen\"}\n";
+
+        mockMvc.perform(post("/categories/import")
+                .param("parentId", parentId.toString())
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .content(body))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.imported").value(5));
+
+        mockMvc.perform(get("/categories/{id}/tree", parentId))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.subcategories.length()").value(2))
+            .andExpect(jsonPath("$.subcategories[0].subcategories.length()").value(2))
+            .andExpect(jsonPath("$.subcategories[0].subcategories[0].subcategories[0].name").value("Cola"));
+
+        // Category 2's subtree was complete once a row named its parent again.
+        String outOfOrder = "{\"id\": 1, \"name\": \"Limpieza\"}\n"
+            + "{\"id\": 2, \"parentId\": 1, \"name\": \"Detergentes\"}\n"
+            + "{\"id\": 3, \"parentId\": 1, \"name\": \"Lavandinas\"}\n"
+            + "{\"id\": 4, \"parentId\": 2, \"name\": \"Liquidos\"}\n";
+        mockMvc.perform(post("/categories/import")
+                .param("parentId", parentId.toString())
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .content(outOfOrder))
+            .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/categories/{id}/tree", parentId))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.subcategories.length()").value(2));
+    }
+
+    @Test
+    public void testExportListsSubtreesDepthFirst() throws Exception {
+        Long rootId = createCategory("/categories/root", "Export Root", null);
+        Long firstId = createCategory("/categories/sub", "Export First", rootId);
+        Long secondId = createCategory("/categories/sub", "Export Second", rootId);
+        Long grandchildId = createCategory("/categories/sub", "Export Grandchild", firstId);
+
+        MvcResult pending = mockMvc.perform(get("/categories/export"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        String export = mockMvc.perform(asyncDispatch(pending))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+            .andReturn().getResponse().getContentAsString();
+
+        String rootLine = "{\"id\":" + rootId + ",\"parentId\":null,\"name\":\"Export Root\",\"active\":null,\"depth\":0}";
+        String firstLine = "{\"id\":" + firstId + ",\"parentId\":" + rootId + ",\"name\":\"Export First\",\"active\":true,\"depth\":1}";
+        String grandchildLine = "{\"id\":" + grandchildId + ",\"parentId\":" + firstId
+            + ",\"name\":\"Export Grandchild\",\"active\":true,\"depth\":2}";
+        String secondLine = "{\"id\":" + secondId + ",\"parentId\":" + rootId + ",\"name\":\"Export Second\",\"active\":true,\"depth\":1}";
+
+        // Siblings come in the text order of their IDs, so "10" comes before "9".
+        String expected = firstId.toString().compareTo(secondId.toString()) < 0
+            ? String.join("\n", rootLine, firstLine, grandchildLine, secondLine) + "\n"
+            : String.join("\n", rootLine, secondLine, firstLine, grandchildLine) + "\n";
+        assertTrue(export.contains(expected), export);
+    }
 
     @Test
     public void testUpdateActiveState() throws Exception {
@@ -72,4 +419,79 @@ public class CategoryControllerIntegrationTest {
             .andExpect(status().isNotFound());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testDeleteCategoryRemovesWholeSubtree() throws Exception {
+        Long rootId = createCategory("/categories/root", "Delete Root", null);
+        Long branchId = createCategory("/categories/sub", "Delete Branch", rootId);
+        Long leafId = createCategory("/categories/sub", "Delete Leaf", branchId);
+
+        mockMvc.perform(delete("/categories/{id}", rootId))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.deleted").value(3));
+
+        mockMvc.perform(get("/categories/{id}/tree", branchId))
+            .andExpect(status().isNotFound());
+        mockMvc.perform(get("/categories/{id}/tree", leafId))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testMoveCategoryWithSubtree() throws Exception {
+        Long pantryId = createCategory("/categories/root", "Move Pantry", null);
+        Long breakfastId = createCategory("/categories/root", "Move Breakfast", null);
+        Long bakeryId = createCategory("/categories/sub", "Move Bakery", pantryId);
+        Long breadId = createCategory("/categories/sub", "Move Bread", bakeryId);
+
+        MoveCategoryDTO moveDto = new MoveCategoryDTO();
+        moveDto.setParentId(breakfastId);
+        mockMvc.perform(put("/categories/{id}/parent", bakeryId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(moveDto)))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.parentId").value(breakfastId));
+
+        mockMvc.perform(get("/categories/{id}/tree", breadId))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.ancestors[0].id").value(breakfastId))
+            .andExpect(jsonPath("$.ancestors[1].id").value(bakeryId));
+        mockMvc.perform(get("/categories/{id}/tree", pantryId))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.subcategories").doesNotExist());
+
+        // Moving the bakery's ancestor under the bread would create a cycle.
+        moveDto.setParentId(breadId);
+        mockMvc.perform(put("/categories/{id}/parent", breakfastId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(moveDto)))
+            .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * Follows the first subcategory of each level down to the bottom of a chain.
+     */
+    private static void assertDeepestCategory(JsonNode tree, int depth, Long deepestId) {
+        JsonNode node = tree;
+        int levels = 0;
+        while (node.get("subcategories").isArray()) {
+            assertEquals(1, node.get("subcategories").size());
+            node = node.get("subcategories").get(0);
+            levels++;
+        }
+        assertEquals(depth, levels);
+        assertEquals(deepestId, node.get("id").asLong());
+    }
+
+    private Long createCategory(String path, String name, Long parentId) throws Exception {
+        CreateCategoryDTO createDto = new CreateCategoryDTO();
+        createDto.setName(name);
+        createDto.setParentId(parentId);
+
+        String response = mockMvc.perform(post(path)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(createDto)))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(response).get("id").asLong();
+    }
+
+}
@@ -3,6 +3,8 @@ package dev.bigdogs.backend_interview.controller;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
+import java.util.List;
+
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -15,8 +17,12 @@ import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
 import dev.bigdogs.backend_interview.dto.CategoryDTO;
+import dev.bigdogs.backend_interview.dto.CategoryTreeDTO;
 import dev.bigdogs.backend_interview.dto.CreateCategoryDTO;
+import dev.bigdogs.backend_interview.dto.FlatCategoryDTO;
 import dev.bigdogs.backend_interview.dto.UpdateCategoryDTO;
+import dev.bigdogs.backend_interview.service.CategoryExportService;
+import dev.bigdogs.backend_interview.service.CategoryImportService;
 import dev.bigdogs.backend_interview.service.CategoryService;
 
 import static org.mockito.Mockito.*;
@@ -32,6 +38,14 @@ public class CategoryControllerTest {
     @MockBean
     private CategoryService categoryService; // Added MockBean for CategoryService
 
+    @SuppressWarnings("removal")
+    @MockBean
+    private CategoryImportService categoryImportService;
+
+    @SuppressWarnings("removal")
+    @MockBean
+    private CategoryExportService categoryExportService;
+
     private ObjectMapper objectMapper;
 
     @BeforeEach
@@ -94,11 +108,64 @@ public class CategoryControllerTest {
     public void testGetAncestorsAndDescendants_Success() throws Exception {
         Long categoryId = 1L;
 
+        when(categoryService.getTreeETag()).thenReturn("\"t-1\"");
+
         // Assuming CategoryTreeDTO is properly structured
         mockMvc.perform(get("/categories/{id}/tree", categoryId))
-            .andExpect(status().isOk());
+            .andExpect(status().isOk())
+            .andExpect(header().string("ETag", "\"t-1\""));
+
+        verify(categoryService, times(1)).getAncestorsAndDescendants(categoryId, null, null, null);
+    }
+
+    @Test
+    public void testGetAncestorsAndDescendants_NotModified() throws Exception {
+        Long categoryId = 1L;
+        when(categoryService.getTreeETag()).thenReturn("\"t-1\"");
+
+        mockMvc.perform(get("/categories/{id}/tree", categoryId).header("If-None-Match", "\"t-1\""))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string("ETag", "\"t-1\""))
+            .andExpect(content().string(""));
+
+        verify(categoryService, never()).getAncestorsAndDescendants(any(), any(), any(), any());
+    }
+
+    @Test
+    public void testGetAncestorsAndDescendants_Cbor() throws Exception {
+        Long categoryId = 1L;
+        CategoryTreeDTO tree = new CategoryTreeDTO();
+        tree.setId(categoryId);
+        tree.setName("Electronics");
+        when(categoryService.getTreeETag()).thenReturn("\"t-1\"");
+        when(categoryService.getAncestorsAndDescendants(categoryId, null, null, null)).thenReturn(tree);
+
+        mockMvc.perform(get("/categories/{id}/tree", categoryId).accept(MediaType.APPLICATION_CBOR))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+            .andExpect(header().string("ETag", "\"t-1+cbor\""))
+            .andExpect(header().string("Vary", "Accept"));
+
+        verify(categoryService, never()).getSerializedTree(any());
+    }
+
+    @Test
+    public void testGetAncestorsAndDescendants_Flat() throws Exception {
+        Long categoryId = 1L;
+        FlatCategoryDTO row = new FlatCategoryDTO();
+        row.setId(categoryId);
+        row.setName("Electronics");
+        row.setDepth(0);
+        when(categoryService.getTreeETag()).thenReturn("\"t-1\"");
+        when(categoryService.getFlatSubtree(categoryId, 2)).thenReturn(List.of(row));
+
+        mockMvc.perform(get("/categories/{id}/tree", categoryId).param("format", "flat").param("maxDepth", "2"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("ETag", "\"t-1+flat\""))
+            .andExpect(jsonPath("$[0].id", is(1)))
+            .andExpect(jsonPath("$[0].depth", is(0)));
 
-        verify(categoryService, times(1)).getAncestorsAndDescendants(categoryId);
+        verify(categoryService, never()).getAncestorsAndDescendants(any(), any(), any(), any());
     }
 
     @Test
@@ -127,14 +194,47 @@ public class CategoryControllerTest {
         verify(categoryService, times(1)).updateActiveState(eq(categoryId), ArgumentMatchers.<UpdateCategoryDTO>any());
     }
 
+    @Test
+    public void testUpdateActiveState_Cascade() throws Exception {
+        Long categoryId = 2L;
+        UpdateCategoryDTO updateDto = new UpdateCategoryDTO();
+        updateDto.setActive(false);
+
+        CategoryDTO responseDto = new CategoryDTO();
+        responseDto.setId(categoryId);
+        responseDto.setActive(false);
+
+        when(categoryService.updateSubtreeActiveState(eq(categoryId), ArgumentMatchers.<UpdateCategoryDTO>any())).thenReturn(responseDto);
+
+        mockMvc.perform(put("/categories/{id}/active", categoryId)
+                .param("cascade", "true")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(updateDto)))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.active", is(false)));
+
+        verify(categoryService, times(1)).updateSubtreeActiveState(eq(categoryId), ArgumentMatchers.<UpdateCategoryDTO>any());
+        verify(categoryService, never()).updateActiveState(any(), any());
+    }
+
+    @Test
+    public void testGetEffectivelyActiveIds() throws Exception {
+        when(categoryService.getEffectivelyActiveIds()).thenReturn(new long[] {1L, 3L});
+
+        mockMvc.perform(get("/categories/visible-ids"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", contains(1, 3)));
+    }
+
     @Test
     public void testDeleteCategory_Success() throws Exception {
         Long categoryId = 2L;
 
-        doNothing().when(categoryService).deleteCategory(categoryId);
+        when(categoryService.deleteCategory(categoryId)).thenReturn(3);
 
         mockMvc.perform(delete("/categories/{id}", categoryId))
-            .andExpect(status().isOk());
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.deleted", is(3)));
 
         verify(categoryService, times(1)).deleteCategory(categoryId);
     }
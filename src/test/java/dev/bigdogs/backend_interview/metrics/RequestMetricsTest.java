@@ -0,0 +1,74 @@
+package dev.bigdogs.backend_interview.metrics;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import dev.bigdogs.backend_interview.dto.CategoryDTO;
+import dev.bigdogs.backend_interview.dto.CreateCategoryDTO;
+import dev.bigdogs.backend_interview.service.CategoryService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class RequestMetricsTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    public void testRequestRecordsStatementsServiceTimerAndTreeSize() throws Exception {
+        CategoryDTO root = categoryService.createRootCategory(nameOf("Metrics Root"));
+
+        mockMvc.perform(delete("/categories/{id}", root.getId()))
+            .andExpect(status().isOk());
+
+        DistributionSummary statements = meterRegistry.get("category.request.jdbc.statements")
+            .tag("method", "DELETE")
+            .tag("uri", "/categories/{id}")
+            .summary();
+        assertTrue(statements.count() > 0);
+        assertTrue(statements.max() > 0);
+
+        Timer createTimer = meterRegistry.get("category.service")
+            .tag("class", CategoryService.class.getName())
+            .tag("method", "createRootCategory")
+            .timer();
+        assertTrue(createTimer.count() > 0);
+
+        CategoryDTO other = categoryService.createRootCategory(nameOf("Metrics Tree"));
+        mockMvc.perform(get("/categories/{id}/tree", other.getId()))
+            .andExpect(status().isOk());
+        assertTrue(meterRegistry.get("category.tree.nodes").summary().count() > 0);
+    }
+
+    @Test
+    public void testAsyncRequestsAreNotRecorded() throws Exception {
+        mockMvc.perform(get("/categories/export"))
+            .andExpect(request().asyncStarted());
+
+        assertNull(meterRegistry.find("category.request.jdbc.statements")
+            .tag("uri", "/categories/export")
+            .summary());
+    }
+
+    private static CreateCategoryDTO nameOf(String name) {
+        CreateCategoryDTO dto = new CreateCategoryDTO();
+        dto.setName(name);
+        return dto;
+    }
+}
@@ -10,8 +10,11 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
 
 import dev.bigdogs.backend_interview.model.Category;
+import dev.bigdogs.backend_interview.model.CategoryNode;
+import dev.bigdogs.backend_interview.model.CategoryPath;
 
 @DataJpaTest
 public class CategoryRepositoryTest {
@@ -109,4 +112,261 @@ public class CategoryRepositoryTest {
         assertTrue(roots.stream().anyMatch(c -> c.getName().equals("Sports")));
         assertTrue(roots.stream().anyMatch(c -> c.getName().equals("Music")));
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Test closure rows of a grandchild")
+    public void testGrandchildClosure() {
+        Category root = new Category();
+        root.setName("Almacén");
+        categoryRepository.save(root);
+        assertEquals(1, categoryRepository.insertRootClosure(root.getId()));
+
+        Category bakery = new Category();
+        bakery.setName("Panificados");
+        bakery.setParent(root);
+        categoryRepository.save(bakery);
+        assertEquals(2, categoryRepository.insertClosure(bakery.getId(), root.getId()));
+
+        Category bread = new Category();
+        bread.setName("Pan de Molde");
+        bread.setParent(bakery);
+        categoryRepository.save(bread);
+        assertEquals(3, categoryRepository.insertClosure(bread.getId(), bakery.getId()));
+
+        assertEquals(List.of("Almacén", "Panificados"),
+            categoryRepository.findAncestorNodes(bread.getId()).stream().map(CategoryNode::name).toList());
+        assertTrue(categoryRepository.isInSubtree(root.getId(), bread.getId()));
+        assertFalse(categoryRepository.isInSubtree(bread.getId(), root.getId()));
+    }
+
+    @Test
+    @DisplayName("Test node projections over the closure table")
+    public void testNodeProjections() {
+        Category root = new Category();
+        root.setName("Almacén");
+        categoryRepository.save(root);
+        categoryRepository.insertRootClosure(root.getId());
+
+        Category bakery = new Category();
+        bakery.setName("Panificados");
+        bakery.setActive(true);
+        bakery.setParent(root);
+        categoryRepository.save(bakery);
+        categoryRepository.insertClosure(bakery.getId(), root.getId());
+
+        Category bread = new Category();
+        bread.setName("Pan de Molde");
+        bread.setActive(false);
+        bread.setParent(bakery);
+        categoryRepository.save(bread);
+        categoryRepository.insertClosure(bread.getId(), bakery.getId());
+
+        assertEquals(List.of(
+                new CategoryNode(root.getId(), null, "Almacén", null),
+                new CategoryNode(bakery.getId(), root.getId(), "Panificados", true),
+                new CategoryNode(bread.getId(), bakery.getId(), "Pan de Molde", false)),
+            categoryRepository.findSubtreeNodes(root.getId()));
+        assertEquals(2, categoryRepository.findSubtreeNodesWithinDepth(root.getId(), 1).size());
+        assertTrue(categoryRepository.findSubtreeNodes(Long.MAX_VALUE).isEmpty());
+
+        assertEquals(List.of(
+                new CategoryNode(root.getId(), null, "Almacén", null),
+                new CategoryNode(bakery.getId(), root.getId(), "Panificados", true)),
+            categoryRepository.findAncestorNodes(bread.getId()));
+        assertTrue(categoryRepository.findAncestorNodes(root.getId()).isEmpty());
+
+        assertTrue(categoryRepository.isInSubtree(root.getId(), bread.getId()));
+        assertTrue(categoryRepository.isInSubtree(bakery.getId(), bakery.getId()));
+        assertFalse(categoryRepository.isInSubtree(bread.getId(), root.getId()));
+    }
+
+    @Test
+    @DisplayName("Test set-based subtree deletion")
+    public void testSubtreeDeletion() {
+        Category root = new Category();
+        root.setName("Almacén");
+        categoryRepository.save(root);
+        categoryRepository.insertRootClosure(root.getId());
+
+        Category bakery = new Category();
+        bakery.setName("Panificados");
+        bakery.setParent(root);
+        categoryRepository.save(bakery);
+        categoryRepository.insertClosure(bakery.getId(), root.getId());
+
+        Category bread = new Category();
+        bread.setName("Pan de Molde");
+        bread.setParent(bakery);
+        categoryRepository.save(bread);
+        categoryRepository.insertClosure(bread.getId(), bakery.getId());
+
+        List<Long> subtreeIds = categoryRepository.findSubtreeIds(bakery.getId());
+        assertEquals(2, subtreeIds.size());
+        assertTrue(subtreeIds.containsAll(List.of(bakery.getId(), bread.getId())));
+        assertTrue(categoryRepository.findSubtreeIds(-1L).isEmpty());
+
+        assertEquals(2, categoryRepository.detachParents(subtreeIds));
+        assertEquals(5, categoryRepository.deleteClosureOf(subtreeIds));
+        assertEquals(2, categoryRepository.deleteByIds(subtreeIds));
+
+        assertFalse(categoryRepository.existsById(bakery.getId()));
+        assertFalse(categoryRepository.existsById(bread.getId()));
+        assertTrue(categoryRepository.existsById(root.getId()));
+        assertEquals(1, categoryRepository.findSubtreeNodes(root.getId()).size());
+    }
+
+    @Test
+    @DisplayName("Test materialized path subtree and ancestor queries")
+    public void testPathQueries() {
+        Category root = new Category();
+        root.setName("Almacén");
+        categoryRepository.save(root);
+        root.setPath(CategoryPath.root(root.getId()));
+
+        Category bakery = new Category();
+        bakery.setName("Panificados");
+        bakery.setParent(root);
+        categoryRepository.save(bakery);
+        bakery.setPath(CategoryPath.child(root.getPath(), bakery.getId()));
+
+        Category bread = new Category();
+        bread.setName("Pan de Molde");
+        bread.setParent(bakery);
+        categoryRepository.save(bread);
+        bread.setPath(CategoryPath.child(bakery.getPath(), bread.getId()));
+
+        Category drinks = new Category();
+        drinks.setName("Bebidas");
+        categoryRepository.save(drinks);
+        drinks.setPath(CategoryPath.root(drinks.getId()));
+        categoryRepository.flush();
+
+        assertEquals(Optional.of(bread.getPath()), categoryRepository.findPathById(bread.getId()));
+
+        List<Category> descendants = categoryRepository.findDescendantsByPath(root.getPath());
+        assertEquals(List.of("Panificados", "Pan de Molde"), descendants.stream().map(Category::getName).toList());
+        assertEquals(List.of(bread.getId()), categoryRepository.findDescendantIdsByPath(bakery.getPath()));
+        assertTrue(categoryRepository.findDescendantIdsByPath(drinks.getPath()).isEmpty());
+
+        List<Category> ancestors = categoryRepository.findAncestorsByPath(bread.getPath());
+        assertEquals(List.of("Almacén", "Panificados"), ancestors.stream().map(Category::getName).toList());
+        assertTrue(categoryRepository.findAncestorsByPath(root.getPath()).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Test set-based subtree move")
+    public void testSubtreeMove() {
+        Category root = new Category();
+        root.setName("Almacén");
+        categoryRepository.save(root);
+        root.setPath(CategoryPath.root(root.getId()));
+        categoryRepository.insertRootClosure(root.getId());
+
+        Category bakery = new Category();
+        bakery.setName("Panificados");
+        bakery.setParent(root);
+        categoryRepository.save(bakery);
+        bakery.setPath(CategoryPath.child(root.getPath(), bakery.getId()));
+        categoryRepository.insertClosure(bakery.getId(), root.getId());
+
+        Category bread = new Category();
+        bread.setName("Pan de Molde");
+        bread.setParent(bakery);
+        categoryRepository.save(bread);
+        bread.setPath(CategoryPath.child(bakery.getPath(), bread.getId()));
+        categoryRepository.insertClosure(bread.getId(), bakery.getId());
+
+        Category breakfast = new Category();
+        breakfast.setName("Desayuno");
+        categoryRepository.save(breakfast);
+        breakfast.setPath(CategoryPath.root(breakfast.getId()));
+        categoryRepository.insertRootClosure(breakfast.getId());
+
+        String oldPath = bakery.getPath();
+        String newPath = CategoryPath.child(breakfast.getPath(), bakery.getId());
+        bakery.setParent(breakfast);
+        bakery.setPath(newPath);
+        categoryRepository.saveAndFlush(bakery);
+
+        assertEquals(2, categoryRepository.detachSubtreeClosure(bakery.getId()));
+        assertEquals(2, categoryRepository.attachSubtreeClosure(bakery.getId(), breakfast.getId()));
+        assertEquals(1, categoryRepository.rebasePaths(oldPath, newPath));
+
+        assertEquals(1, categoryRepository.findSubtreeNodes(root.getId()).size());
+        assertEquals(List.of("Desayuno", "Panificados", "Pan de Molde"),
+            categoryRepository.findSubtreeNodes(breakfast.getId()).stream().map(CategoryNode::name).toList());
+        assertEquals(List.of("Desayuno", "Panificados"),
+            categoryRepository.findAncestorNodes(bread.getId()).stream().map(CategoryNode::name).toList());
+        assertEquals(Optional.of(newPath + bread.getId() + "/"), categoryRepository.findPathById(bread.getId()));
+        assertEquals(List.of(bread.getId()), categoryRepository.findDescendantIdsByPath(newPath));
+    }
+
+    @Test
+    @DisplayName("Test subtree active update and effective visibility")
+    public void testActiveStateQueries() {
+        Category root = new Category();
+        root.setName("Almacén");
+        categoryRepository.save(root);
+        categoryRepository.insertRootClosure(root.getId());
+
+        Category bakery = new Category();
+        bakery.setName("Panificados");
+        bakery.setActive(true);
+        bakery.setParent(root);
+        categoryRepository.save(bakery);
+        categoryRepository.insertClosure(bakery.getId(), root.getId());
+
+        Category bread = new Category();
+        bread.setName("Pan de Molde");
+        bread.setActive(true);
+        bread.setParent(bakery);
+        categoryRepository.save(bread);
+        categoryRepository.insertClosure(bread.getId(), bakery.getId());
+
+        Category drinks = new Category();
+        drinks.setName("Bebidas");
+        drinks.setActive(true);
+        drinks.setParent(root);
+        categoryRepository.save(drinks);
+        categoryRepository.insertClosure(drinks.getId(), root.getId());
+
+        assertTrue(categoryRepository.findEffectivelyActiveIds()
+            .containsAll(List.of(root.getId(), bakery.getId(), bread.getId(), drinks.getId())));
+
+        assertEquals(2, categoryRepository.updateSubtreeActive(bakery.getId(), false));
+        assertFalse(categoryRepository.findById(bread.getId()).orElseThrow().getActive());
+
+        List<Long> visible = categoryRepository.findEffectivelyActiveIds();
+        assertTrue(visible.containsAll(List.of(root.getId(), drinks.getId())));
+        assertFalse(visible.contains(bakery.getId()));
+        assertFalse(visible.contains(bread.getId()));
+    }
+
+    @Test
+    @DisplayName("Test sibling names are unique per parent")
+    public void testSiblingNameConstraint() {
+        Category home = new Category();
+        home.setName("Home");
+        categoryRepository.save(home);
+        Category garden = new Category();
+        garden.setName("Garden");
+        categoryRepository.save(garden);
+
+        Category furniture = new Category();
+        furniture.setName("Furniture");
+        furniture.setParent(home);
+        categoryRepository.saveAndFlush(furniture);
+
+        Category otherParent = new Category();
+        otherParent.setName("Furniture");
+        otherParent.setParent(garden);
+        categoryRepository.saveAndFlush(otherParent);
+
+        Category duplicate = new Category();
+        duplicate.setName("Furniture");
+        duplicate.setParent(home);
+        DataIntegrityViolationException error = assertThrows(DataIntegrityViolationException.class,
+            () -> categoryRepository.saveAndFlush(duplicate));
+        assertTrue(error.getMostSpecificCause().getMessage().toLowerCase().contains(Category.SIBLING_NAME_CONSTRAINT));
+    }
+}
@@ -0,0 +1,293 @@
+package dev.bigdogs.backend_interview.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import dev.bigdogs.backend_interview.cache.CategoryTreeCache;
+import dev.bigdogs.backend_interview.dto.CategoryDTO;
+import dev.bigdogs.backend_interview.dto.CreateCategoryDTO;
+import dev.bigdogs.backend_interview.dto.MoveCategoryDTO;
+import dev.bigdogs.backend_interview.dto.UpdateCategoryDTO;
+import dev.bigdogs.backend_interview.exception.CategoryNotFoundException;
+import dev.bigdogs.backend_interview.exception.InvalidCategoryOperationException;
+import dev.bigdogs.backend_interview.model.Category;
+import dev.bigdogs.backend_interview.model.CategoryNode;
+import dev.bigdogs.backend_interview.model.CategoryPath;
+import dev.bigdogs.backend_interview.repository.CategoryRepository;
+
+@SpringBootTest
+public class CategoryConcurrencyTest {
+
+    private static final int WRITERS = 16;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private CategoryTreeCache categoryTreeCache;
+
+    @Test
+    public void testConcurrentSubcategoriesKeepSiblingNamesUnique() throws Exception {
+        Long parentId = createRoot("Concurrent Parent").getId();
+        int names = 20;
+        AtomicInteger created = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        runConcurrently(writer -> {
+            for (int i = 0; i < names; i++) {
+                CreateCategoryDTO dto = new CreateCategoryDTO();
+                dto.setName("Concurrent Item " + (i + writer) % names);
+                dto.setParentId(parentId);
+                try {
+                    categoryService.createSubcategory(dto);
+                    created.incrementAndGet();
+                } catch (InvalidCategoryOperationException e) {
+                    rejected.incrementAndGet();
+                }
+            }
+        });
+
+        List<String> childNames = categoryRepository.findChildNames(parentId);
+        assertEquals(names, created.get());
+        assertEquals(WRITERS * names - names, rejected.get());
+        assertEquals(names, childNames.size());
+        assertEquals(names, new HashSet<>(childNames).size());
+    }
+
+    @Test
+    public void testConcurrentRootsWithTheSameNameCreateOne() throws Exception {
+        AtomicInteger created = new AtomicInteger();
+
+        runConcurrently(writer -> {
+            try {
+                createRoot("Concurrent Root");
+                created.incrementAndGet();
+            } catch (InvalidCategoryOperationException e) {
+                // Expected for every writer but one.
+            }
+        });
+
+        assertEquals(1, created.get());
+        assertTrue(categoryRepository.existsByNameAndParentIsNull("Concurrent Root"));
+    }
+
+    @Test
+    public void testStaleUpdateIsRejectedByVersion() {
+        Long parentId = createRoot("Versioned Parent").getId();
+        CreateCategoryDTO childDto = new CreateCategoryDTO();
+        childDto.setName("Versioned Child");
+        childDto.setParentId(parentId);
+        Long childId = categoryService.createSubcategory(childDto).getId();
+
+        Category stale = categoryRepository.findById(childId).orElseThrow();
+        UpdateCategoryDTO deactivate = new UpdateCategoryDTO();
+        deactivate.setActive(false);
+        categoryService.updateActiveState(childId, deactivate);
+
+        Category current = categoryRepository.findById(childId).orElseThrow();
+        assertTrue(current.getVersion() > stale.getVersion());
+
+        stale.setName("Lost Update");
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> categoryRepository.saveAndFlush(stale));
+        assertEquals("Versioned Child", categoryRepository.findById(childId).orElseThrow().getName());
+    }
+
+    @Test
+    public void testCrossingMovesNeverCreateACycle() throws Exception {
+        Long rootId = createRoot("Swap Root").getId();
+        Long firstId = createChild("Swap A", rootId).getId();
+        Long secondId = createChild("Swap B", rootId).getId();
+
+        for (int round = 0; round < 10; round++) {
+            AtomicInteger firstMoved = new AtomicInteger();
+            AtomicInteger secondMoved = new AtomicInteger();
+
+            runConcurrently(writer -> {
+                boolean firstUnderSecond = writer % 2 == 0;
+                MoveCategoryDTO dto = new MoveCategoryDTO();
+                dto.setParentId(firstUnderSecond ? secondId : firstId);
+                try {
+                    categoryService.moveCategory(firstUnderSecond ? firstId : secondId, dto);
+                    (firstUnderSecond ? firstMoved : secondMoved).incrementAndGet();
+                } catch (InvalidCategoryOperationException e) {
+                    // Expected for the direction that lost the race.
+                }
+            });
+
+            assertTrue(firstMoved.get() == 0 || secondMoved.get() == 0);
+            assertEquals(rootId, rootOf(firstId));
+            assertEquals(rootId, rootOf(secondId));
+
+            MoveCategoryDTO reset = new MoveCategoryDTO();
+            reset.setParentId(rootId);
+            categoryService.moveCategory(firstId, reset);
+            categoryService.moveCategory(secondId, reset);
+        }
+    }
+
+    @Test
+    public void testCreationsUnderAMovingSubtreeFollowTheMove() throws Exception {
+        Long firstRootId = createRoot("Moving Root A").getId();
+        Long secondRootId = createRoot("Moving Root B").getId();
+        Long branchId = createChild("Moving Branch", firstRootId).getId();
+        Long parentId = createChild("Moving Parent", branchId).getId();
+
+        // One move per round: a later move back would repair the paths that an earlier one left stale.
+        for (int round = 0; round < 10; round++) {
+            String prefix = "Moving Item " + round + "-";
+            MoveCategoryDTO move = new MoveCategoryDTO();
+            move.setParentId(round % 2 == 0 ? secondRootId : firstRootId);
+            List<Long> createdIds = Collections.synchronizedList(new ArrayList<>());
+
+            runConcurrently(writer -> {
+                if (writer == 0) {
+                    categoryService.moveCategory(branchId, move);
+                } else {
+                    createdIds.add(createChild(prefix + writer, parentId).getId());
+                }
+            });
+
+            String parentPath = categoryRepository.findById(parentId).orElseThrow().getPath();
+            for (Long id : createdIds) {
+                String path = categoryRepository.findById(id).orElseThrow().getPath();
+                assertEquals(CategoryPath.child(parentPath, id), path);
+                List<Long> ancestorIds = categoryRepository.findAncestorNodes(id).stream().map(CategoryNode::id).toList();
+                assertEquals(CategoryPath.ancestorIds(path), ancestorIds, "Closure rows of category id: " + id);
+            }
+        }
+    }
+
+    @Test
+    public void testCreationsUnderADeletedSubtreeLeaveNothingBehind() throws Exception {
+        for (int round = 0; round < 10; round++) {
+            Long rootId = createRoot("Deleted Root " + round).getId();
+            Long parentId = createChild("Deleted Parent", createChild("Deleted Branch", rootId).getId()).getId();
+            List<Long> createdIds = Collections.synchronizedList(new ArrayList<>());
+
+            runConcurrently(writer -> {
+                if (writer == 0) {
+                    categoryService.deleteCategory(rootId);
+                } else {
+                    try {
+                        createdIds.add(createChild("Deleted Item " + writer, parentId).getId());
+                    } catch (CategoryNotFoundException e) {
+                        // Expected once the subtree is gone.
+                    }
+                }
+            });
+
+            for (Long id : createdIds) {
+                assertTrue(categoryRepository.findById(id).isEmpty(), "Category id: " + id);
+                assertTrue(categoryRepository.findAncestorNodes(id).isEmpty(), "Closure rows of category id: " + id);
+            }
+        }
+    }
+
+    @Test
+    public void testConcurrentStateChangesKeepTheSnapshotInStepWithTheDatabase() throws Exception {
+        Long rootId = createRoot("State Root").getId();
+        Long parentId = createChild("State Parent", rootId).getId();
+        Long childId = createChild("State Child", parentId).getId();
+        categoryTreeCache.getSnapshot();
+
+        for (int round = 0; round < 10; round++) {
+            runConcurrently(writer -> {
+                UpdateCategoryDTO dto = new UpdateCategoryDTO();
+                dto.setActive(writer % 3 != 0);
+                try {
+                    if (writer % 2 == 0) {
+                        categoryService.updateSubtreeActiveState(writer % 4 == 0 ? parentId : childId, dto);
+                    } else {
+                        categoryService.updateActiveState(writer % 4 == 1 ? parentId : childId, dto);
+                    }
+                } catch (ConcurrencyFailureException e) {
+                    // Expected once the retries of a heavily contended update run out.
+                }
+            });
+
+            for (Long id : List.of(parentId, childId)) {
+                Category stored = categoryRepository.findById(id).orElseThrow();
+                CategoryNode cached = categoryTreeCache.getSnapshot().get(id);
+                assertEquals(stored.getActive(), cached.active(), "State of category id: " + id);
+            }
+        }
+    }
+
+    private CategoryDTO createRoot(String name) {
+        CreateCategoryDTO dto = new CreateCategoryDTO();
+        dto.setName(name);
+        return categoryService.createRootCategory(dto);
+    }
+
+    private CategoryDTO createChild(String name, Long parentId) {
+        CreateCategoryDTO dto = new CreateCategoryDTO();
+        dto.setName(name);
+        dto.setParentId(parentId);
+        return categoryService.createSubcategory(dto);
+    }
+
+    /**
+     * Follows the parent links of a category, failing on a cycle instead of looping.
+     */
+    private Long rootOf(Long categoryId) {
+        Set<Long> seen = new HashSet<>();
+        Category category = categoryRepository.findById(categoryId).orElseThrow();
+        while (category.getParent() != null) {
+            assertTrue(seen.add(category.getId()), "Cycle through category id: " + category.getId());
+            category = categoryRepository.findById(category.getParent().getId()).orElseThrow();
+        }
+        return category.getId();
+    }
+
+    /**
+     * Starts every writer at the same time and waits for all of them, rethrowing the first failure.
+     */
+    private void runConcurrently(Writer writer) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < WRITERS; i++) {
+                int index = i;
+                Callable<Void> task = () -> {
+                    start.await();
+                    writer.run(index);
+                    return null;
+                };
+                futures.add(executor.submit(task));
+            }
+            start.countDown();
+            for (Future<Void> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @FunctionalInterface
+    private interface Writer {
+        void run(int index) throws Exception;
+    }
+}
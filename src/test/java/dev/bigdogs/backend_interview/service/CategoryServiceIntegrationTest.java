@@ -0,0 +1,62 @@
+package dev.bigdogs.backend_interview.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import dev.bigdogs.backend_interview.dto.CategoryTreeDTO;
+import dev.bigdogs.backend_interview.dto.CreateCategoryDTO;
+import dev.bigdogs.backend_interview.dto.MoveCategoryDTO;
+import dev.bigdogs.backend_interview.repository.CategoryRepository;
+
+@SpringBootTest
+public class CategoryServiceIntegrationTest {
+
+    /**
+     * Deep enough for the paths to outgrow the former 2,048-character column, which takes about 500
+     * levels of three- and four-digit IDs. A chain keeps depth² / 2 closure rows, so no deeper.
+     */
+    private static final int DEPTH = 600;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Test
+    public void testDeepChainIsCreatedAndMoved() {
+        CreateCategoryDTO rootDto = new CreateCategoryDTO();
+        rootDto.setName("Deep Root");
+        Long rootId = categoryService.createRootCategory(rootDto).getId();
+        rootDto.setName("Deep Target");
+        Long targetId = categoryService.createRootCategory(rootDto).getId();
+
+        Long firstId = null;
+        Long deepestId = rootId;
+        for (int level = 1; level <= DEPTH; level++) {
+            CreateCategoryDTO dto = new CreateCategoryDTO();
+            dto.setName("Level " + level);
+            dto.setParentId(deepestId);
+            deepestId = categoryService.createSubcategory(dto).getId();
+            if (firstId == null) {
+                firstId = deepestId;
+            }
+        }
+
+        String path = categoryRepository.findById(deepestId).orElseThrow().getPath();
+        assertTrue(path.length() > 2_048, "Path of " + path.length() + " characters");
+        assertEquals(DEPTH, categoryService.getAncestorsAndDescendants(deepestId).getAncestors().size());
+
+        MoveCategoryDTO move = new MoveCategoryDTO();
+        move.setParentId(targetId);
+        categoryService.moveCategory(firstId, move);
+
+        CategoryTreeDTO tree = categoryService.getAncestorsAndDescendants(deepestId);
+        assertEquals(targetId, tree.getAncestors().get(0).getId());
+        assertEquals(DEPTH, tree.getAncestors().size());
+        assertTrue(categoryRepository.findById(deepestId).orElseThrow().getPath().startsWith("/" + targetId + "/"));
+    }
+}
@@ -1,6 +1,7 @@
 
 package dev.bigdogs.backend_interview.service;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -14,27 +15,61 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.LongStream;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.support.TransactionOperations;
 
+import dev.bigdogs.backend_interview.cache.CategoryTreeCache;
 import dev.bigdogs.backend_interview.dto.CategoryDTO;
+import dev.bigdogs.backend_interview.dto.CategoryTreeDTO;
 import dev.bigdogs.backend_interview.dto.CreateCategoryDTO;
+import dev.bigdogs.backend_interview.dto.FlatCategoryDTO;
+import dev.bigdogs.backend_interview.dto.MoveCategoryDTO;
 import dev.bigdogs.backend_interview.dto.UpdateCategoryDTO;
 import dev.bigdogs.backend_interview.exception.CategoryNotFoundException;
 import dev.bigdogs.backend_interview.exception.InvalidCategoryOperationException;
 import dev.bigdogs.backend_interview.model.Category;
+import dev.bigdogs.backend_interview.model.CategoryNode;
+import dev.bigdogs.backend_interview.model.CategoryVersion;
 import dev.bigdogs.backend_interview.repository.CategoryRepository;
+import dev.bigdogs.backend_interview.tree.CategoryHierarchy;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
 public class CategoryServiceTest {
 
     @Mock
     private CategoryRepository categoryRepository;
 
+    @Mock
+    private CategoryTreeCache categoryTreeCache;
+
+    /**
+     * Splits every tree of more than one level, so that the tests cover the parallel assembly.
+     */
+    @Spy
+    private TreeAssembler treeAssembler = new TreeAssembler(2, 2);
+
+    @Spy
+    private CategoryLocks categoryLocks = new CategoryLocks();
+
+    @Spy
+    private TransactionOperations transactionOperations = TransactionOperations.withoutTransaction();
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     @InjectMocks
     private CategoryService categoryService;
 
@@ -67,6 +102,9 @@ public class CategoryServiceTest {
 
         verify(categoryRepository, times(1)).existsByNameAndParentIsNull("Electronics");
         verify(categoryRepository, times(1)).save(any(Category.class));
+        assertEquals("/1/", savedCategory.getPath());
+        verify(categoryRepository, times(1)).insertRootClosure(1L);
+        verify(categoryTreeCache, times(1)).nodeSaved(new CategoryNode(1L, null, "Electronics", null));
     }
 
     @Test
@@ -93,9 +131,9 @@ public class CategoryServiceTest {
         Category parent = new Category();
         parent.setId(1L);
         parent.setName("Electronics");
+        parent.setPath("/1/");
 
         when(categoryRepository.findById(1L)).thenReturn(Optional.of(parent));
-        when(categoryRepository.existsByNameAndParent("Mobile Phones", parent)).thenReturn(false);
 
         Category savedSubcategory = new Category();
         savedSubcategory.setId(2L);
@@ -103,7 +141,7 @@ public class CategoryServiceTest {
         savedSubcategory.setActive(true);
         savedSubcategory.setParent(parent);
 
-        when(categoryRepository.save(any(Category.class))).thenReturn(savedSubcategory);
+        when(categoryRepository.saveAndFlush(any(Category.class))).thenReturn(savedSubcategory);
 
         CategoryDTO result = categoryService.createSubcategory(dto);
 
@@ -114,8 +152,11 @@ public class CategoryServiceTest {
         assertEquals(1L, result.getParentId());
 
         verify(categoryRepository, times(1)).findById(1L);
-        verify(categoryRepository, times(1)).existsByNameAndParent("Mobile Phones", parent);
-        verify(categoryRepository, times(1)).save(any(Category.class));
+        verify(categoryRepository, never()).existsByNameAndParent(anyString(), any());
+        verify(categoryRepository, times(1)).saveAndFlush(any(Category.class));
+        assertEquals("/1/2/", savedSubcategory.getPath());
+        verify(categoryRepository, times(1)).insertClosure(2L, 1L);
+        verify(categoryTreeCache, times(1)).nodeSaved(new CategoryNode(2L, 1L, "Mobile Phones", true));
     }
 
     @Test
@@ -131,8 +172,377 @@ public class CategoryServiceTest {
         });
 
         verify(categoryRepository, times(1)).findById(1L);
-        verify(categoryRepository, never()).existsByNameAndParent(anyString(), any());
-        verify(categoryRepository, never()).save(any(Category.class));
+        verify(categoryRepository, never()).saveAndFlush(any(Category.class));
+    }
+
+    @Test
+    public void testCreateSubcategory_DuplicateName() {
+        CreateCategoryDTO dto = new CreateCategoryDTO();
+        dto.setName("Mobile Phones");
+        dto.setParentId(1L);
+
+        Category parent = new Category();
+        parent.setId(1L);
+        parent.setName("Electronics");
+        parent.setPath("/1/");
+
+        when(categoryRepository.findById(1L)).thenReturn(Optional.of(parent));
+        when(categoryRepository.saveAndFlush(any(Category.class))).thenThrow(new DataIntegrityViolationException(
+            "could not execute statement", new SQLException(
+                "Unique index or primary key violation: \"PUBLIC.UK_CATEGORIES_PARENT_NAME_INDEX_8 ON PUBLIC.CATEGORIES(PARENT_ID, NAME)\"",
+                "23505")));
+
+        assertThrows(InvalidCategoryOperationException.class, () -> {
+            categoryService.createSubcategory(dto);
+        });
+
+        verify(categoryRepository, never()).insertClosure(any(), any());
+        verify(categoryTreeCache, never()).nodeSaved(any());
+    }
+
+    @Test
+    public void testCreateSubcategory_DuplicateNameInSnapshot() {
+        CreateCategoryDTO dto = new CreateCategoryDTO();
+        dto.setName("Mobile Phones");
+        dto.setParentId(1L);
+
+        Category parent = new Category();
+        parent.setId(1L);
+        parent.setName("Electronics");
+        parent.setPath("/1/");
+
+        when(categoryRepository.findById(1L)).thenReturn(Optional.of(parent));
+        when(categoryTreeCache.getLoadedSnapshot()).thenReturn(CategoryHierarchy.of(List.of(
+            new CategoryNode(1L, null, "Electronics", null),
+            new CategoryNode(2L, 1L, "Mobile Phones", true))));
+        when(categoryRepository.existsByNameAndParent("Mobile Phones", parent)).thenReturn(true);
+
+        assertThrows(InvalidCategoryOperationException.class, () -> {
+            categoryService.createSubcategory(dto);
+        });
+
+        verify(categoryRepository, never()).saveAndFlush(any(Category.class));
+        verify(categoryTreeCache, never()).nodeSaved(any());
+    }
+
+    @Test
+    public void testCreateSubcategory_OtherIntegrityViolation() {
+        CreateCategoryDTO dto = new CreateCategoryDTO();
+        dto.setName("Mobile Phones");
+        dto.setParentId(1L);
+
+        Category parent = new Category();
+        parent.setId(1L);
+        parent.setPath("/1/");
+
+        when(categoryRepository.findById(1L)).thenReturn(Optional.of(parent));
+        when(categoryRepository.saveAndFlush(any(Category.class))).thenThrow(new DataIntegrityViolationException(
+            "could not execute statement", new SQLException("Referential integrity constraint violation", "23506")));
+
+        assertThrows(DataIntegrityViolationException.class, () -> {
+            categoryService.createSubcategory(dto);
+        });
+    }
+
+    @Test
+    public void testGetAncestorsAndDescendants_BuildsTreeFromSubtreeQuery() {
+        when(categoryRepository.findSubtreeNodes(1L)).thenReturn(List.of(
+            new CategoryNode(1L, null, "Almacén", null),
+            new CategoryNode(2L, 1L, "Panificados", true),
+            new CategoryNode(3L, 2L, "Pan de Molde", true)));
+        when(categoryRepository.findAncestorNodes(1L)).thenReturn(List.of());
+
+        CategoryTreeDTO result = categoryService.getAncestorsAndDescendants(1L);
+
+        assertEquals(1L, result.getId());
+        assertNull(result.getParentId());
+        assertEquals(1, result.getSubcategories().size());
+        CategoryTreeDTO bakeryDTO = result.getSubcategories().get(0);
+        assertEquals("Panificados", bakeryDTO.getName());
+        assertEquals(1L, bakeryDTO.getParentId());
+        assertEquals(1, bakeryDTO.getSubcategories().size());
+        assertEquals("Pan de Molde", bakeryDTO.getSubcategories().get(0).getName());
+        assertNull(bakeryDTO.getSubcategories().get(0).getSubcategories());
+        assertTrue(result.getAncestors().isEmpty());
+
+        verify(categoryRepository, times(1)).findSubtreeNodes(1L);
+        verify(categoryRepository, never()).findById(any());
+    }
+
+    @Test
+    public void testGetAncestorsAndDescendants_IncludesAncestorChain() {
+        when(categoryRepository.findSubtreeNodes(3L)).thenReturn(List.of(
+            new CategoryNode(3L, 2L, "Pan de Molde", true)));
+        when(categoryRepository.findAncestorNodes(3L)).thenReturn(List.of(
+            new CategoryNode(1L, null, "Almacén", null),
+            new CategoryNode(2L, 1L, "Panificados", true)));
+
+        CategoryTreeDTO result = categoryService.getAncestorsAndDescendants(3L);
+
+        assertEquals(2L, result.getParentId());
+        assertNull(result.getSubcategories());
+        assertEquals(2, result.getAncestors().size());
+        assertEquals(1L, result.getAncestors().get(0).getId());
+        assertNull(result.getAncestors().get(0).getParentId());
+        assertEquals(2L, result.getAncestors().get(1).getId());
+        assertEquals(1L, result.getAncestors().get(1).getParentId());
+
+        verify(categoryRepository, times(1)).findAncestorNodes(3L);
+    }
+
+    @Test
+    public void testGetAncestorsAndDescendants_ServedFromSnapshot() {
+        CategoryHierarchy snapshot = CategoryHierarchy.of(List.of(
+            new CategoryNode(1L, null, "Almacén", null),
+            new CategoryNode(2L, 1L, "Panificados", true),
+            new CategoryNode(3L, 2L, "Pan de Molde", false)));
+
+        when(categoryTreeCache.isEnabled()).thenReturn(true);
+        when(categoryTreeCache.getSnapshot()).thenReturn(snapshot);
+
+        CategoryTreeDTO result = categoryService.getAncestorsAndDescendants(2L);
+
+        assertEquals("Panificados", result.getName());
+        assertEquals(1, result.getAncestors().size());
+        assertEquals("Almacén", result.getAncestors().get(0).getName());
+        assertEquals(1, result.getSubcategories().size());
+        assertFalse(result.getSubcategories().get(0).getActive());
+
+        verify(categoryRepository, never()).findById(any());
+        verify(categoryRepository, never()).findSubtreeNodes(any());
+        verify(categoryRepository, never()).findAncestorNodes(any());
+        assertEquals(2.0, meterRegistry.get("category.tree.nodes").summary().totalAmount());
+    }
+
+    @Test
+    public void testGetAncestorsAndDescendants_ComputesEffectiveActive() {
+        CategoryHierarchy snapshot = CategoryHierarchy.of(List.of(
+            new CategoryNode(1L, null, "Almacén", null),
+            new CategoryNode(2L, 1L, "Panificados", false),
+            new CategoryNode(3L, 2L, "Pan de Molde", true),
+            new CategoryNode(4L, 3L, "Pan Lactal", true),
+            new CategoryNode(5L, 1L, "Bebidas", true)));
+
+        when(categoryTreeCache.isEnabled()).thenReturn(true);
+        when(categoryTreeCache.getSnapshot()).thenReturn(snapshot);
+
+        CategoryTreeDTO root = categoryService.getAncestorsAndDescendants(1L);
+
+        assertTrue(root.getEffectiveActive());
+        assertFalse(root.getSubcategories().get(0).getEffectiveActive());
+        assertTrue(root.getSubcategories().get(1).getEffectiveActive());
+
+        CategoryTreeDTO bread = categoryService.getAncestorsAndDescendants(3L);
+
+        assertTrue(bread.getActive());
+        assertFalse(bread.getEffectiveActive());
+        assertFalse(bread.getSubcategories().get(0).getEffectiveActive());
+    }
+
+    @Test
+    public void testGetEffectivelyActiveIds_FromSnapshotOrDatabase() {
+        CategoryHierarchy snapshot = CategoryHierarchy.of(List.of(
+            new CategoryNode(1L, null, "Almacén", null),
+            new CategoryNode(2L, 1L, "Panificados", false),
+            new CategoryNode(3L, 2L, "Pan de Molde", true)));
+
+        when(categoryTreeCache.isEnabled()).thenReturn(true);
+        when(categoryTreeCache.getSnapshot()).thenReturn(snapshot);
+
+        assertArrayEquals(new long[] {1L}, categoryService.getEffectivelyActiveIds());
+
+        when(categoryTreeCache.isEnabled()).thenReturn(false);
+        when(categoryRepository.findEffectivelyActiveIds()).thenReturn(List.of(1L, 5L));
+
+        assertArrayEquals(new long[] {1L, 5L}, categoryService.getEffectivelyActiveIds());
+    }
+
+    @Test
+    public void testGetAncestorsAndDescendants_NotInSnapshot() {
+        when(categoryTreeCache.isEnabled()).thenReturn(true);
+        when(categoryTreeCache.getSnapshot()).thenReturn(CategoryHierarchy.empty());
+
+        assertThrows(CategoryNotFoundException.class, () -> {
+            categoryService.getAncestorsAndDescendants(7L);
+        });
+    }
+
+    @Test
+    public void testGetFlatSubtree_ListsRowsInPreorder() {
+        CategoryHierarchy snapshot = CategoryHierarchy.of(List.of(
+            new CategoryNode(1L, null, "Almacén", null),
+            new CategoryNode(2L, 1L, "Panificados", false),
+            new CategoryNode(3L, 2L, "Pan de Molde", true),
+            new CategoryNode(4L, 3L, "Pan Lactal", true),
+            new CategoryNode(5L, 1L, "Bebidas", true)));
+
+        when(categoryTreeCache.isEnabled()).thenReturn(true);
+        when(categoryTreeCache.getSnapshot()).thenReturn(snapshot);
+
+        List<FlatCategoryDTO> rows = categoryService.getFlatSubtree(1L, null);
+
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), rows.stream().map(FlatCategoryDTO::getId).toList());
+        assertEquals(List.of(0, 1, 2, 3, 1), rows.stream().map(FlatCategoryDTO::getDepth).toList());
+        assertEquals(2L, rows.get(2).getParentId());
+        assertFalse(rows.get(1).getActive());
+
+        List<FlatCategoryDTO> bounded = categoryService.getFlatSubtree(2L, 1);
+
+        assertEquals(List.of(2L, 3L), bounded.stream().map(FlatCategoryDTO::getId).toList());
+        assertEquals(List.of(0, 1), bounded.stream().map(FlatCategoryDTO::getDepth).toList());
+    }
+
+    @Test
+    public void testGetFlatSubtree_LoadsSubtreeWithoutSnapshot() {
+        when(categoryTreeCache.isEnabled()).thenReturn(false);
+        when(categoryRepository.findSubtreeNodesWithinDepth(2L, 1)).thenReturn(List.of(
+            new CategoryNode(2L, 1L, "Panificados", true),
+            new CategoryNode(3L, 2L, "Pan de Molde", true)));
+
+        List<FlatCategoryDTO> rows = categoryService.getFlatSubtree(2L, 1);
+
+        assertEquals(List.of(2L, 3L), rows.stream().map(FlatCategoryDTO::getId).toList());
+        verify(categoryRepository, never()).findAncestorNodes(any());
+
+        when(categoryRepository.findSubtreeNodes(9L)).thenReturn(List.of());
+        assertThrows(CategoryNotFoundException.class, () -> {
+            categoryService.getFlatSubtree(9L, null);
+        });
+    }
+
+    @Test
+    public void testDeepHierarchyIsBuiltWithoutRecursion() {
+        int depth = 50_000;
+        List<CategoryNode> chain = new ArrayList<>(depth);
+        chain.add(new CategoryNode(1L, null, "Root", null));
+        for (long id = 2; id <= depth; id++) {
+            chain.add(new CategoryNode(id, id - 1, "Level " + id, true));
+        }
+        when(categoryTreeCache.isEnabled()).thenReturn(true);
+        when(categoryTreeCache.getSnapshot()).thenReturn(CategoryHierarchy.of(chain));
+
+        CategoryTreeDTO tree = categoryService.getAncestorsAndDescendants(1L);
+        int levels = 1;
+        while (tree.getSubcategories() != null) {
+            tree = tree.getSubcategories().get(0);
+            levels++;
+        }
+        assertEquals(depth, levels);
+        assertEquals(depth - 1, categoryService.getFlatSubtree(1L, null).get(depth - 1).getDepth());
+    }
+
+    @Test
+    public void testGetSerializedTree_NotServedWithoutSnapshot() {
+        when(categoryTreeCache.isEnabled()).thenReturn(false);
+
+        assertNull(categoryService.getSerializedTree(1L));
+        verify(categoryTreeCache, never()).getSerializedTree(any());
+    }
+
+    @Test
+    public void testGetSerializedTree_NotInSnapshot() {
+        when(categoryTreeCache.isEnabled()).thenReturn(true);
+        when(categoryTreeCache.getSerializedTree(7L)).thenReturn(null);
+
+        assertThrows(CategoryNotFoundException.class, () -> {
+            categoryService.getSerializedTree(7L);
+        });
+    }
+
+    @Test
+    public void testGetAncestorsAndDescendants_StopsAtMaxDepth() {
+        CategoryHierarchy snapshot = CategoryHierarchy.of(List.of(
+            new CategoryNode(1L, null, "Almacén", null),
+            new CategoryNode(2L, 1L, "Panificados", true),
+            new CategoryNode(3L, 2L, "Pan de Molde", true),
+            new CategoryNode(4L, 2L, "Pan Rallado", true)));
+
+        when(categoryTreeCache.isEnabled()).thenReturn(true);
+        when(categoryTreeCache.getSnapshot()).thenReturn(snapshot);
+
+        CategoryTreeDTO result = categoryService.getAncestorsAndDescendants(1L, 1, null, null);
+
+        assertNull(result.getChildCount());
+        assertNull(result.getNextCursor());
+        CategoryTreeDTO bakeryDTO = result.getSubcategories().get(0);
+        assertNull(bakeryDTO.getSubcategories());
+        assertEquals(2, bakeryDTO.getChildCount());
+        assertNotNull(bakeryDTO.getNextCursor());
+
+        CategoryTreeDTO expanded = categoryService.getAncestorsAndDescendants(2L, 1, null, bakeryDTO.getNextCursor());
+
+        assertEquals(2, expanded.getSubcategories().size());
+        assertNull(expanded.getChildCount());
+    }
+
+    @Test
+    public void testGetAncestorsAndDescendants_PaginatesChildren() {
+        CategoryHierarchy snapshot = CategoryHierarchy.of(List.of(
+            new CategoryNode(1L, null, "Almacén", null),
+            new CategoryNode(2L, 1L, "Panificados", true),
+            new CategoryNode(3L, 1L, "Bebidas", true),
+            new CategoryNode(4L, 1L, "Lácteos", true)));
+
+        when(categoryTreeCache.isEnabled()).thenReturn(true);
+        when(categoryTreeCache.getSnapshot()).thenReturn(snapshot);
+
+        CategoryTreeDTO firstPage = categoryService.getAncestorsAndDescendants(1L, null, 2, null);
+
+        assertEquals(2, firstPage.getSubcategories().size());
+        assertEquals(2L, firstPage.getSubcategories().get(0).getId());
+        assertEquals(3L, firstPage.getSubcategories().get(1).getId());
+        assertEquals(3, firstPage.getChildCount());
+        assertNotNull(firstPage.getNextCursor());
+
+        CategoryTreeDTO lastPage = categoryService.getAncestorsAndDescendants(1L, null, 2, firstPage.getNextCursor());
+
+        assertEquals(1, lastPage.getSubcategories().size());
+        assertEquals(4L, lastPage.getSubcategories().get(0).getId());
+        assertEquals(3, lastPage.getChildCount());
+        assertNull(lastPage.getNextCursor());
+    }
+
+    @Test
+    public void testGetAncestorsAndDescendants_RejectsCursorOfAnotherCategory() {
+        CategoryHierarchy snapshot = CategoryHierarchy.of(List.of(
+            new CategoryNode(1L, null, "Almacén", null),
+            new CategoryNode(2L, 1L, "Panificados", true),
+            new CategoryNode(3L, 1L, "Bebidas", true)));
+
+        when(categoryTreeCache.isEnabled()).thenReturn(true);
+        when(categoryTreeCache.getSnapshot()).thenReturn(snapshot);
+
+        String cursor = categoryService.getAncestorsAndDescendants(1L, null, 1, null).getNextCursor();
+
+        assertThrows(InvalidCategoryOperationException.class, () -> {
+            categoryService.getAncestorsAndDescendants(2L, null, 1, cursor);
+        });
+        assertThrows(InvalidCategoryOperationException.class, () -> {
+            categoryService.getAncestorsAndDescendants(1L, null, 1, "not a cursor");
+        });
+    }
+
+    @Test
+    public void testGetAncestorsAndDescendants_LoadsOneLevelPastMaxDepth() {
+        when(categoryRepository.findSubtreeNodesWithinDepth(1L, 3)).thenReturn(List.of(
+            new CategoryNode(1L, null, "Almacén", null)));
+        when(categoryRepository.findAncestorNodes(1L)).thenReturn(List.of());
+
+        categoryService.getAncestorsAndDescendants(1L, 2, null, null);
+
+        verify(categoryRepository, times(1)).findSubtreeNodesWithinDepth(1L, 3);
+        verify(categoryRepository, never()).findSubtreeNodes(any());
+    }
+
+    @Test
+    public void testGetAncestorsAndDescendants_NotFound() {
+        when(categoryRepository.findSubtreeNodes(9L)).thenReturn(List.of());
+
+        assertThrows(CategoryNotFoundException.class, () -> {
+            categoryService.getAncestorsAndDescendants(9L);
+        });
+
+        verify(categoryRepository, never()).findAncestorNodes(any());
     }
 
     @Test
@@ -150,7 +560,7 @@ public class CategoryServiceTest {
         subcategory.setParent(parent);
 
         when(categoryRepository.findById(categoryId)).thenReturn(Optional.of(subcategory));
-        when(categoryRepository.save(subcategory)).thenReturn(subcategory);
+        when(categoryRepository.saveAndFlush(subcategory)).thenReturn(subcategory);
 
         CategoryDTO result = categoryService.updateActiveState(categoryId, dto);
 
@@ -161,7 +571,8 @@ public class CategoryServiceTest {
         assertEquals(1L, result.getParentId());
 
         verify(categoryRepository, times(1)).findById(categoryId);
-        verify(categoryRepository, times(1)).save(subcategory);
+        verify(categoryRepository, times(1)).saveAndFlush(subcategory);
+        verify(categoryTreeCache, times(1)).nodeSaved(new CategoryNode(categoryId, 1L, "Mobile Phones", false));
     }
 
     @Test
@@ -183,37 +594,265 @@ public class CategoryServiceTest {
         });
 
         verify(categoryRepository, times(1)).findById(categoryId);
+        verify(categoryRepository, never()).saveAndFlush(any(Category.class));
+    }
+
+    @Test
+    public void testUpdateSubtreeActiveState_Success() {
+        Category parent = new Category();
+        parent.setId(1L);
+        parent.setName("Almacén");
+
+        Category bakery = new Category();
+        bakery.setId(2L);
+        bakery.setName("Panificados");
+        bakery.setActive(true);
+        bakery.setParent(parent);
+
+        UpdateCategoryDTO dto = new UpdateCategoryDTO();
+        dto.setActive(false);
+
+        when(categoryRepository.findById(2L)).thenReturn(Optional.of(bakery));
+        when(categoryRepository.updateSubtreeActive(2L, false)).thenReturn(4);
+        List<CategoryVersion> versions = List.of(new CategoryVersion(2L, 3L), new CategoryVersion(5L, 1L));
+        when(categoryTreeCache.isEnabled()).thenReturn(true);
+        when(categoryRepository.findSubtreeVersions(2L)).thenReturn(versions);
+
+        CategoryDTO result = categoryService.updateSubtreeActiveState(2L, dto);
+
+        assertFalse(result.getActive());
+        assertEquals(1L, result.getParentId());
+
+        verify(categoryRepository, times(1)).updateSubtreeActive(2L, false);
         verify(categoryRepository, never()).save(any(Category.class));
+        verify(categoryTreeCache, times(1)).subtreeActiveChanged(2L, false, versions);
+    }
+
+    @Test
+    public void testUpdateSubtreeActiveState_RootCategory() {
+        Category root = new Category();
+        root.setId(1L);
+        root.setName("Almacén");
+
+        UpdateCategoryDTO dto = new UpdateCategoryDTO();
+        dto.setActive(false);
+
+        when(categoryRepository.findById(1L)).thenReturn(Optional.of(root));
+
+        assertThrows(InvalidCategoryOperationException.class, () -> {
+            categoryService.updateSubtreeActiveState(1L, dto);
+        });
+
+        verify(categoryRepository, never()).updateSubtreeActive(any(), any());
+    }
+
+    @Test
+    public void testMoveCategory_Success() {
+        Category oldParent = new Category();
+        oldParent.setId(1L);
+        oldParent.setName("Almacén");
+        oldParent.setPath("/1/");
+
+        Category newParent = new Category();
+        newParent.setId(4L);
+        newParent.setName("Desayuno");
+        newParent.setPath("/4/");
+
+        Category bakery = new Category();
+        bakery.setId(2L);
+        bakery.setName("Panificados");
+        bakery.setActive(true);
+        bakery.setParent(oldParent);
+        bakery.setPath("/1/2/");
+
+        MoveCategoryDTO dto = new MoveCategoryDTO();
+        dto.setParentId(4L);
+
+        when(categoryRepository.findById(2L)).thenReturn(Optional.of(bakery));
+        when(categoryRepository.findById(4L)).thenReturn(Optional.of(newParent));
+        when(categoryRepository.isInSubtree(2L, 4L)).thenReturn(false);
+        when(categoryRepository.existsByNameAndParent("Panificados", newParent)).thenReturn(false);
+        when(categoryRepository.saveAndFlush(bakery)).thenReturn(bakery);
+
+        CategoryDTO result = categoryService.moveCategory(2L, dto);
+
+        assertEquals(4L, result.getParentId());
+        assertTrue(result.getActive());
+        assertEquals("/4/2/", bakery.getPath());
+
+        verify(categoryRepository, times(1)).detachSubtreeClosure(2L);
+        verify(categoryRepository, times(1)).attachSubtreeClosure(2L, 4L);
+        verify(categoryRepository, times(1)).rebasePaths("/1/2/", "/4/2/");
+        verify(categoryTreeCache, times(1)).nodeSaved(new CategoryNode(2L, 4L, "Panificados", true));
+    }
+
+    @Test
+    public void testMoveCategory_NameMissingFromSnapshotIsNotQueried() {
+        Category oldParent = new Category();
+        oldParent.setId(1L);
+        oldParent.setPath("/1/");
+
+        Category newParent = new Category();
+        newParent.setId(4L);
+        newParent.setPath("/4/");
+
+        Category bakery = new Category();
+        bakery.setId(2L);
+        bakery.setName("Panificados");
+        bakery.setActive(true);
+        bakery.setParent(oldParent);
+        bakery.setPath("/1/2/");
+
+        MoveCategoryDTO dto = new MoveCategoryDTO();
+        dto.setParentId(4L);
+
+        when(categoryRepository.findById(2L)).thenReturn(Optional.of(bakery));
+        when(categoryRepository.findById(4L)).thenReturn(Optional.of(newParent));
+        when(categoryRepository.isInSubtree(2L, 4L)).thenReturn(false);
+        when(categoryTreeCache.getLoadedSnapshot()).thenReturn(CategoryHierarchy.of(List.of(
+            new CategoryNode(1L, null, "Almacén", null),
+            new CategoryNode(2L, 1L, "Panificados", true),
+            new CategoryNode(4L, null, "Desayuno", null),
+            new CategoryNode(5L, 4L, "Infusiones", true))));
+        when(categoryRepository.saveAndFlush(bakery)).thenReturn(bakery);
+
+        categoryService.moveCategory(2L, dto);
+
+        verify(categoryRepository, never()).existsByNameAndParent(anyString(), any());
+        verify(categoryRepository, times(1)).saveAndFlush(bakery);
+    }
+
+    @Test
+    public void testMoveCategory_ToRootClearsActive() {
+        Category parent = new Category();
+        parent.setId(1L);
+        parent.setName("Almacén");
+        parent.setPath("/1/");
+
+        Category bakery = new Category();
+        bakery.setId(2L);
+        bakery.setName("Panificados");
+        bakery.setActive(false);
+        bakery.setParent(parent);
+        bakery.setPath("/1/2/");
+
+        when(categoryRepository.findById(2L)).thenReturn(Optional.of(bakery));
+        when(categoryRepository.existsByNameAndParentIsNull("Panificados")).thenReturn(false);
+        when(categoryRepository.saveAndFlush(bakery)).thenReturn(bakery);
+
+        CategoryDTO result = categoryService.moveCategory(2L, new MoveCategoryDTO());
+
+        assertNull(result.getParentId());
+        assertNull(result.getActive());
+        assertEquals("/2/", bakery.getPath());
+
+        verify(categoryRepository, times(1)).detachSubtreeClosure(2L);
+        verify(categoryRepository, never()).attachSubtreeClosure(any(), any());
+        verify(categoryRepository, times(1)).rebasePaths("/1/2/", "/2/");
+    }
+
+    @Test
+    public void testMoveCategory_UnderOwnDescendant() {
+        Category root = new Category();
+        root.setId(1L);
+        root.setName("Almacén");
+
+        Category bakery = new Category();
+        bakery.setId(2L);
+        bakery.setName("Panificados");
+        bakery.setParent(root);
+
+        MoveCategoryDTO dto = new MoveCategoryDTO();
+        dto.setParentId(2L);
+
+        when(categoryRepository.findById(1L)).thenReturn(Optional.of(root));
+        when(categoryRepository.findById(2L)).thenReturn(Optional.of(bakery));
+        when(categoryRepository.isInSubtree(1L, 2L)).thenReturn(true);
+
+        assertThrows(InvalidCategoryOperationException.class, () -> {
+            categoryService.moveCategory(1L, dto);
+        });
+
+        MoveCategoryDTO self = new MoveCategoryDTO();
+        self.setParentId(1L);
+        assertThrows(InvalidCategoryOperationException.class, () -> {
+            categoryService.moveCategory(1L, self);
+        });
+
+        verify(categoryRepository, never()).saveAndFlush(any(Category.class));
+        verify(categoryRepository, never()).detachSubtreeClosure(any());
+    }
+
+    @Test
+    public void testMoveCategory_DuplicateName() {
+        Category bakery = new Category();
+        bakery.setId(2L);
+        bakery.setName("Panificados");
+
+        Category drinks = new Category();
+        drinks.setId(3L);
+        drinks.setName("Bebidas");
+
+        MoveCategoryDTO dto = new MoveCategoryDTO();
+        dto.setParentId(3L);
+
+        when(categoryRepository.findById(2L)).thenReturn(Optional.of(bakery));
+        when(categoryRepository.findById(3L)).thenReturn(Optional.of(drinks));
+        when(categoryRepository.isInSubtree(2L, 3L)).thenReturn(false);
+        when(categoryRepository.existsByNameAndParent("Panificados", drinks)).thenReturn(true);
+
+        assertThrows(InvalidCategoryOperationException.class, () -> {
+            categoryService.moveCategory(2L, dto);
+        });
+
+        verify(categoryRepository, never()).saveAndFlush(any(Category.class));
     }
 
     @Test
     public void testDeleteCategory_Success() {
         Long categoryId = 2L;
+        List<Long> subtreeIds = List.of(2L, 5L, 6L);
 
-        Category subcategory = new Category();
-        subcategory.setId(categoryId);
-        subcategory.setName("Mobile Phones");
+        when(categoryRepository.findSubtreeIds(categoryId)).thenReturn(subtreeIds);
+        when(categoryRepository.deleteByIds(subtreeIds)).thenReturn(3);
 
-        when(categoryRepository.findById(categoryId)).thenReturn(Optional.of(subcategory));
+        assertEquals(3, categoryService.deleteCategory(categoryId));
 
-        categoryService.deleteCategory(categoryId);
+        verify(categoryRepository, times(1)).detachParents(subtreeIds);
+        verify(categoryRepository, times(1)).deleteClosureOf(subtreeIds);
+        verify(categoryRepository, times(1)).deleteByIds(subtreeIds);
+        verify(categoryRepository, never()).delete(any(Category.class));
+        verify(categoryTreeCache, times(1)).nodeDeleted(categoryId);
+    }
 
-        verify(categoryRepository, times(1)).findById(categoryId);
-        verify(categoryRepository, times(1)).delete(subcategory);
+    @Test
+    public void testDeleteCategory_SplitsLargeSubtreesIntoChunks() {
+        Long categoryId = 1L;
+        List<Long> subtreeIds = LongStream.rangeClosed(1, 2500).boxed().toList();
+
+        when(categoryRepository.findSubtreeIds(categoryId)).thenReturn(subtreeIds);
+        when(categoryRepository.deleteByIds(any())).thenAnswer(invocation -> invocation.<List<Long>>getArgument(0).size());
+
+        assertEquals(2500, categoryService.deleteCategory(categoryId));
+
+        verify(categoryRepository, times(3)).detachParents(any());
+        verify(categoryRepository, times(3)).deleteClosureOf(any());
+        verify(categoryRepository, times(3)).deleteByIds(any());
     }
 
     @Test
     public void testDeleteCategory_NotFound() {
         Long categoryId = 3L;
 
-        when(categoryRepository.findById(categoryId)).thenReturn(Optional.empty());
+        when(categoryRepository.findSubtreeIds(categoryId)).thenReturn(List.of());
 
         assertThrows(CategoryNotFoundException.class, () -> {
             categoryService.deleteCategory(categoryId);
         });
 
-        verify(categoryRepository, times(1)).findById(categoryId);
-        verify(categoryRepository, never()).delete(any(Category.class));
+        verify(categoryRepository, times(1)).findSubtreeIds(categoryId);
+        verify(categoryRepository, never()).deleteByIds(any());
+        verify(categoryTreeCache, never()).nodeDeleted(any());
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,83 @@
+package dev.bigdogs.backend_interview.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import dev.bigdogs.backend_interview.model.CategoryNode;
+import dev.bigdogs.backend_interview.tree.CategoryIndex;
+import dev.bigdogs.backend_interview.tree.CategoryTraversal;
+
+public class TreeAssemblerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final TreeAssembler sequential = new TreeAssembler(1, Integer.MAX_VALUE);
+
+    private final TreeAssembler parallel = new TreeAssembler(4, 16);
+
+    @AfterEach
+    public void tearDown() {
+        sequential.destroy();
+        parallel.destroy();
+    }
+
+    @Test
+    public void testParallelAssemblyMatchesSequentialAssembly() throws JsonProcessingException {
+        CategoryIndex index = CategoryIndex.of(randomTree(5_000), false);
+        int root = index.slotOf(1L);
+
+        assertSameTree(index, root, CategoryTraversal.UNLIMITED, Integer.MAX_VALUE, null);
+        assertSameTree(index, root, 2, Integer.MAX_VALUE, null);
+        assertSameTree(index, root, CategoryTraversal.UNLIMITED, 3, null);
+        assertSameTree(index, root, CategoryTraversal.UNLIMITED, 3, index.idAt(index.firstChild(root)));
+        assertSameTree(index, index.firstChild(root), 4, 5, null);
+    }
+
+    @Test
+    public void testDeepChainIsNotSplitWithoutBound() throws JsonProcessingException {
+        List<CategoryNode> chain = new ArrayList<>();
+        chain.add(new CategoryNode(1L, null, "Root", null));
+        for (long id = 2; id <= 50_000; id++) {
+            chain.add(new CategoryNode(id, id - 1, "Level " + id, true));
+        }
+        CategoryIndex index = CategoryIndex.of(chain, false);
+
+        TreeAssembler.AssembledTree tree = parallel.assemble(index, index.slotOf(1L), CategoryTraversal.UNLIMITED,
+            Integer.MAX_VALUE, null, true);
+
+        assertEquals(50_000, tree.size());
+    }
+
+    private void assertSameTree(CategoryIndex index, int root, int maxDepth, int limit, Long afterId)
+            throws JsonProcessingException {
+        TreeAssembler.AssembledTree expected = sequential.assemble(index, root, maxDepth, limit, afterId, true);
+        TreeAssembler.AssembledTree actual = parallel.assemble(index, root, maxDepth, limit, afterId, true);
+
+        assertEquals(objectMapper.writeValueAsString(expected.tree()), objectMapper.writeValueAsString(actual.tree()));
+        assertEquals(expected.size(), actual.size());
+    }
+
+    /**
+     * A wide, uneven hierarchy under category 1, with a few inactive categories.
+     */
+    private static List<CategoryNode> randomTree(int size) {
+        Random random = new Random(42);
+        List<CategoryNode> nodes = new ArrayList<>(size);
+        nodes.add(new CategoryNode(1L, null, "Root", null));
+        for (long id = 2; id <= size; id++) {
+            // Skewed towards early IDs, so that some subtrees are much larger than others.
+            long parentId = 1 + (long) ((id - 1) * Math.pow(random.nextDouble(), 3));
+            nodes.add(new CategoryNode(id, parentId, "Category " + id, random.nextInt(20) != 0));
+        }
+        return nodes;
+    }
+}
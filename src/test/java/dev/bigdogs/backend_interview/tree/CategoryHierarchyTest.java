@@ -0,0 +1,181 @@
+package dev.bigdogs.backend_interview.tree;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import dev.bigdogs.backend_interview.model.CategoryNode;
+
+public class CategoryHierarchyTest {
+
+    private final CategoryHierarchy hierarchy = CategoryHierarchy.of(List.of(
+        new CategoryNode(4L, 2L, "Pan Lactal", true),
+        new CategoryNode(1L, null, "Almacén", null),
+        new CategoryNode(3L, 1L, "Bebidas", true),
+        new CategoryNode(2L, 1L, "Panificados", true)));
+
+    @Test
+    public void testChildIdsAreSorted() {
+        assertArrayEquals(new long[] {2L, 3L}, hierarchy.childIds(1L));
+        assertArrayEquals(new long[] {4L}, hierarchy.childIds(2L));
+        assertArrayEquals(new long[0], hierarchy.childIds(4L));
+    }
+
+    @Test
+    public void testAncestorsFromRootToParent() {
+        List<CategoryNode> ancestors = hierarchy.ancestors(4L);
+        assertEquals(List.of(1L, 2L), ancestors.stream().map(CategoryNode::id).toList());
+        assertTrue(hierarchy.ancestors(1L).isEmpty());
+        assertTrue(hierarchy.ancestors(99L).isEmpty());
+    }
+
+    @Test
+    public void testWithAddsNodeWithoutTouchingOriginal() {
+        CategoryHierarchy updated = hierarchy.with(new CategoryNode(5L, 2L, "Pan de Molde", true));
+
+        assertArrayEquals(new long[] {4L, 5L}, updated.childIds(2L));
+        assertEquals(5, updated.size());
+        assertArrayEquals(new long[] {4L}, hierarchy.childIds(2L));
+        assertFalse(hierarchy.contains(5L));
+    }
+
+    @Test
+    public void testWithReplacesNodeAndMovesIt() {
+        CategoryHierarchy renamed = hierarchy.with(new CategoryNode(4L, 2L, "Pan Lactal", false));
+        assertFalse(renamed.get(4L).active());
+        assertArrayEquals(new long[] {4L}, renamed.childIds(2L));
+
+        CategoryHierarchy moved = hierarchy.with(new CategoryNode(4L, 3L, "Pan Lactal", true));
+        assertArrayEquals(new long[0], moved.childIds(2L));
+        assertArrayEquals(new long[] {4L}, moved.childIds(3L));
+    }
+
+    @Test
+    public void testWithoutRemovesWholeSubtree() {
+        CategoryHierarchy updated = hierarchy.without(2L);
+
+        assertEquals(2, updated.size());
+        assertFalse(updated.contains(2L));
+        assertFalse(updated.contains(4L));
+        assertArrayEquals(new long[] {3L}, updated.childIds(1L));
+        assertSame(hierarchy, hierarchy.without(99L));
+    }
+
+    @Test
+    public void testWithSubtreeActiveUpdatesWholeSubtree() {
+        CategoryHierarchy updated = hierarchy.withSubtreeActive(2L, false);
+
+        assertFalse(updated.get(2L).active());
+        assertFalse(updated.get(4L).active());
+        assertTrue(updated.get(3L).active());
+        assertArrayEquals(new long[] {4L}, updated.childIds(2L));
+        assertTrue(hierarchy.get(4L).active());
+        assertSame(hierarchy, hierarchy.withSubtreeActive(99L, false));
+    }
+
+    @Test
+    public void testEffectivelyActiveIdsSkipInactiveSubtrees() {
+        assertArrayEquals(new long[] {1L, 2L, 3L, 4L}, hierarchy.effectivelyActiveIds());
+
+        CategoryHierarchy hidden = hierarchy.with(new CategoryNode(2L, 1L, "Panificados", false));
+        assertArrayEquals(new long[] {1L, 3L}, hidden.effectivelyActiveIds());
+        assertArrayEquals(new long[0], CategoryHierarchy.empty().effectivelyActiveIds());
+    }
+
+    @Test
+    public void testPatchedHierarchyMatchesRebuiltOne() {
+        for (boolean offHeap : new boolean[] {false, true}) {
+            Random random = new Random(7);
+            Map<Long, CategoryNode> nodes = new HashMap<>();
+            CategoryHierarchy patched = CategoryHierarchy.of(List.of(), offHeap);
+            CategoryHierarchy earlier = patched;
+            Map<Long, CategoryNode> earlierNodes = Map.of();
+            long nextId = 100;
+            for (int step = 0; step < 6_000; step++) {
+                List<Long> ids = new ArrayList<>(nodes.keySet());
+                int operation = ids.size() < 50 ? 0 : random.nextInt(10);
+                if (operation < 4) {
+                    // Mostly increasing IDs, with a few gaps filled later on.
+                    long id = random.nextInt(10) == 0 ? random.nextInt((int) nextId) : nextId++;
+                    Long parentId = ids.isEmpty() || random.nextInt(20) == 0 ? null : ids.get(random.nextInt(ids.size()));
+                    CategoryNode node = new CategoryNode(id, nodes.containsKey(id) ? nodes.get(id).parentId() : parentId,
+                        "Category " + random.nextInt(200), parentId != null ? random.nextBoolean() : null, (long) step);
+                    nodes.put(id, node);
+                    patched = patched.with(node);
+                } else if (operation < 6) {
+                    CategoryNode node = nodes.get(ids.get(random.nextInt(ids.size())));
+                    Long parentId = ids.get(random.nextInt(ids.size()));
+                    if (isInSubtree(nodes, parentId, node.id())) {
+                        parentId = node.parentId();
+                    }
+                    CategoryNode moved = new CategoryNode(node.id(), parentId, "Renamed " + random.nextInt(50), node.active(),
+                        (long) step);
+                    nodes.put(node.id(), moved);
+                    patched = patched.with(moved);
+                } else if (operation < 7) {
+                    Long id = ids.get(random.nextInt(ids.size()));
+                    Boolean active = random.nextBoolean();
+                    nodes.replaceAll((key, node) -> isInSubtree(nodes, key, id)
+                        ? new CategoryNode(key, node.parentId(), node.name(), active, node.version())
+                        : node);
+                    patched = patched.withSubtreeActive(id, active);
+                } else if (operation < 8) {
+                    long[] changed = random.longs(5, 0, nextId).toArray();
+                    long[] versions = new long[changed.length];
+                    Boolean active = random.nextBoolean();
+                    long version = step;
+                    for (int i = 0; i < changed.length; i++) {
+                        versions[i] = version;
+                        nodes.computeIfPresent(changed[i], (key, node) ->
+                            new CategoryNode(key, node.parentId(), node.name(), active, version));
+                    }
+                    patched = patched.withActive(changed, versions, active);
+                } else {
+                    Long id = ids.get(random.nextInt(ids.size()));
+                    List<Long> removed = ids.stream().filter(key -> isInSubtree(nodes, key, id)).toList();
+                    nodes.keySet().removeAll(removed);
+                    patched = patched.without(id);
+                }
+                if (step % 500 == 0) {
+                    assertSameHierarchy(CategoryHierarchy.of(nodes.values()), patched, nodes);
+                    // Later copies share parts of the earlier index, which must not have changed.
+                    assertSameHierarchy(CategoryHierarchy.of(earlierNodes.values()), earlier, earlierNodes);
+                    earlier = patched;
+                    earlierNodes = new HashMap<>(nodes);
+                }
+            }
+            assertSameHierarchy(CategoryHierarchy.of(nodes.values()), patched, nodes);
+            assertEquals(offHeap, patched.index().isOffHeap());
+        }
+    }
+
+    private static boolean isInSubtree(Map<Long, CategoryNode> nodes, Long id, Long rootId) {
+        for (Long current = id; current != null; current = nodes.containsKey(current) ? nodes.get(current).parentId() : null) {
+            if (current.equals(rootId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void assertSameHierarchy(CategoryHierarchy expected, CategoryHierarchy actual,
+            Map<Long, CategoryNode> nodes) {
+        assertEquals(expected.size(), actual.size());
+        assertArrayEquals(expected.effectivelyActiveIds(), actual.effectivelyActiveIds());
+        for (CategoryNode node : nodes.values()) {
+            assertEquals(node, actual.get(node.id()));
+            assertArrayEquals(expected.childIds(node.id()), actual.childIds(node.id()));
+            assertEquals(expected.ancestors(node.id()), actual.ancestors(node.id()));
+            assertTrue(actual.hasChildNamed(node.parentId(), node.name()));
+        }
+        for (long id = 0; id < 200; id++) {
+            assertEquals(expected.contains(id), actual.contains(id));
+        }
+    }
+}
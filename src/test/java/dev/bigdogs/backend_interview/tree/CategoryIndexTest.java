@@ -0,0 +1,88 @@
+package dev.bigdogs.backend_interview.tree;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import dev.bigdogs.backend_interview.model.CategoryNode;
+
+public class CategoryIndexTest {
+
+    private static final List<CategoryNode> NODES = List.of(
+        new CategoryNode(30L, 20L, "Pan de Molde", false),
+        new CategoryNode(10L, null, "Almacén", null),
+        new CategoryNode(25L, 10L, "Bebidas", true),
+        new CategoryNode(20L, 10L, "Panificados", true),
+        new CategoryNode(5L, null, "Bebidas", null));
+
+    @Test
+    public void testLookupsOnHeapAndOffHeap() {
+        for (boolean offHeap : new boolean[] {false, true}) {
+            CategoryIndex index = CategoryIndex.of(NODES, offHeap);
+
+            assertEquals(5, index.size());
+            assertEquals(offHeap, index.isOffHeap());
+            assertEquals(CategoryIndex.NONE, index.slotOf(99L));
+
+            int root = index.slotOf(10L);
+            assertArrayEquals(new long[] {20L, 25L}, index.childIds(root));
+            assertEquals(new CategoryNode(30L, 20L, "Pan de Molde", false), index.nodeAt(index.slotOf(30L)));
+            assertEquals(new CategoryNode(10L, null, "Almacén", null), index.nodeAt(root));
+        }
+    }
+
+    @Test
+    public void testAncestorAndDescendantSlots() {
+        CategoryIndex index = CategoryIndex.of(NODES, false);
+
+        long[] ancestors = Arrays.stream(index.ancestorSlots(index.slotOf(30L))).mapToLong(index::idAt).toArray();
+        assertArrayEquals(new long[] {10L, 20L}, ancestors);
+
+        long[] descendants = Arrays.stream(index.descendantSlots(index.slotOf(10L))).mapToLong(index::idAt).toArray();
+        assertArrayEquals(new long[] {20L, 30L, 25L}, descendants);
+        assertEquals(0, index.descendantSlots(index.slotOf(30L)).length);
+    }
+
+    @Test
+    public void testSiblingNameUniqueness() {
+        CategoryIndex index = CategoryIndex.of(NODES, false);
+
+        assertTrue(index.hasChildNamed(10L, "Bebidas"));
+        assertFalse(index.hasChildNamed(10L, "Pan de Molde"));
+        assertTrue(index.hasChildNamed(null, "Bebidas"));
+        assertTrue(index.hasChildNamed(null, "Almacén"));
+        assertFalse(index.hasChildNamed(null, "Panificados"));
+        assertFalse(index.hasChildNamed(99L, "Bebidas"));
+    }
+
+    @Test
+    public void testDeepChainDoesNotRecurse() {
+        List<CategoryNode> chain = new ArrayList<>();
+        chain.add(new CategoryNode(1L, null, "Root", null));
+        for (long id = 2; id <= 50_000; id++) {
+            chain.add(new CategoryNode(id, id - 1, "Level", true));
+        }
+        CategoryIndex index = CategoryIndex.of(chain, false);
+
+        assertEquals(49_999, index.descendantSlots(index.slotOf(1L)).length);
+        assertEquals(49_999, index.ancestorSlots(index.slotOf(50_000L)).length);
+    }
+
+    @Test
+    public void testFootprintIsSmallerThanEntityGraph() {
+        List<CategoryNode> nodes = new ArrayList<>();
+        nodes.add(new CategoryNode(1L, null, "Root", null));
+        for (long id = 2; id <= 10_000; id++) {
+            nodes.add(new CategoryNode(id, 1 + (id - 2) / 10, "Category " + (id % 100), true));
+        }
+        CategoryIndex.Footprint footprint = CategoryIndex.of(nodes, false).footprint();
+
+        assertEquals(10_000, footprint.categories());
+        assertEquals(101, footprint.distinctNames());
+        assertTrue(footprint.indexBytes() * 10 < footprint.entityGraphBytes(), footprint.toString());
+    }
+}
@@ -0,0 +1,94 @@
+package dev.bigdogs.backend_interview.tree;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import dev.bigdogs.backend_interview.model.CategoryNode;
+
+public class CategoryTraversalTest {
+
+    private static final CategoryIndex INDEX = CategoryIndex.of(List.of(
+        new CategoryNode(1L, null, "Almacén", null),
+        new CategoryNode(2L, 1L, "Panificados", true),
+        new CategoryNode(3L, 2L, "Pan de Molde", true),
+        new CategoryNode(4L, 1L, "Bebidas", false),
+        new CategoryNode(5L, 4L, "Cervezas", true),
+        new CategoryNode(6L, null, "Limpieza", null)), false);
+
+    @Test
+    public void testDepthFirstVisitsInPreorderAndPostorder() {
+        List<String> events = new ArrayList<>();
+        CategoryTraversal.depthFirst(INDEX, INDEX.slotOf(1L), CategoryTraversal.UNLIMITED, new CategoryTraversal.Visitor() {
+            @Override
+            public boolean enter(int slot, int depth) {
+                events.add("+" + INDEX.idAt(slot) + "@" + depth);
+                return true;
+            }
+
+            @Override
+            public void leave(int slot, int depth) {
+                events.add("-" + INDEX.idAt(slot));
+            }
+        });
+
+        assertEquals(List.of("+1@0", "+2@1", "+3@2", "-3", "-2", "+4@1", "+5@2", "-5", "-4", "-1"), events);
+    }
+
+    @Test
+    public void testDepthFirstSkipsSubtreesAndStopsAtMaxDepth() {
+        List<Long> entered = new ArrayList<>();
+        List<Long> left = new ArrayList<>();
+        CategoryTraversal.depthFirst(INDEX, INDEX.slotOf(1L), 1, new CategoryTraversal.Visitor() {
+            @Override
+            public boolean enter(int slot, int depth) {
+                entered.add(INDEX.idAt(slot));
+                return !Boolean.FALSE.equals(INDEX.activeAt(slot));
+            }
+
+            @Override
+            public void leave(int slot, int depth) {
+                left.add(INDEX.idAt(slot));
+            }
+        });
+
+        assertEquals(List.of(1L, 2L, 4L), entered);
+        assertEquals(List.of(2L, 1L), left);
+        assertEquals(3, CategoryTraversal.count(INDEX, INDEX.slotOf(1L), 1));
+        assertEquals(1, CategoryTraversal.count(INDEX, INDEX.slotOf(6L), CategoryTraversal.UNLIMITED));
+    }
+
+    @Test
+    public void testBreadthFirstVisitsLevelByLevel() {
+        List<String> visits = new ArrayList<>();
+        CategoryTraversal.breadthFirst(INDEX, INDEX.slotOf(1L), CategoryTraversal.UNLIMITED,
+            (slot, depth) -> visits.add(INDEX.idAt(slot) + "@" + depth));
+
+        assertEquals(List.of("1@0", "2@1", "4@1", "3@2", "5@2"), visits);
+    }
+
+    @Test
+    public void testDeepHierarchyDoesNotOverflowTheStack() {
+        int depth = 200_000;
+        List<CategoryNode> chain = new ArrayList<>(depth);
+        chain.add(new CategoryNode(1L, null, "Root", null));
+        for (long id = 2; id <= depth; id++) {
+            chain.add(new CategoryNode(id, id - 1, "Level " + id, true));
+        }
+        CategoryIndex index = CategoryIndex.of(chain, false);
+        int root = index.slotOf(1L);
+
+        int[] deepest = {0};
+        CategoryTraversal.depthFirst(index, root, CategoryTraversal.UNLIMITED, (slot, level) -> {
+            deepest[0] = Math.max(deepest[0], level);
+            return true;
+        });
+
+        assertEquals(depth - 1, deepest[0]);
+        assertEquals(depth, CategoryTraversal.count(index, root, CategoryTraversal.UNLIMITED));
+        assertEquals(depth - 1, index.descendantSlots(root).length);
+    }
+}